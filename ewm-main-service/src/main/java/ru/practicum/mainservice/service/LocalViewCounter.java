@@ -0,0 +1,181 @@
+package ru.practicum.mainservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.statsclient.StatsClient;
+import ru.practicum.statsdto.EndpointHit;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts views locally instead of sending one hit per request. Each uri keeps the set of
+ * distinct ips seen since the last sync; every {@code sync-interval-ms} the sets are swapped
+ * out and sent as one hit per (uri, ip), so repeated views from the same address within an
+ * interval cost nothing on the stats server. The distinct ips still waiting to be sent are the
+ * local delta added on top of synced totals. Views that fail to sync are put back and sent with
+ * the next sync, up to {@code max-pending-ips}; views the stats server rejects are dropped.
+ */
+@Slf4j
+@Component
+public class LocalViewCounter {
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private final StatsClient statsClient;
+    private final boolean enabled;
+    private final long syncIntervalMs;
+    private final int maxPendingIps;
+    private final Map<String, PendingViews> pending = new ConcurrentHashMap<>();
+    private final AtomicInteger pendingIps = new AtomicInteger();
+    private final Counter recorded;
+    private final Counter sent;
+    private final Counter failed;
+    private ScheduledExecutorService executor;
+
+    @Value("${spring.application.name}")
+    private String appName;
+
+    public LocalViewCounter(StatsClient statsClient,
+                            @Value("${views-local.enabled:false}") boolean enabled,
+                            @Value("${views-local.sync-interval-ms:5000}") long syncIntervalMs,
+                            @Value("${views-local.max-pending-ips:100000}") int maxPendingIps,
+                            MeterRegistry meterRegistry) {
+        this.statsClient = statsClient;
+        this.enabled = enabled;
+        this.syncIntervalMs = syncIntervalMs;
+        this.maxPendingIps = maxPendingIps;
+
+        Gauge.builder("views.local.pending", pendingIps, AtomicInteger::get)
+                .description("Distinct (uri, ip) pairs counted locally but not yet sent to the stats server")
+                .register(meterRegistry);
+        this.recorded = meterRegistry.counter("views.local.recorded");
+        this.sent = meterRegistry.counter("views.local.sent");
+        this.failed = meterRegistry.counter("views.local.failed");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @PostConstruct
+    public synchronized void start() {
+        if (!enabled || executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "views-local-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::sync, syncIntervalMs, syncIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void record(String uri, String ip) {
+        recorded.increment();
+        if (add(uri, ip) && pendingIps.incrementAndGet() >= maxPendingIps) {
+            ScheduledExecutorService current = executor;
+            if (current != null) {
+                current.execute(this::sync);
+            }
+        }
+    }
+
+    /**
+     * Distinct ips counted for the uri since the last sync. Some of them may already be part of
+     * the synced unique total, so this is an upper bound of the views the server has not seen.
+     */
+    public long getPendingViews(String uri) {
+        PendingViews views = pending.get(uri);
+        return views == null ? 0 : views.ips.size();
+    }
+
+    public synchronized void sync() {
+        List<EndpointHit> hits = new ArrayList<>();
+        String timestamp = LocalDateTime.now().format(DATE_FORMATTER);
+        for (String uri : pending.keySet()) {
+            PendingViews views = pending.remove(uri);
+            if (views == null) {
+                continue;
+            }
+            views.closed = true;
+            for (String ip : views.ips) {
+                hits.add(EndpointHit.builder().app(appName).uri(uri).ip(ip).timestamp(timestamp).build());
+            }
+        }
+        if (hits.isEmpty()) {
+            return;
+        }
+        pendingIps.addAndGet(-hits.size());
+        try {
+            statsClient.saveHits(hits);
+            sent.increment(hits.size());
+        } catch (RuntimeException e) {
+            if (StatsClient.isPermanent(e)) {
+                failed.increment(hits.size());
+                log.warn("Stats server rejected {} locally counted views: {}", hits.size(), e.getMessage());
+                return;
+            }
+            int restored = restore(hits);
+            failed.increment(hits.size() - restored);
+            log.warn("Failed to sync {} locally counted views, {} kept for the next sync: {}", hits.size(), restored,
+                    e.getMessage());
+        }
+    }
+
+    private int restore(List<EndpointHit> hits) {
+        int restored = 0;
+        for (EndpointHit hit : hits) {
+            if (pendingIps.get() >= maxPendingIps) {
+                break;
+            }
+            if (add(hit.getUri(), hit.getIp())) {
+                pendingIps.incrementAndGet();
+                restored++;
+            }
+        }
+        return restored;
+    }
+
+    private boolean add(String uri, String ip) {
+        PendingViews views;
+        boolean added;
+        do {
+            views = pending.computeIfAbsent(uri, key -> new PendingViews());
+            added = views.ips.add(ip);
+        } while (views.closed);
+        return added;
+    }
+
+    @PreDestroy
+    public void close() {
+        ScheduledExecutorService current;
+        synchronized (this) {
+            current = executor;
+            executor = null;
+        }
+        if (current == null) {
+            return;
+        }
+        current.shutdown();
+        sync();
+    }
+
+    private static final class PendingViews {
+        private final Set<String> ips = ConcurrentHashMap.newKeySet();
+        private volatile boolean closed;
+    }
+}
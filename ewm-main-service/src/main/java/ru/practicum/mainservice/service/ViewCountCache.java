@@ -0,0 +1,141 @@
+package ru.practicum.mainservice.service;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.statsclient.StatsClient;
+import ru.practicum.statsdto.ViewStats;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Bounded cache of unique view counts per event uri in front of {@link StatsClient#queryStats}.
+ * All uris missing from the cache in one call are fetched with a single stats request, and
+ * entries read after {@code refresh-after-ms} are reloaded in the background while the old
+ * count is still served. Counts the stats client returned as stale expire after
+ * {@code stale-ttl-ms} so they are replaced as soon as the stats server is back.
+ * <p>
+ * Off by default: while enabled a view may not show up in the counts for up to
+ * {@code ttl-ms}.
+ */
+@Component
+public class ViewCountCache {
+    private final StatsClient statsClient;
+    private final boolean enabled;
+    private final long ttlNanos;
+    private final long staleTtlNanos;
+    private final ExecutorService refreshExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final LoadingCache<String, CachedViews> cache;
+
+    public ViewCountCache(StatsClient statsClient,
+                          @Value("${views-cache.enabled:false}") boolean enabled,
+                          @Value("${views-cache.max-size:100000}") long maxSize,
+                          @Value("${views-cache.ttl-ms:30000}") long ttlMs,
+                          @Value("${views-cache.refresh-after-ms:20000}") long refreshAfterMs,
+                          @Value("${views-cache.stale-ttl-ms:2000}") long staleTtlMs,
+                          MeterRegistry meterRegistry) {
+        this.statsClient = statsClient;
+        this.enabled = enabled;
+        this.ttlNanos = Duration.ofMillis(ttlMs).toNanos();
+        this.staleTtlNanos = Duration.ofMillis(staleTtlMs).toNanos();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new ViewsExpiry())
+                .refreshAfterWrite(Duration.ofMillis(refreshAfterMs))
+                .executor(refreshExecutor)
+                .recordStats()
+                .build(new ViewsLoader());
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "event-views");
+    }
+
+    /**
+     * Returns unique view counts for the given uris, each counted from its own start time. Only
+     * uris the stats server reported are in the result: uris without hits, or unknown to the
+     * stats client's fallback while the server is down, are left out and not cached, so callers
+     * keep their own value.
+     */
+    public Map<String, Long> getViews(Map<String, LocalDateTime> startByUri) {
+        if (startByUri.isEmpty()) {
+            return Map.of();
+        }
+        Map<String, CachedViews> views = enabled
+                ? cache.getAll(startByUri.keySet(), missing -> load(missing, startByUri))
+                : load(startByUri.keySet(), startByUri);
+        Map<String, Long> result = new HashMap<>();
+        views.forEach((uri, cached) -> result.put(uri, cached.hits()));
+        return result;
+    }
+
+    private Map<String, CachedViews> load(Set<? extends String> uris, Map<String, LocalDateTime> startByUri) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime start = now;
+        for (String uri : uris) {
+            LocalDateTime uriStart = startByUri.get(uri);
+            if (uriStart != null && uriStart.isBefore(start)) {
+                start = uriStart;
+            }
+        }
+        List<ViewStats> stats = statsClient.queryStats(start, now, new ArrayList<>(uris), true);
+        Map<String, CachedViews> loaded = new HashMap<>();
+        for (ViewStats viewStats : stats) {
+            String uri = viewStats.getUri();
+            if (uris.contains(uri) && viewStats.getHits() != null) {
+                loaded.put(uri, new CachedViews(viewStats.getHits(), startByUri.getOrDefault(uri, start),
+                        Boolean.TRUE.equals(viewStats.getStale())));
+            }
+        }
+        return loaded;
+    }
+
+    @PreDestroy
+    public void close() {
+        refreshExecutor.shutdownNow();
+    }
+
+    private record CachedViews(long hits, LocalDateTime start, boolean stale) {
+    }
+
+    private class ViewsLoader implements CacheLoader<String, CachedViews> {
+        @Override
+        public CachedViews load(String uri) {
+            LocalDateTime start = LocalDateTime.now().minusYears(1);
+            return ViewCountCache.this.load(Set.of(uri), Map.of(uri, start)).get(uri);
+        }
+
+        @Override
+        public CachedViews reload(String uri, CachedViews oldValue) {
+            return ViewCountCache.this.load(Set.of(uri), Map.of(uri, oldValue.start())).get(uri);
+        }
+    }
+
+    private class ViewsExpiry implements Expiry<String, CachedViews> {
+        @Override
+        public long expireAfterCreate(String uri, CachedViews value, long currentTime) {
+            return value.stale() ? staleTtlNanos : ttlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(String uri, CachedViews value, long currentTime, long currentDuration) {
+            return expireAfterCreate(uri, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String uri, CachedViews value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -22,15 +22,18 @@ import ru.practicum.mainservice.repository.CategoryRepository;
 import ru.practicum.mainservice.repository.EventRepository;
 import ru.practicum.mainservice.repository.UserRepository;
 import ru.practicum.mainservice.service.EventService;
+import ru.practicum.mainservice.service.LocalViewCounter;
+import ru.practicum.mainservice.service.ViewCountCache;
 import ru.practicum.statsclient.StatsClient;
 import ru.practicum.statsdto.EndpointHit;
-import ru.practicum.statsdto.ViewStats;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -41,6 +44,8 @@ public class EventServiceImpl implements EventService {
     private final UserRepository userRepository;
     private final CategoryRepository categoryRepository;
     private final StatsClient statsClient;
+    private final ViewCountCache viewCountCache;
+    private final LocalViewCounter localViewCounter;
     private final HttpServletRequest httpServletRequest;
     @Value("${spring.application.name}")
     private String appName;
@@ -83,6 +88,10 @@ public class EventServiceImpl implements EventService {
     }
 
     private void saveStatsHit() {
+        if (localViewCounter.isEnabled()) {
+            localViewCounter.record(httpServletRequest.getRequestURI(), httpServletRequest.getRemoteAddr());
+            return;
+        }
         statsClient.saveHit(EndpointHit.builder()
                 .app(appName)
                 .uri(httpServletRequest.getRequestURI())
@@ -237,25 +246,19 @@ public class EventServiceImpl implements EventService {
     }
 
     private List<EventShortDto> processEventsWithStats(List<Event> events, String sort) {
-        LocalDateTime now = LocalDateTime.now();
-        List<String> uris = events.stream()
-                .map(event -> "/events/" + event.getId())
-                .collect(Collectors.toList());
+        LocalDateTime defaultStart = LocalDateTime.now().minusYears(1);
+        Map<String, LocalDateTime> startByUri = new LinkedHashMap<>();
+        events.forEach(event -> startByUri.put("/events/" + event.getId(),
+                event.getPublishedOn() != null ? event.getPublishedOn() : defaultStart));
 
-        LocalDateTime statsStart = events.stream()
-                .map(Event::getPublishedOn)
-                .filter(java.util.Objects::nonNull)
-                .min(LocalDateTime::compareTo)
-                .orElse(now.minusYears(1));
-
-        List<ViewStats> stats = statsClient.getStats(statsStart, now, uris, true);
+        Map<String, Long> views = viewCountCache.getViews(startByUri);
 
         events.forEach(event -> {
-            String eventUri = "/events/" + event.getId();
-            stats.stream()
-                    .filter(s -> s.getUri().equals(eventUri))
-                    .findFirst()
-                    .ifPresent(viewStats -> event.setViews(viewStats.getHits().intValue()));
+            String uri = "/events/" + event.getId();
+            Long hits = views.get(uri);
+            if (hits != null) {
+                event.setViews((int) (hits + localViewCounter.getPendingViews(uri)));
+            }
         });
 
         return sortEvents(events, sort).stream()
@@ -281,11 +284,11 @@ public class EventServiceImpl implements EventService {
             throw new NotFoundException("Event is not published");
         }
         EventFullDto dto = EventMapper.toFullDto(event);
+        String uri = "/events/" + eventId;
         LocalDateTime start = event.getPublishedOn() != null ? event.getPublishedOn() : LocalDateTime.now().minusYears(1);
-        LocalDateTime end = LocalDateTime.now();
-        List<ViewStats> stats = statsClient.getStats(start, end, List.of("/events/" + eventId), true);
-        if (!stats.isEmpty()) {
-            dto.setViews(stats.getFirst().getHits().intValue());
+        Long views = viewCountCache.getViews(Map.of(uri, start)).get(uri);
+        if (views != null) {
+            dto.setViews((int) (views + localViewCounter.getPendingViews(uri)));
         }
         saveStatsHit();
         return dto;
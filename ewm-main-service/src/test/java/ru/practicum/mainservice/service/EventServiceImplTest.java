@@ -46,6 +46,10 @@ class EventServiceImplTest {
     @Mock
     private StatsClient statsClient;
     @Mock
+    private ViewCountCache viewCountCache;
+    @Mock
+    private LocalViewCounter localViewCounter;
+    @Mock
     private HttpServletRequest httpServletRequest;
 
     @InjectMocks
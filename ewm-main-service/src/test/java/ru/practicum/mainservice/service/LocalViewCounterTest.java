@@ -0,0 +1,91 @@
+package ru.practicum.mainservice.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.HttpClientErrorException;
+import ru.practicum.statsclient.StatsClient;
+import ru.practicum.statsclient.StatsUnavailableException;
+import ru.practicum.statsdto.EndpointHit;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class LocalViewCounterTest {
+    private final StatsClient statsClient = mock(StatsClient.class);
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private LocalViewCounter counter;
+
+    @BeforeEach
+    void setUp() {
+        counter = new LocalViewCounter(statsClient, true, 60_000, 1000, registry);
+        ReflectionTestUtils.setField(counter, "appName", "ewm-main-service");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void sync_ShouldSendOneHitPerDistinctIp() {
+        counter.record("/events/1", "10.0.0.1");
+        counter.record("/events/1", "10.0.0.1");
+        counter.record("/events/1", "10.0.0.2");
+        counter.record("/events/2", "10.0.0.1");
+
+        assertEquals(2, counter.getPendingViews("/events/1"));
+        counter.sync();
+
+        ArgumentCaptor<List<EndpointHit>> captor = ArgumentCaptor.forClass(List.class);
+        verify(statsClient).saveHits(captor.capture());
+        assertEquals(3, captor.getValue().size());
+        assertTrue(captor.getValue().stream().allMatch(hit -> "ewm-main-service".equals(hit.getApp())));
+        assertEquals(0, counter.getPendingViews("/events/1"));
+        assertEquals(4.0, registry.counter("views.local.recorded").count());
+        assertEquals(3.0, registry.counter("views.local.sent").count());
+    }
+
+    @Test
+    void sync_WithNothingRecorded_ShouldNotCallStats() {
+        counter.sync();
+
+        verify(statsClient, never()).saveHits(anyList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void sync_WhenStatsServerFails_ShouldKeepViewsForNextSync() {
+        doThrow(new StatsUnavailableException("stats server is down")).doNothing()
+                .when(statsClient).saveHits(anyList());
+        counter.record("/events/1", "10.0.0.1");
+
+        assertDoesNotThrow(counter::sync);
+
+        assertEquals(1, counter.getPendingViews("/events/1"));
+        assertEquals(0.0, registry.counter("views.local.failed").count());
+        assertEquals(1.0, registry.get("views.local.pending").gauge().value());
+
+        counter.sync();
+
+        ArgumentCaptor<List<EndpointHit>> captor = ArgumentCaptor.forClass(List.class);
+        verify(statsClient, times(2)).saveHits(captor.capture());
+        assertEquals("10.0.0.1", captor.getValue().get(0).getIp());
+        assertEquals(0, counter.getPendingViews("/events/1"));
+        assertEquals(1.0, registry.counter("views.local.sent").count());
+    }
+
+    @Test
+    void sync_WhenStatsServerRejectsViews_ShouldDropThem() {
+        doThrow(new HttpClientErrorException(HttpStatus.BAD_REQUEST)).when(statsClient).saveHits(anyList());
+        counter.record("/events/1", "10.0.0.1");
+
+        assertDoesNotThrow(counter::sync);
+
+        assertEquals(0, counter.getPendingViews("/events/1"));
+        assertEquals(1.0, registry.counter("views.local.failed").count());
+    }
+}
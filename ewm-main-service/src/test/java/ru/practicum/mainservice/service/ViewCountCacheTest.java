@@ -0,0 +1,100 @@
+package ru.practicum.mainservice.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.statsclient.StatsClient;
+import ru.practicum.statsdto.ViewStats;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ViewCountCacheTest {
+    private static final LocalDateTime PUBLISHED = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private final StatsClient statsClient = mock(StatsClient.class);
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private ViewCountCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new ViewCountCache(statsClient, true, 1000, 60_000, 60_000, 60_000, registry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        cache.close();
+    }
+
+    @Test
+    void getViews_ShouldBatchMissesIntoOneStatsCall() {
+        when(statsClient.queryStats(any(), any(), anyList(), eq(true)))
+                .thenReturn(List.of(new ViewStats("ewm", "/events/1", 5L, null)));
+
+        Map<String, Long> views = cache.getViews(Map.of("/events/1", PUBLISHED, "/events/2", PUBLISHED));
+
+        assertEquals(5L, views.get("/events/1"));
+        assertFalse(views.containsKey("/events/2"));
+        verify(statsClient, times(1)).queryStats(eq(PUBLISHED), any(), anyList(), eq(true));
+    }
+
+    @Test
+    void getViews_ShouldServeRepeatedReadsFromCache() {
+        when(statsClient.queryStats(any(), any(), anyList(), eq(true)))
+                .thenReturn(List.of(new ViewStats("ewm", "/events/1", 5L, null)));
+
+        cache.getViews(Map.of("/events/1", PUBLISHED));
+        cache.getViews(Map.of("/events/1", PUBLISHED));
+        cache.getViews(Map.of("/events/1", PUBLISHED, "/events/3", PUBLISHED));
+
+        verify(statsClient).queryStats(any(), any(), eq(List.of("/events/1")), eq(true));
+        verify(statsClient).queryStats(any(), any(), eq(List.of("/events/3")), eq(true));
+        assertEquals(2.0, registry.get("cache.gets").tag("cache", "event-views").tag("result", "hit")
+                .functionCounter().count());
+    }
+
+    @Test
+    void getViews_WhenDisabled_ShouldAlwaysCallStats() {
+        cache.close();
+        cache = new ViewCountCache(statsClient, false, 1000, 60_000, 60_000, 60_000, registry);
+        when(statsClient.queryStats(any(), any(), anyList(), eq(true))).thenReturn(List.of());
+
+        cache.getViews(Map.of("/events/1", PUBLISHED));
+        cache.getViews(Map.of("/events/1", PUBLISHED));
+
+        verify(statsClient, times(2)).queryStats(any(), any(), anyList(), eq(true));
+    }
+
+    @Test
+    void getViews_WhenStatsReturnNothing_ShouldLeaveUriOutAndNotCacheIt() {
+        when(statsClient.queryStats(any(), any(), anyList(), eq(true)))
+                .thenReturn(List.of())
+                .thenReturn(List.of(new ViewStats("ewm", "/events/1", 5L, null)));
+
+        assertTrue(cache.getViews(Map.of("/events/1", PUBLISHED)).isEmpty());
+        assertEquals(5L, cache.getViews(Map.of("/events/1", PUBLISHED)).get("/events/1"));
+        assertEquals(5L, cache.getViews(Map.of("/events/1", PUBLISHED)).get("/events/1"));
+
+        verify(statsClient, times(2)).queryStats(any(), any(), anyList(), eq(true));
+    }
+
+    @Test
+    void getViews_WhenStatsAreStale_ShouldKeepThemOnlyForStaleTtl() {
+        cache.close();
+        cache = new ViewCountCache(statsClient, true, 1000, 60_000, 60_000, 0, registry);
+        when(statsClient.queryStats(any(), any(), anyList(), eq(true)))
+                .thenReturn(List.of(new ViewStats("ewm", "/events/1", 3L, true)))
+                .thenReturn(List.of(new ViewStats("ewm", "/events/1", 5L, null)));
+
+        assertEquals(3L, cache.getViews(Map.of("/events/1", PUBLISHED)).get("/events/1"));
+        assertEquals(5L, cache.getViews(Map.of("/events/1", PUBLISHED)).get("/events/1"));
+
+        verify(statsClient, times(2)).queryStats(any(), any(), anyList(), eq(true));
+    }
+}
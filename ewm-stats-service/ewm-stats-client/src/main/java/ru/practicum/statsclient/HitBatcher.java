@@ -0,0 +1,151 @@
+package ru.practicum.statsclient;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.statsdto.EndpointHit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Bounded in-memory queue of hits that are shipped to the stats server in batches
+ * from a background thread. A batch is sent as soon as {@code batch-size} hits are
+ * queued or every {@code flush-interval-ms}, whichever comes first. When the queue
+ * is full new hits are dropped and counted instead of blocking the caller.
+ * <p>
+ * Off by default: while enabled a hit is not yet stored when the request that made it
+ * returns, so views read right after a request may not include it for up to
+ * {@code flush-interval-ms}.
+ */
+@Slf4j
+@Component
+public class HitBatcher {
+    private final boolean enabled;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final BlockingQueue<EndpointHit> queue;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final Counter enqueued;
+    private final Counter dropped;
+    private final Counter shipped;
+    private final Counter failed;
+    private final Timer flushLatency;
+    private volatile ScheduledExecutorService executor;
+    private Consumer<List<EndpointHit>> shipper;
+
+    public HitBatcher(@Value("${stats-client.async.enabled:false}") boolean enabled,
+                      @Value("${stats-client.async.queue-capacity:10000}") int queueCapacity,
+                      @Value("${stats-client.async.batch-size:100}") int batchSize,
+                      @Value("${stats-client.async.flush-interval-ms:200}") long flushIntervalMs,
+                      ObjectProvider<MeterRegistry> meterRegistry) {
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        MeterRegistry registry = meterRegistry.getIfAvailable(SimpleMeterRegistry::new);
+        Gauge.builder("stats.client.queue.depth", queue, BlockingQueue::size)
+                .description("Hits waiting to be shipped to the stats server")
+                .register(registry);
+        this.enqueued = registry.counter("stats.client.hits.enqueued");
+        this.dropped = registry.counter("stats.client.hits.dropped");
+        this.shipped = registry.counter("stats.client.hits.shipped");
+        this.failed = registry.counter("stats.client.hits.failed");
+        this.flushLatency = Timer.builder("stats.client.flush.latency")
+                .description("Time spent shipping one batch of hits")
+                .register(registry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public synchronized void start(Consumer<List<EndpointHit>> shipper) {
+        if (!enabled || executor != null) {
+            return;
+        }
+        this.shipper = shipper;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stats-hit-batcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public boolean submit(EndpointHit hit) {
+        if (!queue.offer(hit)) {
+            dropped.increment();
+            return false;
+        }
+        enqueued.increment();
+        ScheduledExecutorService current = executor;
+        if (queue.size() >= batchSize && current != null && flushScheduled.compareAndSet(false, true)) {
+            try {
+                current.execute(() -> {
+                    flushScheduled.set(false);
+                    flush();
+                });
+            } catch (RejectedExecutionException e) {
+                flushScheduled.set(false);
+            }
+        }
+        return true;
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public synchronized void flush() {
+        if (shipper == null) {
+            return;
+        }
+        List<EndpointHit> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            try {
+                flushLatency.record(() -> shipper.accept(batch));
+                shipped.increment(batch.size());
+            } catch (Exception e) {
+                failed.increment(batch.size());
+                log.warn("Failed to ship {} hits to stats server: {}", batch.size(), e.getMessage());
+            }
+            batch.clear();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        ScheduledExecutorService current;
+        synchronized (this) {
+            current = executor;
+            executor = null;
+        }
+        if (current == null) {
+            return;
+        }
+        current.shutdown();
+        try {
+            current.awaitTermination(flushIntervalMs * 2, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+}
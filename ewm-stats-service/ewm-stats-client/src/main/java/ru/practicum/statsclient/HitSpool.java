@@ -0,0 +1,364 @@
+package ru.practicum.statsclient;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.statsdto.EndpointHit;
+import ru.practicum.statsdto.StatsWireFormat;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * On-disk spool for hits the stats server could not take. Hits are appended to memory-mapped
+ * segment files of {@code segment-size} bytes as {@code [length][crc32][hit]} records, a hit being
+ * a one-hit {@link StatsWireFormat} body, so they survive a crash of the service; a background
+ * thread replays them oldest first every {@code replay-interval-ms} and deletes a segment once all
+ * of its hits were accepted. At most
+ * {@code max-segments} segments are kept; when they are full, new hits are dropped and counted.
+ * On startup the existing segments are scanned and a record with a bad checksum ends its segment
+ * (a torn write). Hits carry their {@code hitId}, so a batch replayed twice is stored once.
+ * A batch the server rejects with a client error other than 429 cannot succeed on replay, so it
+ * is dropped instead of blocking the hits behind it.
+ */
+@Slf4j
+@Component
+public class HitSpool {
+    private static final String PREFIX = "segment-";
+    private static final String SUFFIX = ".spool";
+    private static final int HEADER = 8;
+    private final boolean enabled;
+    private final Path directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final int batchSize;
+    private final long replayIntervalMs;
+    private final boolean fsync;
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private final Counter spooled;
+    private final Counter replayed;
+    private final Counter dropped;
+    private final Counter corrupt;
+    private long pending;
+    private long nextSequence;
+    private boolean opened;
+    private ScheduledExecutorService executor;
+    private Consumer<List<EndpointHit>> shipper;
+
+    public HitSpool(@Value("${stats-client.spool.enabled:false}") boolean enabled,
+                    @Value("${stats-client.spool.dir:${java.io.tmpdir}/stats-spool}") String directory,
+                    @Value("${stats-client.spool.segment-size:16777216}") int segmentSize,
+                    @Value("${stats-client.spool.max-segments:64}") int maxSegments,
+                    @Value("${stats-client.spool.batch-size:500}") int batchSize,
+                    @Value("${stats-client.spool.replay-interval-ms:5000}") long replayIntervalMs,
+                    @Value("${stats-client.spool.fsync:false}") boolean fsync,
+                    ObjectProvider<MeterRegistry> meterRegistry) {
+        this.enabled = enabled;
+        this.directory = Path.of(directory);
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+        this.batchSize = batchSize;
+        this.replayIntervalMs = replayIntervalMs;
+        this.fsync = fsync;
+
+        MeterRegistry registry = meterRegistry.getIfAvailable(SimpleMeterRegistry::new);
+        Gauge.builder("stats.client.spool.pending", this, HitSpool::getPending)
+                .description("Hits waiting on disk to be replayed to the stats server")
+                .register(registry);
+        this.spooled = registry.counter("stats.client.spool.spooled");
+        this.replayed = registry.counter("stats.client.spool.replayed");
+        this.dropped = registry.counter("stats.client.spool.dropped");
+        this.corrupt = registry.counter("stats.client.spool.corrupt");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public synchronized void start(Consumer<List<EndpointHit>> shipper) {
+        if (!enabled || executor != null) {
+            return;
+        }
+        this.shipper = shipper;
+        open();
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stats-hit-spool");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::replay, replayIntervalMs, replayIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Appends the hits in order.
+     *
+     * @return {@code false} if the spool is disabled or not started, so the caller has to handle
+     * the hits itself
+     */
+    public synchronized boolean append(List<EndpointHit> hits) {
+        if (!enabled || !opened) {
+            return false;
+        }
+        Segment touched = null;
+        for (EndpointHit hit : hits) {
+            byte[] record = StatsWireFormat.encodeHits(List.of(hit));
+            Segment segment = segments.peekLast();
+            if (segment == null || !segment.fits(record.length)) {
+                segment = HEADER + record.length > segmentSize || segments.size() >= maxSegments ? null : createSegment();
+            }
+            if (segment == null) {
+                dropped.increment();
+                continue;
+            }
+            segment.write(record);
+            touched = segment;
+            pending++;
+            spooled.increment();
+        }
+        if (fsync && touched != null) {
+            touched.buffer.force();
+        }
+        return true;
+    }
+
+    /**
+     * Counts hits the stats server rejected as dropped; they are never spooled.
+     */
+    public void drop(List<EndpointHit> hits, RuntimeException cause) {
+        dropped.increment(hits.size());
+        log.warn("Stats server rejected {} hits, dropping them: {}", hits.size(), cause.getMessage());
+    }
+
+    public synchronized long getPending() {
+        return pending;
+    }
+
+    /**
+     * Ships spooled hits in batches until the spool is empty or the shipper fails.
+     */
+    public void replay() {
+        Consumer<List<EndpointHit>> current = shipper;
+        if (current == null) {
+            return;
+        }
+        while (true) {
+            Batch batch = nextBatch();
+            if (batch == null) {
+                return;
+            }
+            try {
+                current.accept(batch.hits());
+            } catch (RuntimeException e) {
+                if (!StatsClient.isPermanent(e)) {
+                    log.debug("Replaying {} spooled hits failed: {}", batch.hits().size(), e.getMessage());
+                    return;
+                }
+                drop(batch.hits(), e);
+                acknowledge(batch, false);
+                continue;
+            }
+            acknowledge(batch, true);
+        }
+    }
+
+    private synchronized Batch nextBatch() {
+        Segment head = segments.peekFirst();
+        if (head == null || head.readPosition == head.writePosition) {
+            return null;
+        }
+        List<EndpointHit> hits = new ArrayList<>(batchSize);
+        int position = head.readPosition;
+        while (hits.size() < batchSize && position < head.writePosition) {
+            int length = head.buffer.getInt(position);
+            byte[] record = new byte[length];
+            head.buffer.get(position + HEADER, record);
+            hits.add(StatsWireFormat.decodeHits(record).getFirst().toEndpointHit());
+            position += HEADER + length;
+        }
+        return new Batch(head, position, hits);
+    }
+
+    private synchronized void acknowledge(Batch batch, boolean delivered) {
+        batch.segment().readPosition = batch.end();
+        pending -= batch.hits().size();
+        if (delivered) {
+            replayed.increment(batch.hits().size());
+        }
+        if (batch.end() == batch.segment().writePosition) {
+            segments.remove(batch.segment());
+            delete(batch.segment());
+        }
+    }
+
+    private void open() {
+        try {
+            Files.createDirectories(directory);
+            List<Path> files;
+            try (Stream<Path> listing = Files.list(directory)) {
+                files = listing.filter(path -> sequence(path) >= 0)
+                        .sorted((a, b) -> Long.compare(sequence(a), sequence(b)))
+                        .toList();
+            }
+            for (Path file : files) {
+                Segment segment = map(file, Math.max(Files.size(file), HEADER));
+                nextSequence = sequence(file) + 1;
+                recover(segment);
+                if (segment.writePosition == 0) {
+                    delete(segment);
+                } else {
+                    segments.addLast(segment);
+                }
+            }
+            opened = true;
+            if (pending > 0) {
+                log.info("Found {} spooled hits in {} segments", pending, segments.size());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open stats spool in " + directory, e);
+        }
+    }
+
+    private void recover(Segment segment) {
+        CRC32 crc = new CRC32();
+        int position = 0;
+        int capacity = segment.buffer.capacity();
+        while (position + HEADER <= capacity) {
+            int length = segment.buffer.getInt(position);
+            if (length <= 0) {
+                break;
+            }
+            if (position + HEADER + length > capacity) {
+                corrupt.increment();
+                break;
+            }
+            byte[] record = new byte[length];
+            segment.buffer.get(position + HEADER, record);
+            crc.reset();
+            crc.update(record);
+            if ((int) crc.getValue() != segment.buffer.getInt(position + 4)) {
+                corrupt.increment();
+                log.warn("Spool segment {} has a damaged record at {}, skipping the rest of it",
+                        segment.path.getFileName(), position);
+                break;
+            }
+            position += HEADER + length;
+            pending++;
+        }
+        segment.writePosition = position;
+        segment.sealed = true;
+    }
+
+    private Segment createSegment() {
+        Path file = directory.resolve(String.format("%s%020d%s", PREFIX, nextSequence++, SUFFIX));
+        try {
+            Segment segment = map(file, segmentSize);
+            segments.addLast(segment);
+            return segment;
+        } catch (IOException e) {
+            log.warn("Cannot create spool segment {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    private Segment map(Path file, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            return new Segment(file, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        }
+    }
+
+    private void delete(Segment segment) {
+        try {
+            Files.deleteIfExists(segment.path);
+        } catch (IOException e) {
+            log.warn("Cannot delete spool segment {}: {}", segment.path, e.getMessage());
+        }
+    }
+
+    private static long sequence(Path path) {
+        String name = path.getFileName().toString();
+        if (!name.startsWith(PREFIX) || !name.endsWith(SUFFIX)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        ScheduledExecutorService current;
+        synchronized (this) {
+            current = executor;
+            executor = null;
+        }
+        if (current == null) {
+            return;
+        }
+        current.shutdown();
+        try {
+            current.awaitTermination(replayIntervalMs * 2, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            segments.forEach(segment -> segment.buffer.force());
+        }
+    }
+
+    private static final class Segment {
+        private final Path path;
+        private final MappedByteBuffer buffer;
+        private int writePosition;
+        private int readPosition;
+        private boolean sealed;
+
+        private Segment(Path path, MappedByteBuffer buffer) {
+            this.path = path;
+            this.buffer = buffer;
+        }
+
+        private boolean fits(int length) {
+            return !sealed && writePosition + HEADER + length <= buffer.capacity();
+        }
+
+        /**
+         * Writes the payload and checksum before the length, so a record is only visible once it
+         * is complete.
+         */
+        private void write(byte[] record) {
+            CRC32 crc = new CRC32();
+            crc.update(record);
+            buffer.put(writePosition + HEADER, record);
+            buffer.putInt(writePosition + 4, (int) crc.getValue());
+            buffer.putInt(writePosition, record.length);
+            writePosition += HEADER + record.length;
+        }
+    }
+
+    private record Batch(Segment segment, int end, List<EndpointHit> hits) {
+    }
+}
@@ -0,0 +1,51 @@
+package ru.practicum.statsclient;
+
+import ru.practicum.statsdto.ViewStats;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded LRU of the last view counts received from the stats server, keyed by uri and the
+ * unique flag. Used as a fallback when the server cannot be reached.
+ */
+class LastKnownViews {
+    private final Map<String, ViewStats> views;
+
+    LastKnownViews(int maxEntries) {
+        this.views = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ViewStats> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    synchronized void remember(List<ViewStats> stats, boolean unique) {
+        for (ViewStats viewStats : stats) {
+            if (viewStats.getUri() != null) {
+                views.put(key(viewStats.getUri(), unique), viewStats);
+            }
+        }
+    }
+
+    synchronized List<ViewStats> lookup(List<String> uris, boolean unique) {
+        List<ViewStats> result = new ArrayList<>();
+        if (uris == null) {
+            return result;
+        }
+        for (String uri : uris) {
+            ViewStats known = views.get(key(uri, unique));
+            if (known != null) {
+                result.add(new ViewStats(known.getApp(), known.getUri(), known.getHits(), true));
+            }
+        }
+        return result;
+    }
+
+    private static String key(String uri, boolean unique) {
+        return (unique ? "u:" : "a:") + uri;
+    }
+}
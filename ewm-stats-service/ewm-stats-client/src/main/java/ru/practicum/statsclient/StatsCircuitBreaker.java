@@ -0,0 +1,131 @@
+package ru.practicum.statsclient;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.UncheckedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Circuit breaker around calls to the stats server. After {@code failure-threshold} consecutive
+ * failures the breaker opens and calls fail immediately for {@code open-ms}; then a single probe
+ * call is let through (half-open) and its outcome closes or re-opens the breaker.
+ * <p>
+ * Only server errors (5xx) and I/O errors, which include the transport's connect and read
+ * timeouts, are failures; they are rethrown as {@link StatsUnavailableException}. Any other
+ * exception, such as a 4xx, shows the server is answering, so it counts as a success and is
+ * rethrown unchanged. Calls run on the caller's thread and are bounded by the request factory's
+ * {@code stats-client.http.*-timeout-ms} settings.
+ */
+@Component
+public class StatsCircuitBreaker {
+    private final boolean enabled;
+    private final int failureThreshold;
+    private final long openNanos;
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final Counter successes;
+    private final Counter failures;
+    private final Counter rejected;
+    private final Counter fallbacks;
+    private volatile long openedAt;
+
+    public StatsCircuitBreaker(@Value("${stats-client.breaker.enabled:true}") boolean enabled,
+                               @Value("${stats-client.breaker.failure-threshold:5}") int failureThreshold,
+                               @Value("${stats-client.breaker.open-ms:10000}") long openMs,
+                               ObjectProvider<MeterRegistry> meterRegistry) {
+        this.enabled = enabled;
+        this.failureThreshold = failureThreshold;
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMs);
+
+        MeterRegistry registry = meterRegistry.getIfAvailable(SimpleMeterRegistry::new);
+        Gauge.builder("stats.client.breaker.state", state, current -> current.get().ordinal())
+                .description("Stats circuit breaker state: 0 closed, 1 open, 2 half-open")
+                .register(registry);
+        this.successes = registry.counter("stats.client.calls", "outcome", "success");
+        this.failures = registry.counter("stats.client.calls", "outcome", "failure");
+        this.rejected = registry.counter("stats.client.calls", "outcome", "rejected");
+        this.fallbacks = registry.counter("stats.client.fallbacks");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    public <T> T call(Supplier<T> call) {
+        if (!enabled) {
+            return call.get();
+        }
+        if (!tryAcquire()) {
+            rejected.increment();
+            throw new StatsUnavailableException("Stats server circuit is open");
+        }
+        T result;
+        try {
+            result = call.get();
+        } catch (RuntimeException e) {
+            if (!isFailure(e)) {
+                onSuccess();
+                throw e;
+            }
+            onFailure();
+            throw new StatsUnavailableException("Stats server call failed", e);
+        }
+        onSuccess();
+        return result;
+    }
+
+    static boolean isFailure(RuntimeException e) {
+        return e instanceof ResourceAccessException || e instanceof HttpServerErrorException
+                || e instanceof UncheckedIOException;
+    }
+
+    public void recordFallback() {
+        fallbacks.increment();
+    }
+
+    private boolean tryAcquire() {
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return true;
+        }
+        if (current == State.OPEN && System.nanoTime() - openedAt >= openNanos) {
+            return state.compareAndSet(State.OPEN, State.HALF_OPEN);
+        }
+        return false;
+    }
+
+    private void onSuccess() {
+        successes.increment();
+        consecutiveFailures.set(0);
+        state.set(State.CLOSED);
+    }
+
+    private void onFailure() {
+        failures.increment();
+        if (state.get() == State.HALF_OPEN || consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            openedAt = System.nanoTime();
+            state.set(State.OPEN);
+        }
+    }
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+}
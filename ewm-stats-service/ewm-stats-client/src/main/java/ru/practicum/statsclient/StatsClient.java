@@ -1,41 +1,311 @@
 package ru.practicum.statsclient;
 
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 import ru.practicum.statsdto.EndpointHit;
+import ru.practicum.statsdto.HitBatchResult;
+import ru.practicum.statsdto.StatsQuery;
+import ru.practicum.statsdto.StatsWireFormat;
+import ru.practicum.statsdto.TimeSeriesPoint;
 import ru.practicum.statsdto.ViewStats;
 
+import java.net.URI;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
 
+@Slf4j
 @Component
 public class StatsClient {
     private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final MediaType WIRE_FORMAT = MediaType.parseMediaType(StatsWireFormat.MEDIA_TYPE_VALUE);
     private final RestTemplate restTemplate;
     private final String baseUrl;
+    private final HitBatcher hitBatcher;
+    private final StatsCircuitBreaker breaker;
+    private final LastKnownViews lastKnownViews;
+    private final StatsRequestCoalescer coalescer;
+    private final HitSpool spool;
+    private final UdpHitSender udpSender;
+    private final int hitAttempts;
+    private final boolean binary;
 
-    public StatsClient(@Value("${stats-client.service-url}") String baseUrl) {
+    public StatsClient(@Value("${stats-client.service-url}") String baseUrl,
+                       @Qualifier("statsRestTemplate") RestTemplate restTemplate,
+                       HitBatcher hitBatcher,
+                       StatsCircuitBreaker breaker,
+                       StatsRequestCoalescer coalescer,
+                       HitSpool spool,
+                       UdpHitSender udpSender,
+                       @Value("${stats-client.breaker.last-known-size:10000}") int lastKnownSize,
+                       @Value("${stats-client.retry.hit-attempts:3}") int hitAttempts,
+                       @Value("${stats-client.wire-format:json}") String wireFormat) {
         this.baseUrl = baseUrl;
-        this.restTemplate = new RestTemplateBuilder().build();
+        this.restTemplate = restTemplate;
+        this.hitBatcher = hitBatcher;
+        this.breaker = breaker;
+        this.coalescer = coalescer;
+        this.spool = spool;
+        this.udpSender = udpSender;
+        this.lastKnownViews = new LastKnownViews(lastKnownSize);
+        this.hitAttempts = Math.max(1, hitAttempts);
+        this.binary = "binary".equalsIgnoreCase(wireFormat);
     }
 
+    @PostConstruct
+    public void startHitBatcher() {
+        hitBatcher.start(udpSender.isEnabled() ? udpSender::send : this::shipOrSpool);
+        spool.start(this::saveHits);
+    }
+
+    /**
+     * Records a hit. Every hit gets a {@code hitId} before it is sent, so the stats server stores it
+     * once however many times it is resent; failed or timed out sends are retried up to
+     * {@code hit-attempts} times. Hits that still could not be sent go to the {@link HitSpool}
+     * when it is enabled and are replayed later; a hit the server rejects with a client error
+     * other than 429 is logged and counted as dropped instead. With the {@code binary} wire format
+     * a single hit goes out as a batch of one, so a rejected hit is logged instead of thrown. When
+     * the UDP channel is enabled hits are sent through {@link UdpHitSender} instead, without
+     * retries or spooling.
+     */
     public void saveHit(EndpointHit hit) {
+        assignHitId(hit);
+        if (hitBatcher.isEnabled()) {
+            hitBatcher.submit(hit);
+            return;
+        }
+        if (udpSender.isEnabled()) {
+            udpSender.send(List.of(hit));
+            return;
+        }
+        try {
+            sendWithRetry(() -> {
+                if (binary) {
+                    postHits(List.of(hit));
+                } else {
+                    postHit(hit);
+                }
+            });
+        } catch (StatsUnavailableException | RestClientException e) {
+            if (isPermanent(e)) {
+                spool.drop(List.of(hit), e);
+            } else if (spool.append(List.of(hit))) {
+                log.debug("Spooled hit for {}: {}", hit.getUri(), e.getMessage());
+            } else if (e instanceof StatsUnavailableException) {
+                log.warn("Hit for {} was not recorded: {}", hit.getUri(), e.getMessage());
+            } else {
+                throw e;
+            }
+        }
+    }
+
+    public void saveHits(List<EndpointHit> hits) {
+        hits.forEach(this::assignHitId);
+        sendWithRetry(() -> postHits(hits));
+    }
+
+    private void shipOrSpool(List<EndpointHit> hits) {
+        try {
+            saveHits(hits);
+        } catch (StatsUnavailableException | RestClientException e) {
+            if (isPermanent(e)) {
+                spool.drop(hits, e);
+                return;
+            }
+            if (!spool.append(hits)) {
+                throw e;
+            }
+            log.debug("Spooled {} hits: {}", hits.size(), e.getMessage());
+        }
+    }
+
+    private void assignHitId(EndpointHit hit) {
+        if (hit.getHitId() == null) {
+            hit.setHitId(UUID.randomUUID());
+        }
+    }
+
+    private void sendWithRetry(Runnable send) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                breaker.call(() -> {
+                    send.run();
+                    return null;
+                });
+                return;
+            } catch (StatsUnavailableException | RestClientException e) {
+                if (isPermanent(e) || attempt >= hitAttempts || breaker.getState() == StatsCircuitBreaker.State.OPEN) {
+                    throw e;
+                }
+                log.debug("Resending hits after failed attempt {}: {}", attempt, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * A 4xx other than 429 means the server rejected the request itself, so sending it again
+     * cannot succeed.
+     */
+    public static boolean isPermanent(RuntimeException e) {
+        return e instanceof HttpClientErrorException && !(e instanceof HttpClientErrorException.TooManyRequests);
+    }
+
+    private void postHits(List<EndpointHit> hits) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(binary ? WIRE_FORMAT : MediaType.APPLICATION_JSON);
+        headers.setAccept(List.of(MediaType.APPLICATION_JSON));
+        HttpEntity<?> request = binary ?
+                new HttpEntity<>(StatsWireFormat.encodeHits(hits), headers) :
+                new HttpEntity<>(hits, headers);
+        HitBatchResult result = restTemplate.postForObject(baseUrl + "/hits", request, HitBatchResult.class);
+        if (result != null && result.getRejected() != null && !result.getRejected().isEmpty()) {
+            log.warn("Stats server rejected {} of {} hits: {}", result.getRejected().size(), hits.size(),
+                    result.getRejected());
+        }
+    }
+
+    private void postHit(EndpointHit hit) {
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_JSON);
         HttpEntity<EndpointHit> request = new HttpEntity<>(hit, headers);
         restTemplate.postForEntity(baseUrl + "/hit", request, Void.class);
     }
 
+    /**
+     * Fetches view counts through the circuit breaker. If the stats server fails, times out or
+     * the breaker is open, the last known counts for the requested uris are returned marked
+     * {@code stale}; uris never seen before are left out so callers keep their own value.
+     */
     public List<ViewStats> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique) {
+        return coalescer.execute(start, end, uris, unique,
+                () -> withFallback(uris, unique, () -> fetchStats(start, end, uris, unique)));
+    }
+
+    /**
+     * Same as {@link #getStats(LocalDateTime, LocalDateTime, List, boolean)}, but sends the uris
+     * in a {@code POST /stats/query} body, so the request size does not grow the url.
+     */
+    public List<ViewStats> queryStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique) {
+        StatsQuery query = StatsQuery.builder()
+                .start(start.format(FORMATTER))
+                .end(end.format(FORMATTER))
+                .uris(uris)
+                .unique(unique)
+                .build();
+        return coalescer.execute(start, end, uris, unique,
+                () -> withFallback(uris, unique, () -> postQuery(query)));
+    }
+
+    /**
+     * Up to {@code k} most visited uris of the range, busiest first. Returns an empty list when
+     * the stats server is unavailable.
+     */
+    public List<ViewStats> getTopStats(LocalDateTime start, LocalDateTime end, int k, boolean unique) {
+        String url = baseUrl + "/stats/top?start=" + URLEncoder.encode(start.format(FORMATTER), StandardCharsets.UTF_8)
+                + "&end=" + URLEncoder.encode(end.format(FORMATTER), StandardCharsets.UTF_8)
+                + "&k=" + k + "&unique=" + unique;
+        return orEmpty("Top stats", () -> getViewStats(URI.create(url)));
+    }
+
+    /**
+     * Hits of {@code uri} per {@code interval} ({@code minute}, {@code hour} or {@code day}) bucket.
+     * Returns an empty list when the stats server is unavailable.
+     */
+    public List<TimeSeriesPoint> getTimeSeries(String uri, LocalDateTime start, LocalDateTime end, String interval,
+                                               boolean unique) {
+        String url = baseUrl + "/stats/timeseries?uri=" + URLEncoder.encode(uri, StandardCharsets.UTF_8)
+                + "&start=" + URLEncoder.encode(start.format(FORMATTER), StandardCharsets.UTF_8)
+                + "&end=" + URLEncoder.encode(end.format(FORMATTER), StandardCharsets.UTF_8)
+                + "&interval=" + interval + "&unique=" + unique;
+        Supplier<List<TimeSeriesPoint>> call = () -> {
+            TimeSeriesPoint[] body = restTemplate.getForObject(URI.create(url), TimeSeriesPoint[].class);
+            return body == null ? List.of() : List.of(body);
+        };
+        return orEmpty("Time series", call);
+    }
+
+    /**
+     * Runs {@code call} through the circuit breaker and returns an empty list when the stats
+     * server is unavailable. Unlike {@link #withFallback}, the answer is not remembered: it is
+     * not a per-uri count of the caller's range and must not replace the last known views.
+     */
+    private <T> List<T> orEmpty(String what, Supplier<List<T>> call) {
+        if (!breaker.isEnabled()) {
+            return call.get();
+        }
+        try {
+            return breaker.call(call);
+        } catch (StatsUnavailableException e) {
+            breaker.recordFallback();
+            log.warn("{} unavailable: {}", what, e.getMessage());
+            return List.of();
+        }
+    }
+
+    private List<ViewStats> withFallback(List<String> uris, boolean unique, Supplier<List<ViewStats>> call) {
+        if (!breaker.isEnabled()) {
+            return call.get();
+        }
+        try {
+            List<ViewStats> stats = breaker.call(call);
+            lastKnownViews.remember(stats, unique);
+            return stats;
+        } catch (StatsUnavailableException e) {
+            breaker.recordFallback();
+            log.warn("Serving last known views: {}", e.getMessage());
+            return lastKnownViews.lookup(uris, unique);
+        }
+    }
+
+    private List<ViewStats> postQuery(StatsQuery query) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        if (binary) {
+            headers.setAccept(List.of(WIRE_FORMAT));
+            HttpEntity<StatsQuery> request = new HttpEntity<>(query, headers);
+            byte[] body = restTemplate.postForObject(baseUrl + "/stats/query", request, byte[].class);
+            return body == null ? List.of() : StatsWireFormat.decodeViewStats(body);
+        }
+        HttpEntity<StatsQuery> request = new HttpEntity<>(query, headers);
+        ViewStats[] body = restTemplate.postForObject(baseUrl + "/stats/query", request, ViewStats[].class);
+        return body == null ? List.of() : List.of(body);
+    }
+
+    /**
+     * {@code ViewStats} rows of a GET, asked for in the {@code binary} wire format when it is
+     * configured and in JSON otherwise.
+     */
+    private List<ViewStats> getViewStats(URI uri) {
+        if (binary) {
+            byte[] body = restTemplate.exchange(uri, HttpMethod.GET, wireFormatRequest(), byte[].class).getBody();
+            return body == null ? List.of() : StatsWireFormat.decodeViewStats(body);
+        }
+        ViewStats[] body = restTemplate.getForObject(uri, ViewStats[].class);
+        return body == null ? List.of() : List.of(body);
+    }
+
+    private HttpEntity<Void> wireFormatRequest() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(List.of(WIRE_FORMAT));
+        return new HttpEntity<>(headers);
+    }
+
+    private List<ViewStats> fetchStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique) {
         StringBuilder url = new StringBuilder(baseUrl + "/stats?");
 
         try {
@@ -55,8 +325,14 @@ public class StatsClient {
             throw new RuntimeException("Error encoding URL parameters", e);
         }
 
+        if (binary) {
+            byte[] body = restTemplate.exchange(url.toString(), HttpMethod.GET, wireFormatRequest(), byte[].class)
+                    .getBody();
+            return body == null ? List.of() : StatsWireFormat.decodeViewStats(body);
+        }
         ResponseEntity<ViewStats[]> response = restTemplate.getForEntity(url.toString(), ViewStats[].class);
-        return List.of(response.getBody());
+        ViewStats[] body = response.getBody();
+        return body == null ? List.of() : List.of(body);
     }
 
     public List<ViewStats> getStats(LocalDateTime start, LocalDateTime end) {
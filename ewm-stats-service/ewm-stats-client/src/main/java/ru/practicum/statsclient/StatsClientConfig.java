@@ -1,16 +1,81 @@
 package ru.practicum.statsclient;
 
-import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+/**
+ * Transport used by {@link StatsClient}. The default {@code pooled} transport keeps up to
+ * {@code max-connections} keep-alive connections to the stats server in an Apache HttpClient pool
+ * and reports the pool through Micrometer; {@code jdk} uses the JDK {@link HttpClient}, which can
+ * negotiate HTTP/2 and multiplex all calls over one connection.
+ */
 @Configuration
 public class StatsClientConfig {
 
     @Bean
-    @ConditionalOnMissingBean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public ClientHttpRequestFactory statsRequestFactory(@Value("${stats-client.http.transport:pooled}") String transport,
+                                                        @Value("${stats-client.http.max-connections:50}") int maxConnections,
+                                                        @Value("${stats-client.http.connect-timeout-ms:1000}") long connectTimeoutMs,
+                                                        @Value("${stats-client.http.read-timeout-ms:3000}") long readTimeoutMs,
+                                                        @Value("${stats-client.http.keep-alive-ms:30000}") long keepAliveMs,
+                                                        @Value("${stats-client.http.http2:false}") boolean http2,
+                                                        ObjectProvider<MeterRegistry> meterRegistry) {
+        if ("jdk".equalsIgnoreCase(transport)) {
+            HttpClient client = HttpClient.newBuilder()
+                    .version(http2 ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                    .build();
+            JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(client);
+            factory.setReadTimeout(Duration.ofMillis(readTimeoutMs));
+            return factory;
+        }
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnections)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                        .setSocketTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                        .setTimeToLive(TimeValue.ofMilliseconds(keepAliveMs))
+                        .build())
+                .build();
+        CloseableHttpClient client = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                        .setResponseTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                        .build())
+                .setKeepAliveStrategy((response, context) -> TimeValue.ofMilliseconds(keepAliveMs))
+                .evictIdleConnections(TimeValue.ofMilliseconds(keepAliveMs))
+                .evictExpiredConnections()
+                .build();
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, "stats-client")
+                .bindTo(meterRegistry.getIfAvailable(SimpleMeterRegistry::new));
+        return new HttpComponentsClientHttpRequestFactory(client);
+    }
+
+    @Bean
+    public RestTemplate statsRestTemplate(@Qualifier("statsRequestFactory") ClientHttpRequestFactory requestFactory) {
+        return new RestTemplate(requestFactory);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,85 @@
+package ru.practicum.statsclient;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.statsdto.ViewStats;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight for stats lookups: while a request for the same uris, unique flag and time
+ * window is in flight, further callers wait for it and share its result instead of sending
+ * their own. Window bounds are rounded down to {@code window-ms}, so requests that differ
+ * only by the current second still coalesce.
+ */
+@Component
+public class StatsRequestCoalescer {
+    private final boolean enabled;
+    private final long windowMs;
+    private final Map<StatsKey, CompletableFuture<List<ViewStats>>> inFlight = new ConcurrentHashMap<>();
+    private final Counter leaders;
+    private final Counter deduplicated;
+
+    public StatsRequestCoalescer(@Value("${stats-client.single-flight.enabled:true}") boolean enabled,
+                                 @Value("${stats-client.single-flight.window-ms:1000}") long windowMs,
+                                 ObjectProvider<MeterRegistry> meterRegistry) {
+        this.enabled = enabled;
+        this.windowMs = Math.max(1, windowMs);
+
+        MeterRegistry registry = meterRegistry.getIfAvailable(SimpleMeterRegistry::new);
+        Gauge.builder("stats.client.single-flight.in-flight", inFlight, Map::size)
+                .description("Distinct stats lookups currently in flight")
+                .register(registry);
+        this.leaders = registry.counter("stats.client.single-flight.calls", "role", "leader");
+        this.deduplicated = registry.counter("stats.client.single-flight.calls", "role", "follower");
+    }
+
+    public List<ViewStats> execute(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique,
+                                   Supplier<List<ViewStats>> call) {
+        if (!enabled) {
+            return call.get();
+        }
+        List<String> sortedUris = uris == null ? List.of() : uris.stream().sorted().toList();
+        StatsKey key = new StatsKey(bucket(start), bucket(end), sortedUris, unique);
+        CompletableFuture<List<ViewStats>> flight = new CompletableFuture<>();
+        CompletableFuture<List<ViewStats>> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            deduplicated.increment();
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        leaders.increment();
+        try {
+            List<ViewStats> result = List.copyOf(call.get());
+            flight.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    private long bucket(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli() / windowMs;
+    }
+
+    private record StatsKey(long start, long end, List<String> uris, boolean unique) {
+    }
+}
@@ -0,0 +1,112 @@
+package ru.practicum.statsclient;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.statsdto.EndpointHit;
+import ru.practicum.statsdto.StatsWireFormat;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.List;
+
+/**
+ * Sends hits to the stats server's UDP port, packed into {@link StatsWireFormat} datagrams of at
+ * most {@code max-datagram-size} bytes. Sends never block and nothing is acknowledged: a datagram
+ * the socket cannot take right away, or one the network loses, is gone, so this is only meant for
+ * hit sources where losing some hits is cheaper than waiting for the server.
+ */
+@Slf4j
+@Component
+public class UdpHitSender {
+    private final boolean enabled;
+    private final String host;
+    private final int port;
+    private final int maxDatagramSize;
+    private final Counter sent;
+    private final Counter dropped;
+    private volatile DatagramChannel channel;
+
+    public UdpHitSender(@Value("${stats-client.udp.enabled:false}") boolean enabled,
+                        @Value("${stats-client.udp.host:localhost}") String host,
+                        @Value("${stats-client.udp.port:9091}") int port,
+                        @Value("${stats-client.udp.max-datagram-size:1400}") int maxDatagramSize,
+                        ObjectProvider<MeterRegistry> meterRegistry) {
+        this.enabled = enabled;
+        this.host = host;
+        this.port = port;
+        this.maxDatagramSize = maxDatagramSize;
+
+        MeterRegistry registry = meterRegistry.getIfAvailable(SimpleMeterRegistry::new);
+        this.sent = registry.counter("stats.client.udp.datagrams.sent");
+        this.dropped = registry.counter("stats.client.udp.datagrams.dropped");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void send(List<EndpointHit> hits) {
+        DatagramChannel current = channel();
+        if (current == null) {
+            dropped.increment();
+            return;
+        }
+        for (byte[] datagram : StatsWireFormat.packHits(hits, maxDatagramSize)) {
+            if (datagram.length > maxDatagramSize) {
+                dropped.increment();
+                continue;
+            }
+            try {
+                if (current.write(ByteBuffer.wrap(datagram)) == 0) {
+                    dropped.increment();
+                } else {
+                    sent.increment();
+                }
+            } catch (IOException e) {
+                dropped.increment();
+                log.debug("Failed to send hits over UDP: {}", e.getMessage());
+            }
+        }
+    }
+
+    private DatagramChannel channel() {
+        DatagramChannel current = channel;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (channel == null) {
+                try {
+                    DatagramChannel opened = DatagramChannel.open();
+                    opened.configureBlocking(false);
+                    opened.connect(new InetSocketAddress(host, port));
+                    channel = opened;
+                } catch (IOException e) {
+                    log.warn("Cannot open UDP channel to {}:{}: {}", host, port, e.getMessage());
+                }
+            }
+            return channel;
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Failed to close UDP channel: {}", e.getMessage());
+        }
+        channel = null;
+    }
+}
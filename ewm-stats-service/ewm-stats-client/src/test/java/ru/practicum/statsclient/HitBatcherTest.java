@@ -0,0 +1,95 @@
+package ru.practicum.statsclient;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import ru.practicum.statsdto.EndpointHit;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HitBatcherTest {
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final List<List<EndpointHit>> batches = new CopyOnWriteArrayList<>();
+    private HitBatcher batcher;
+
+    private HitBatcher createBatcher(int capacity, int batchSize, long flushIntervalMs) {
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("meterRegistry", registry);
+        batcher = new HitBatcher(true, capacity, batchSize, flushIntervalMs,
+                beanFactory.getBeanProvider(MeterRegistry.class));
+        return batcher;
+    }
+
+    private EndpointHit hit(int i) {
+        return EndpointHit.builder()
+                .app("test-app")
+                .uri("/events/" + i)
+                .ip("192.168.1.1")
+                .timestamp("2023-01-01 12:00:00")
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (batcher != null) {
+            batcher.close();
+        }
+    }
+
+    @Test
+    void flush_ShouldShipQueuedHitsInBatches() {
+        HitBatcher batcher = createBatcher(100, 2, 60_000);
+        batcher.start(batch -> batches.add(List.copyOf(batch)));
+        for (int i = 0; i < 5; i++) {
+            batcher.submit(hit(i));
+        }
+
+        batcher.flush();
+
+        assertEquals(5, batches.stream().mapToInt(List::size).sum());
+        assertTrue(batches.stream().allMatch(batch -> batch.size() <= 2));
+        assertEquals(0, batcher.getQueueDepth());
+        assertEquals(5.0, registry.counter("stats.client.hits.shipped").count());
+    }
+
+    @Test
+    void submit_WhenQueueIsFull_ShouldDropAndCount() {
+        HitBatcher batcher = createBatcher(2, 100, 60_000);
+
+        assertTrue(batcher.submit(hit(1)));
+        assertTrue(batcher.submit(hit(2)));
+        assertFalse(batcher.submit(hit(3)));
+
+        assertEquals(1.0, registry.counter("stats.client.hits.dropped").count());
+        assertEquals(2.0, registry.get("stats.client.queue.depth").gauge().value());
+    }
+
+    @Test
+    void flush_WhenShipperFails_ShouldCountFailedHits() {
+        HitBatcher batcher = createBatcher(100, 10, 60_000);
+        batcher.start(batch -> {
+            throw new IllegalStateException("stats server is down");
+        });
+        batcher.submit(hit(1));
+
+        assertDoesNotThrow(batcher::flush);
+
+        assertEquals(1.0, registry.counter("stats.client.hits.failed").count());
+    }
+
+    @Test
+    void close_ShouldShipRemainingHits() {
+        HitBatcher batcher = createBatcher(100, 10, 60_000);
+        batcher.start(batch -> batches.add(List.copyOf(batch)));
+        batcher.submit(hit(1));
+
+        batcher.close();
+
+        assertEquals(1, batches.size());
+    }
+}
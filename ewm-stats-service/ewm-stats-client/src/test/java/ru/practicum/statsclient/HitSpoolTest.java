@@ -0,0 +1,189 @@
+package ru.practicum.statsclient;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import ru.practicum.statsdto.EndpointHit;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HitSpoolTest {
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final List<EndpointHit> shipped = new CopyOnWriteArrayList<>();
+    private final List<HitSpool> spools = new ArrayList<>();
+
+    @TempDir
+    Path dir;
+
+    private HitSpool createSpool(int segmentSize, int maxSegments) {
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("meterRegistry", registry);
+        HitSpool spool = new HitSpool(true, dir.toString(), segmentSize, maxSegments, 3, 60_000, false,
+                beanFactory.getBeanProvider(MeterRegistry.class));
+        spools.add(spool);
+        return spool;
+    }
+
+    private EndpointHit hit(int i) {
+        return EndpointHit.builder()
+                .app("test-app")
+                .uri("/events/" + i)
+                .ip("192.168.1.1")
+                .timestamp("2023-01-01 12:00:00")
+                .hitId(UUID.randomUUID())
+                .build();
+    }
+
+    private List<String> uris(List<EndpointHit> hits) {
+        return hits.stream().map(EndpointHit::getUri).toList();
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.sorted().toList();
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        spools.forEach(HitSpool::close);
+    }
+
+    @Test
+    void replay_ShouldShipSpooledHitsInOrderAndDeleteSegments() throws IOException {
+        HitSpool spool = createSpool(256, 10);
+        spool.start(shipped::addAll);
+        List<EndpointHit> hits = List.of(hit(1), hit(2), hit(3), hit(4), hit(5));
+
+        assertTrue(spool.append(hits));
+        assertTrue(segments().size() > 1);
+
+        spool.replay();
+
+        assertEquals(uris(hits), uris(shipped));
+        assertEquals(hits.getFirst().getHitId(), shipped.getFirst().getHitId());
+        assertEquals(hits.getFirst().getTimestamp(), shipped.getFirst().getTimestamp());
+        assertEquals(0, spool.getPending());
+        assertTrue(segments().isEmpty());
+        assertEquals(5.0, registry.counter("stats.client.spool.replayed").count());
+    }
+
+    @Test
+    void replay_WhenShipperFails_ShouldKeepHitsForNextAttempt() {
+        HitSpool spool = createSpool(4096, 10);
+        boolean[] down = {true};
+        spool.start(batch -> {
+            if (down[0]) {
+                throw new StatsUnavailableException("stats server is down");
+            }
+            shipped.addAll(batch);
+        });
+        spool.append(List.of(hit(1), hit(2)));
+
+        spool.replay();
+        assertEquals(2, spool.getPending());
+
+        down[0] = false;
+        spool.replay();
+        assertEquals(List.of("/events/1", "/events/2"), uris(shipped));
+    }
+
+    @Test
+    void replay_WhenServerRejectsBatch_ShouldDropItAndShipTheRest() {
+        HitSpool spool = createSpool(4096, 10);
+        spool.start(batch -> {
+            if (uris(batch).contains("/events/1")) {
+                throw new HttpClientErrorException(HttpStatus.BAD_REQUEST);
+            }
+            shipped.addAll(batch);
+        });
+        spool.append(List.of(hit(1), hit(2), hit(3), hit(4)));
+
+        spool.replay();
+
+        assertEquals(List.of("/events/4"), uris(shipped));
+        assertEquals(0, spool.getPending());
+        assertEquals(3.0, registry.counter("stats.client.spool.dropped").count());
+        assertEquals(1.0, registry.counter("stats.client.spool.replayed").count());
+    }
+
+    @Test
+    void start_ShouldRecoverHitsSpooledBeforeRestart() {
+        HitSpool first = createSpool(4096, 10);
+        first.start(batch -> {
+            throw new StatsUnavailableException("stats server is down");
+        });
+        first.append(List.of(hit(1), hit(2)));
+        first.close();
+
+        HitSpool second = createSpool(4096, 10);
+        second.start(shipped::addAll);
+        second.append(List.of(hit(3)));
+
+        assertEquals(3, second.getPending());
+        second.replay();
+        assertEquals(List.of("/events/1", "/events/2", "/events/3"), uris(shipped));
+    }
+
+    @Test
+    void start_WhenRecordIsDamaged_ShouldSkipRestOfSegment() throws IOException {
+        HitSpool first = createSpool(4096, 10);
+        first.start(batch -> {
+            throw new StatsUnavailableException("stats server is down");
+        });
+        first.append(List.of(hit(1), hit(2)));
+        first.close();
+        Path segment = segments().getFirst();
+        int secondRecord;
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            var buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, 4096);
+            secondRecord = 8 + buffer.getInt(0);
+            buffer.put(secondRecord + 20, (byte) (buffer.get(secondRecord + 20) ^ 0xFF));
+            buffer.force();
+        }
+
+        HitSpool second = createSpool(4096, 10);
+        second.start(shipped::addAll);
+
+        assertEquals(1, second.getPending());
+        second.replay();
+        assertEquals(List.of("/events/1"), uris(shipped));
+        assertEquals(1.0, registry.counter("stats.client.spool.corrupt").count());
+    }
+
+    @Test
+    void append_WhenSegmentCapReached_ShouldDropAndCount() {
+        HitSpool spool = createSpool(128, 1);
+        spool.start(shipped::addAll);
+
+        spool.append(List.of(hit(1), hit(2), hit(3)));
+
+        assertEquals(1, spool.getPending());
+        assertEquals(2.0, registry.counter("stats.client.spool.dropped").count());
+    }
+
+    @Test
+    void append_WhenDisabled_ShouldReturnFalse() {
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        HitSpool spool = new HitSpool(false, dir.toString(), 4096, 10, 10, 60_000, false,
+                beanFactory.getBeanProvider(MeterRegistry.class));
+
+        assertFalse(spool.append(List.of(hit(1))));
+    }
+}
@@ -0,0 +1,94 @@
+package ru.practicum.statsclient;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.net.SocketTimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatsCircuitBreakerTest {
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    private StatsCircuitBreaker createBreaker(int failureThreshold, long openMs) {
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("meterRegistry", registry);
+        return new StatsCircuitBreaker(true, failureThreshold, openMs, beanFactory.getBeanProvider(MeterRegistry.class));
+    }
+
+    private static String fail() {
+        throw new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    @Test
+    void call_AfterConsecutiveFailures_ShouldOpenAndRejectWithoutCalling() {
+        StatsCircuitBreaker breaker = createBreaker(2, 60_000);
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThrows(StatsUnavailableException.class, () -> breaker.call(StatsCircuitBreakerTest::fail));
+        assertEquals(StatsCircuitBreaker.State.CLOSED, breaker.getState());
+        assertThrows(StatsUnavailableException.class, () -> breaker.call(StatsCircuitBreakerTest::fail));
+        assertEquals(StatsCircuitBreaker.State.OPEN, breaker.getState());
+
+        assertThrows(StatsUnavailableException.class, () -> breaker.call(calls::incrementAndGet));
+        assertEquals(0, calls.get());
+        assertEquals(1.0, registry.counter("stats.client.calls", "outcome", "rejected").count());
+        assertEquals(1.0, registry.get("stats.client.breaker.state").gauge().value());
+    }
+
+    @Test
+    void call_WhenOpenPeriodElapsed_ShouldLetProbeThroughAndClose() throws InterruptedException {
+        StatsCircuitBreaker breaker = createBreaker(1, 50);
+        assertThrows(StatsUnavailableException.class, () -> breaker.call(StatsCircuitBreakerTest::fail));
+        assertEquals(StatsCircuitBreaker.State.OPEN, breaker.getState());
+
+        Thread.sleep(80);
+
+        assertEquals("ok", breaker.call(() -> "ok"));
+        assertEquals(StatsCircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void call_WhenProbeFails_ShouldReopen() throws InterruptedException {
+        StatsCircuitBreaker breaker = createBreaker(3, 50);
+        for (int i = 0; i < 3; i++) {
+            assertThrows(StatsUnavailableException.class, () -> breaker.call(StatsCircuitBreakerTest::fail));
+        }
+
+        Thread.sleep(80);
+
+        assertThrows(StatsUnavailableException.class, () -> breaker.call(StatsCircuitBreakerTest::fail));
+        assertEquals(StatsCircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void call_WhenTransportTimesOut_ShouldCountFailure() {
+        StatsCircuitBreaker breaker = createBreaker(1, 60_000);
+
+        assertThrows(StatsUnavailableException.class, () -> breaker.call(() -> {
+            throw new ResourceAccessException("Read timed out", new SocketTimeoutException("Read timed out"));
+        }));
+
+        assertEquals(StatsCircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(1.0, registry.counter("stats.client.calls", "outcome", "failure").count());
+    }
+
+    @Test
+    void call_WhenServerRejectsRequest_ShouldRethrowWithoutCountingFailure() {
+        StatsCircuitBreaker breaker = createBreaker(1, 60_000);
+
+        assertThrows(HttpClientErrorException.class, () -> breaker.call(() -> {
+            throw new HttpClientErrorException(HttpStatus.BAD_REQUEST);
+        }));
+
+        assertEquals(StatsCircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(0.0, registry.counter("stats.client.calls", "outcome", "failure").count());
+    }
+}
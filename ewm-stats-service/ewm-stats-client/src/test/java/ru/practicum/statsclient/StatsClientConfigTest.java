@@ -0,0 +1,77 @@
+package ru.practicum.statsclient;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatsClientConfigTest {
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final StatsClientConfig config = new StatsClientConfig();
+    private HttpServer server;
+
+    private ClientHttpRequestFactory createFactory(String transport) {
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("meterRegistry", registry);
+        return config.statsRequestFactory(transport, 5, 1000, 3000, 30_000, false,
+                beanFactory.getBeanProvider(MeterRegistry.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void statsRequestFactory_Pooled_ShouldReportPoolMetrics() {
+        ClientHttpRequestFactory factory = createFactory("pooled");
+
+        assertInstanceOf(HttpComponentsClientHttpRequestFactory.class, factory);
+        assertEquals(5.0, registry.get("httpcomponents.httpclient.pool.total.max").gauge().value());
+    }
+
+    @Test
+    void statsRequestFactory_Jdk_ShouldUseJdkHttpClient() {
+        assertInstanceOf(JdkClientHttpRequestFactory.class, createFactory("jdk"));
+    }
+
+    @Test
+    void statsRestTemplate_Pooled_ShouldReuseConnections() throws Exception {
+        Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/stats", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            byte[] body = "[]".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        RestTemplate restTemplate = config.statsRestTemplate(createFactory("pooled"));
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/stats";
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals("[]", restTemplate.getForObject(url, String.class));
+        }
+
+        assertEquals(1, clientPorts.size());
+    }
+}
@@ -0,0 +1,296 @@
+package ru.practicum.statsclient;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+import ru.practicum.statsdto.EndpointHit;
+import ru.practicum.statsdto.StatsWireFormat;
+import ru.practicum.statsdto.TimeSeriesPoint;
+import ru.practicum.statsdto.ViewStats;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.client.ExpectedCount.manyTimes;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.content;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.header;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.jsonPath;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withBadRequest;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+class StatsClientTest {
+    private static final LocalDateTime START = LocalDateTime.of(2023, 1, 1, 0, 0);
+    private static final LocalDateTime END = LocalDateTime.of(2023, 1, 2, 0, 0);
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final RestTemplate restTemplate = new RestTemplate();
+    private MockRestServiceServer server;
+    private StatsCircuitBreaker breaker;
+    private HitSpool spool;
+    private StatsClient client;
+
+    @TempDir
+    Path spoolDir;
+
+    @BeforeEach
+    void setUp() {
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("meterRegistry", registry);
+        ObjectProvider<MeterRegistry> provider = beanFactory.getBeanProvider(MeterRegistry.class);
+        server = MockRestServiceServer.bindTo(restTemplate).ignoreExpectOrder(true).build();
+        breaker = new StatsCircuitBreaker(true, 5, 60_000, provider);
+        spool = new HitSpool(true, spoolDir.toString(), 4096, 4, 100, 60_000, false, provider);
+        client = new StatsClient("http://stats", restTemplate, new HitBatcher(false, 10, 10, 1000, provider),
+                breaker, new StatsRequestCoalescer(true, 1000, provider), spool,
+                new UdpHitSender(false, "localhost", 0, 1400, provider), 100, 3, "json");
+    }
+
+    @AfterEach
+    void tearDown() {
+        spool.close();
+    }
+
+    @Test
+    void getStats_WhenServerFails_ShouldServeLastKnownViewsMarkedStale() {
+        server.expect(requestTo(containsString("/stats?")))
+                .andRespond(withSuccess("[{\"app\":\"ewm\",\"uri\":\"/events/1\",\"hits\":7}]",
+                        MediaType.APPLICATION_JSON));
+        server.expect(manyTimes(), requestTo(containsString("/stats?")))
+                .andRespond(withServerError());
+
+        List<ViewStats> fresh = client.getStats(START, END, List.of("/events/1"), true);
+        List<ViewStats> stale = client.getStats(START, END, List.of("/events/1", "/events/2"), true);
+
+        assertNull(fresh.getFirst().getStale());
+        assertEquals(1, stale.size());
+        assertEquals(7L, stale.getFirst().getHits());
+        assertTrue(stale.getFirst().getStale());
+        assertEquals(1.0, registry.counter("stats.client.fallbacks").count());
+    }
+
+    @Test
+    void getStats_WhenNothingKnown_ShouldReturnEmptyInsteadOfThrowing() {
+        server.expect(manyTimes(), requestTo(containsString("/stats?")))
+                .andRespond(withServerError());
+
+        assertTrue(client.getStats(START, END, List.of("/events/1"), true).isEmpty());
+        assertTrue(client.getStats(START, END).isEmpty());
+    }
+
+    @Test
+    void queryStats_ShouldPostUrisInBody() {
+        server.expect(requestTo("http://stats/stats/query"))
+                .andExpect(method(HttpMethod.POST))
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.start").value("2023-01-01 00:00:00"))
+                .andExpect(jsonPath("$.uris.length()").value(2))
+                .andExpect(jsonPath("$.unique").value(true))
+                .andRespond(withSuccess("[{\"app\":\"ewm\",\"uri\":\"/events/2\",\"hits\":3}]",
+                        MediaType.APPLICATION_JSON));
+
+        List<ViewStats> stats = client.queryStats(START, END, List.of("/events/1", "/events/2"), true);
+
+        assertEquals(1, stats.size());
+        assertEquals(3L, stats.getFirst().getHits());
+        server.verify();
+    }
+
+    @Test
+    void getTopStats_ShouldRequestTopEndpoint() {
+        server.expect(requestTo(containsString("/stats/top?")))
+                .andExpect(method(HttpMethod.GET))
+                .andExpect(requestTo(containsString("k=5&unique=false")))
+                .andRespond(withSuccess("[{\"app\":\"ewm\",\"uri\":\"/events/3\",\"hits\":42}]",
+                        MediaType.APPLICATION_JSON));
+
+        List<ViewStats> top = client.getTopStats(START, END, 5, false);
+
+        assertEquals("/events/3", top.getFirst().getUri());
+        server.verify();
+    }
+
+    @Test
+    void getTopStats_ShouldNotReplaceLastKnownViews() {
+        server.expect(requestTo(containsString("/stats?")))
+                .andRespond(withSuccess("[{\"app\":\"ewm\",\"uri\":\"/events/1\",\"hits\":7}]",
+                        MediaType.APPLICATION_JSON));
+        server.expect(requestTo(containsString("/stats/top?")))
+                .andRespond(withSuccess("[{\"app\":\"ewm\",\"uri\":\"/events/1\",\"hits\":42}]",
+                        MediaType.APPLICATION_JSON));
+        server.expect(manyTimes(), requestTo(containsString("/stats")))
+                .andRespond(withServerError());
+
+        client.getStats(START, END, List.of("/events/1"), true);
+        client.getTopStats(START, END, 5, true);
+        List<ViewStats> stale = client.getStats(START, END, List.of("/events/1"), true);
+
+        assertEquals(7L, stale.getFirst().getHits());
+        assertTrue(client.getTopStats(START, END, 5, true).isEmpty());
+    }
+
+    @Test
+    void saveHit_WhenFirstAttemptFails_ShouldResendWithSameHitId() {
+        EndpointHit hit = EndpointHit.builder()
+                .app("ewm")
+                .uri("/events/1")
+                .ip("10.0.0.1")
+                .timestamp("2023-01-01 12:00:00")
+                .build();
+        server.expect(requestTo("http://stats/hit"))
+                .andExpect(jsonPath("$.hitId").exists())
+                .andRespond(withServerError());
+        server.expect(requestTo("http://stats/hit"))
+                .andExpect(jsonPath("$.hitId").exists())
+                .andRespond(withSuccess());
+
+        client.saveHit(hit);
+
+        assertNotNull(hit.getHitId());
+        server.verify();
+    }
+
+    @Test
+    void saveHits_WhenServerRejectsBatch_ShouldNotResend() {
+        EndpointHit hit = EndpointHit.builder()
+                .app("ewm")
+                .uri("/events/1")
+                .ip("10.0.0.1")
+                .timestamp("2023-01-01 12:00:00")
+                .build();
+        server.expect(requestTo("http://stats/hits")).andRespond(withBadRequest());
+
+        assertThrows(HttpClientErrorException.class, () -> client.saveHits(List.of(hit)));
+
+        server.verify();
+        assertEquals(StatsCircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void saveHits_ShouldKeepExistingHitIds() {
+        UUID hitId = UUID.randomUUID();
+        EndpointHit hit = EndpointHit.builder()
+                .app("ewm")
+                .uri("/events/1")
+                .ip("10.0.0.1")
+                .timestamp("2023-01-01 12:00:00")
+                .hitId(hitId)
+                .build();
+        server.expect(requestTo("http://stats/hits"))
+                .andExpect(jsonPath("$[0].hitId").value(hitId.toString()))
+                .andRespond(withSuccess("{\"accepted\":1,\"rejected\":[]}", MediaType.APPLICATION_JSON));
+
+        client.saveHits(List.of(hit));
+
+        server.verify();
+    }
+
+    @Test
+    void getTimeSeries_ShouldRequestTimeSeriesEndpoint() {
+        server.expect(requestTo(containsString("/stats/timeseries?uri=%2Fevents%2F3&")))
+                .andExpect(method(HttpMethod.GET))
+                .andExpect(requestTo(containsString("interval=hour&unique=true")))
+                .andRespond(withSuccess("[{\"start\":\"2023-01-01 00:00:00\",\"hits\":4}]",
+                        MediaType.APPLICATION_JSON));
+
+        List<TimeSeriesPoint> points = client.getTimeSeries("/events/3", START, END, "hour", true);
+
+        assertEquals(4L, points.getFirst().getHits());
+        server.verify();
+    }
+
+    @Test
+    void saveHit_WhenServerStaysDown_ShouldSpoolAndReplayLater() {
+        client.startHitBatcher();
+        EndpointHit hit = EndpointHit.builder()
+                .app("ewm")
+                .uri("/events/1")
+                .ip("10.0.0.1")
+                .timestamp("2023-01-01 12:00:00")
+                .build();
+        server.expect(manyTimes(), requestTo("http://stats/hit")).andRespond(withServerError());
+
+        assertDoesNotThrow(() -> client.saveHit(hit));
+        assertEquals(1, spool.getPending());
+
+        server.reset();
+        server.expect(requestTo("http://stats/hits"))
+                .andExpect(jsonPath("$[0].hitId").value(hit.getHitId().toString()))
+                .andRespond(withSuccess("{\"accepted\":1,\"rejected\":[]}", MediaType.APPLICATION_JSON));
+        spool.replay();
+
+        assertEquals(0, spool.getPending());
+        server.verify();
+    }
+
+    @Test
+    void saveHit_WhenServerRejectsHit_ShouldDropInsteadOfSpooling() {
+        client.startHitBatcher();
+        EndpointHit hit = EndpointHit.builder()
+                .app("ewm")
+                .uri("/events/1")
+                .ip("10.0.0.1")
+                .timestamp("2023-01-01 12:00:00")
+                .build();
+        server.expect(requestTo("http://stats/hit")).andRespond(withBadRequest());
+
+        assertDoesNotThrow(() -> client.saveHit(hit));
+
+        assertEquals(0, spool.getPending());
+        assertEquals(1.0, registry.counter("stats.client.spool.dropped").count());
+        server.verify();
+    }
+
+    @Test
+    void binaryWireFormat_ShouldSendHitsAndReadStatsInCompactEncoding() {
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        ObjectProvider<MeterRegistry> provider = beanFactory.getBeanProvider(MeterRegistry.class);
+        StatsClient binaryClient = new StatsClient("http://stats", restTemplate,
+                new HitBatcher(false, 10, 10, 1000, provider), breaker,
+                new StatsRequestCoalescer(false, 1000, provider), spool,
+                new UdpHitSender(false, "localhost", 0, 1400, provider), 100, 3, "binary");
+        EndpointHit hit = EndpointHit.builder()
+                .app("ewm")
+                .uri("/events/1")
+                .ip("10.0.0.1")
+                .timestamp("2023-01-01 12:00:00")
+                .build();
+        List<ViewStats> stats = List.of(ViewStats.builder().app("ewm").uri("/events/1").hits(7L).build());
+        server.expect(requestTo("http://stats/hits"))
+                .andExpect(content().contentType(StatsWireFormat.MEDIA_TYPE_VALUE))
+                .andExpect(request -> {
+                    byte[] body = ((MockClientHttpRequest) request)
+                            .getBodyAsBytes();
+                    StatsWireFormat.WireHit sent = StatsWireFormat.decodeHits(body).getFirst();
+                    assertEquals(hit.getHitId(), sent.hitId());
+                    assertEquals(LocalDateTime.of(2023, 1, 1, 12, 0), sent.timestamp());
+                })
+                .andRespond(withSuccess("{\"accepted\":1,\"rejected\":[]}", MediaType.APPLICATION_JSON));
+        server.expect(requestTo(containsString("/stats?")))
+                .andExpect(header("Accept", StatsWireFormat.MEDIA_TYPE_VALUE))
+                .andRespond(withSuccess(StatsWireFormat.encodeViewStats(stats),
+                        MediaType.parseMediaType(StatsWireFormat.MEDIA_TYPE_VALUE)));
+
+        binaryClient.saveHit(hit);
+        List<ViewStats> received = binaryClient.getStats(START, END, List.of("/events/1"), false);
+
+        assertEquals(stats, received);
+        server.verify();
+    }
+}
@@ -0,0 +1,110 @@
+package ru.practicum.statsclient;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import ru.practicum.statsdto.ViewStats;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatsRequestCoalescerTest {
+    private static final LocalDateTime START = LocalDateTime.of(2023, 1, 1, 0, 0);
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    private StatsRequestCoalescer createCoalescer(long windowMs) {
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("meterRegistry", registry);
+        return new StatsRequestCoalescer(true, windowMs, beanFactory.getBeanProvider(MeterRegistry.class));
+    }
+
+    @Test
+    void execute_WithConcurrentIdenticalLookups_ShouldCallOnce() throws Exception {
+        StatsRequestCoalescer coalescer = createCoalescer(1000);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        List<ViewStats> stats = List.of(new ViewStats("ewm", "/events/1", 3L, null));
+        LocalDateTime end = START.plusDays(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<List<ViewStats>>> results = new ArrayList<>();
+            results.add(executor.submit(() -> coalescer.execute(START, end, List.of("/events/1"), true, () -> {
+                calls.incrementAndGet();
+                await(release);
+                return stats;
+            })));
+            while (registry.counter("stats.client.single-flight.calls", "role", "leader").count() < 1) {
+                Thread.onSpinWait();
+            }
+            for (int i = 0; i < 7; i++) {
+                LocalDateTime followerEnd = end.plusNanos(i * 1_000_000L);
+                results.add(executor.submit(() -> coalescer.execute(START, followerEnd, List.of("/events/1"), true,
+                        () -> {
+                            calls.incrementAndGet();
+                            return List.of();
+                        })));
+            }
+            while (registry.counter("stats.client.single-flight.calls", "role", "follower").count() < 7) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+
+            for (Future<List<ViewStats>> result : results) {
+                assertEquals(stats, result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, calls.get());
+        assertEquals(0.0, registry.get("stats.client.single-flight.in-flight").gauge().value());
+    }
+
+    @Test
+    void execute_WithDifferentUris_ShouldNotCoalesce() {
+        StatsRequestCoalescer coalescer = createCoalescer(1000);
+        AtomicInteger calls = new AtomicInteger();
+
+        coalescer.execute(START, START.plusDays(1), List.of("/events/1"), true, () -> {
+            coalescer.execute(START, START.plusDays(1), List.of("/events/2"), true, () -> {
+                calls.incrementAndGet();
+                return List.of();
+            });
+            calls.incrementAndGet();
+            return List.of();
+        });
+
+        assertEquals(2, calls.get());
+        assertEquals(0.0, registry.counter("stats.client.single-flight.calls", "role", "follower").count());
+    }
+
+    @Test
+    void execute_WhenLeaderFails_ShouldRethrowAndForgetFlight() {
+        StatsRequestCoalescer coalescer = createCoalescer(1000);
+
+        assertThrows(IllegalStateException.class, () -> coalescer.execute(START, START.plusDays(1), null, false,
+                () -> {
+                    throw new IllegalStateException("stats server is down");
+                }));
+
+        assertEquals(List.of(), coalescer.execute(START, START.plusDays(1), null, false, List::of));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
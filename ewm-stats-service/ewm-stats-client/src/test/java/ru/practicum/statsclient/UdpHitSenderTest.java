@@ -0,0 +1,97 @@
+package ru.practicum.statsclient;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import ru.practicum.statsdto.EndpointHit;
+import ru.practicum.statsdto.StatsWireFormat;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UdpHitSenderTest {
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private DatagramChannel server;
+    private UdpHitSender sender;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = DatagramChannel.open().bind(new InetSocketAddress("127.0.0.1", 0));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (sender != null) {
+            sender.close();
+        }
+        server.close();
+    }
+
+    private UdpHitSender createSender(int maxDatagramSize) {
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("meterRegistry", registry);
+        int port = ((InetSocketAddress) server.socket().getLocalSocketAddress()).getPort();
+        sender = new UdpHitSender(true, "127.0.0.1", port, maxDatagramSize,
+                beanFactory.getBeanProvider(MeterRegistry.class));
+        return sender;
+    }
+
+    private EndpointHit hit(int i) {
+        return EndpointHit.builder()
+                .app("test-app")
+                .uri("/events/" + i)
+                .ip("192.168.1.1")
+                .timestamp("2023-01-01 12:00:00")
+                .build();
+    }
+
+    private List<StatsWireFormat.WireHit> receive(int datagrams) throws Exception {
+        List<StatsWireFormat.WireHit> hits = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.allocate(65507);
+        for (int i = 0; i < datagrams; i++) {
+            buffer.clear();
+            server.receive(buffer);
+            buffer.flip();
+            hits.addAll(StatsWireFormat.decodeHits(buffer));
+        }
+        return hits;
+    }
+
+    @Test
+    void send_ShouldPackHitsIntoDatagramsWithinSizeLimit() throws Exception {
+        UdpHitSender sender = createSender(200);
+        List<EndpointHit> hits = IntStream.range(0, 10).mapToObj(this::hit).toList();
+        int expectedDatagrams = StatsWireFormat.packHits(hits, 200).size();
+
+        sender.send(hits);
+        List<StatsWireFormat.WireHit> received = receive(expectedDatagrams);
+
+        assertTrue(expectedDatagrams > 1);
+        assertEquals(10, received.size());
+        assertEquals("/events/9", received.get(9).uri());
+        assertEquals(expectedDatagrams, registry.counter("stats.client.udp.datagrams.sent").count());
+    }
+
+    @Test
+    void send_WithHitLargerThanDatagram_ShouldDropAndCountIt() throws Exception {
+        UdpHitSender sender = createSender(100);
+        EndpointHit large = hit(1);
+        large.setUri("/events/" + "x".repeat(200));
+
+        sender.send(List.of(large, hit(2)));
+        List<StatsWireFormat.WireHit> received = receive(1);
+
+        assertEquals(1, received.size());
+        assertEquals("/events/2", received.getFirst().uri());
+        assertEquals(1.0, registry.counter("stats.client.udp.datagrams.dropped").count());
+    }
+}
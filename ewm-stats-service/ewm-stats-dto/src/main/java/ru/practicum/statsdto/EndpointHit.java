@@ -7,12 +7,19 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.UUID;
+
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 public class EndpointHit {
     private Long id;
+    /**
+     * Client-generated idempotency key: a hit sent again with the same key is accepted but
+     * stored and counted only once.
+     */
+    private UUID hitId;
     @NotBlank
     private String app;
     @NotBlank
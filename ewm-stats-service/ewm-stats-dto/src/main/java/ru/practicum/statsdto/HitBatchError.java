@@ -0,0 +1,15 @@
+package ru.practicum.statsdto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class HitBatchError {
+    private int index;
+    private String message;
+}
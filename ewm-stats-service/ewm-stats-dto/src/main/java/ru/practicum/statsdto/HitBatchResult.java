@@ -0,0 +1,17 @@
+package ru.practicum.statsdto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class HitBatchResult {
+    private int accepted;
+    private List<HitBatchError> rejected;
+}
@@ -0,0 +1,24 @@
+package ru.practicum.statsdto;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StatsQuery {
+    @NotBlank
+    private String start;
+    @NotBlank
+    private String end;
+    private List<String> uris;
+    private List<Long> eventIds;
+    private boolean unique;
+    private boolean exact;
+}
@@ -0,0 +1,238 @@
+package ru.practicum.statsdto;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Binary alternative to JSON for hit batches and {@link ViewStats} lists, negotiated through the
+ * {@value #MEDIA_TYPE_VALUE} media type. A body is a version byte followed by records up to the end
+ * of the body, so a writer can stream rows without knowing their count. Strings are length-prefixed
+ * UTF-8 (length {@code -1} for null); hit timestamps are epoch millis of the local date-time taken
+ * at UTC, so the server never parses a formatted date.
+ */
+public final class StatsWireFormat {
+    public static final String MEDIA_TYPE_VALUE = "application/x-ewm-stats";
+    /**
+     * Timestamp of a hit whose text timestamp could not be parsed; the server rejects it.
+     */
+    public static final long INVALID_TIMESTAMP = Long.MIN_VALUE;
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final byte VERSION = 1;
+    private static final int HAS_HIT_ID = 1;
+    private static final int HAS_STALE = 1;
+    private static final int STALE = 2;
+
+    private StatsWireFormat() {
+    }
+
+    /**
+     * A decoded hit; {@code timestamp} is null when the sender could not parse its timestamp.
+     */
+    public record WireHit(UUID hitId, String app, String uri, String ip, LocalDateTime timestamp) {
+        public EndpointHit toEndpointHit() {
+            return EndpointHit.builder()
+                    .hitId(hitId)
+                    .app(app)
+                    .uri(uri)
+                    .ip(ip)
+                    .timestamp(timestamp == null ? null : timestamp.format(FORMATTER))
+                    .build();
+        }
+    }
+
+    public static byte[] encodeHits(List<EndpointHit> hits) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(hits.size() * 64 + 1);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            writeHeader(out);
+            for (EndpointHit hit : hits) {
+                writeHit(out, hit);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Splits {@code hits} into bodies of at most {@code maxBodySize} bytes each, for transports
+     * with a size limit such as datagrams. A hit too large on its own gets a body of its own,
+     * which is then longer than {@code maxBodySize}.
+     */
+    public static List<byte[]> packHits(List<EndpointHit> hits, int maxBodySize) {
+        List<byte[]> bodies = new ArrayList<>();
+        ByteArrayOutputStream body = new ByteArrayOutputStream(maxBodySize);
+        ByteArrayOutputStream record = new ByteArrayOutputStream(128);
+        try {
+            writeHeader(new DataOutputStream(body));
+            for (EndpointHit hit : hits) {
+                record.reset();
+                writeHit(new DataOutputStream(record), hit);
+                if (body.size() > 1 && body.size() + record.size() > maxBodySize) {
+                    bodies.add(body.toByteArray());
+                    body.reset();
+                    writeHeader(new DataOutputStream(body));
+                }
+                record.writeTo(body);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (body.size() > 1) {
+            bodies.add(body.toByteArray());
+        }
+        return bodies;
+    }
+
+    public static List<WireHit> decodeHits(byte[] body) {
+        return decodeHits(ByteBuffer.wrap(body));
+    }
+
+    public static List<WireHit> decodeHits(ByteBuffer body) {
+        ByteBuffer buffer = open(body);
+        List<WireHit> hits = new ArrayList<>();
+        try {
+            while (buffer.hasRemaining()) {
+                int flags = buffer.get();
+                UUID hitId = (flags & HAS_HIT_ID) != 0 ? new UUID(buffer.getLong(), buffer.getLong()) : null;
+                String app = string(buffer);
+                String uri = string(buffer);
+                String ip = string(buffer);
+                long millis = buffer.getLong();
+                hits.add(new WireHit(hitId, app, uri, ip, millis == INVALID_TIMESTAMP ? null : fromEpochMillis(millis)));
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated hit batch", e);
+        }
+        return hits;
+    }
+
+    public static byte[] encodeViewStats(List<ViewStats> stats) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(stats.size() * 48 + 1);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            writeHeader(out);
+            for (ViewStats row : stats) {
+                writeViewStats(out, row);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static List<ViewStats> decodeViewStats(byte[] body) {
+        ByteBuffer buffer = open(ByteBuffer.wrap(body));
+        List<ViewStats> stats = new ArrayList<>();
+        try {
+            while (buffer.hasRemaining()) {
+                int flags = buffer.get();
+                stats.add(ViewStats.builder()
+                        .app(string(buffer))
+                        .uri(string(buffer))
+                        .hits(buffer.getLong())
+                        .stale((flags & HAS_STALE) != 0 ? (flags & STALE) != 0 : null)
+                        .build());
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated stats body", e);
+        }
+        return stats;
+    }
+
+    public static void writeHeader(DataOutput out) throws IOException {
+        out.writeByte(VERSION);
+    }
+
+    public static void writeViewStats(DataOutput out, ViewStats stats) throws IOException {
+        out.writeByte(stats.getStale() == null ? 0 : HAS_STALE | (stats.getStale() ? STALE : 0));
+        writeString(out, stats.getApp());
+        writeString(out, stats.getUri());
+        out.writeLong(stats.getHits() == null ? 0 : stats.getHits());
+    }
+
+    public static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    public static LocalDateTime fromEpochMillis(long millis) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000),
+                (int) Math.floorMod(millis, 1000) * 1_000_000, ZoneOffset.UTC);
+    }
+
+    private static void writeHit(DataOutput out, EndpointHit hit) throws IOException {
+        out.writeByte(hit.getHitId() != null ? HAS_HIT_ID : 0);
+        if (hit.getHitId() != null) {
+            out.writeLong(hit.getHitId().getMostSignificantBits());
+            out.writeLong(hit.getHitId().getLeastSignificantBits());
+        }
+        writeString(out, hit.getApp());
+        writeString(out, hit.getUri());
+        writeString(out, hit.getIp());
+        out.writeLong(timestampMillis(hit.getTimestamp()));
+    }
+
+    private static long timestampMillis(String timestamp) {
+        if (timestamp == null) {
+            return INVALID_TIMESTAMP;
+        }
+        try {
+            return toEpochMillis(LocalDateTime.parse(timestamp, FORMATTER));
+        } catch (DateTimeParseException e) {
+            return INVALID_TIMESTAMP;
+        }
+    }
+
+    private static ByteBuffer open(ByteBuffer buffer) {
+        if (!buffer.hasRemaining()) {
+            throw new IllegalArgumentException("Empty body");
+        }
+        byte version = buffer.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unknown wire format version: " + version);
+        }
+        return buffer;
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String string(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > buffer.remaining()) {
+            throw new IllegalArgumentException("Truncated string");
+        }
+        if (buffer.hasArray()) {
+            String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+                    StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+            return value;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
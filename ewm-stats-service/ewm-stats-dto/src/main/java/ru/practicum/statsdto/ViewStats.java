@@ -1,5 +1,6 @@
 package ru.practicum.statsdto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -13,4 +14,6 @@ public class ViewStats {
     private String app;
     private String uri;
     private Long hits;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Boolean stale;
 }
@@ -0,0 +1,111 @@
+package ru.practicum.statsservice.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.statsdto.ViewStats;
+import ru.practicum.statsservice.model.EndpointHitEntity;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Size-bounded cache of {@code getStats} results keyed by uris, flags, start and the end of the
+ * range rounded down to {@code bucket-ms}. Caffeine's W-TinyLFU policy keeps frequently asked ranges over one-off ones.
+ * Every uri has a version that is bumped after hits for it are committed; an entry remembers the
+ * sum of the versions of its uris read before it was computed and is ignored once that sum moves.
+ * Bumping after the commit keeps a query that ran just before it from caching pre-commit results
+ * under the new version.
+ * Queries without a uri filter depend on the global version, bumped by every stored hit.
+ */
+@Component
+public class StatsResultCache {
+    private final boolean enabled;
+    private final long bucketMs;
+    private final Cache<StatsKey, CachedStats> cache;
+    private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+    private final AtomicLong globalVersion = new AtomicLong();
+
+    public StatsResultCache(@Value("${stats.result-cache.enabled:false}") boolean enabled,
+                            @Value("${stats.result-cache.max-size:10000}") long maxSize,
+                            @Value("${stats.result-cache.bucket-ms:60000}") long bucketMs,
+                            @Value("${stats.result-cache.ttl-ms:600000}") long ttlMs,
+                            MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.bucketMs = Math.max(1, bucketMs);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "stats-results");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public List<ViewStats> get(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique,
+                               boolean exact, Supplier<List<ViewStats>> loader) {
+        List<String> sortedUris = uris == null ? null : uris.stream().distinct().sorted().toList();
+        StatsKey key = new StatsKey(start, bucket(end), sortedUris, unique, exact);
+        long version = version(sortedUris);
+        CachedStats cached = cache.getIfPresent(key);
+        if (cached != null && cached.version() == version) {
+            return cached.stats();
+        }
+        List<ViewStats> stats = List.copyOf(loader.get());
+        cache.put(key, new CachedStats(version, stats));
+        return stats;
+    }
+
+    public void invalidate(List<EndpointHitEntity> hits) {
+        Set<String> uris = new HashSet<>();
+        for (EndpointHitEntity hit : hits) {
+            uris.add(hit.getUri());
+        }
+        for (String uri : uris) {
+            versions.computeIfAbsent(uri, key -> new AtomicLong()).incrementAndGet();
+        }
+        globalVersion.incrementAndGet();
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    private long version(List<String> uris) {
+        if (uris == null) {
+            return globalVersion.get();
+        }
+        long sum = 0;
+        for (String uri : uris) {
+            AtomicLong version = versions.get(uri);
+            if (version != null) {
+                sum += version.get();
+            }
+        }
+        return sum;
+    }
+
+    private long bucket(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli() / bucketMs;
+    }
+
+    private record StatsKey(LocalDateTime start, long end, List<String> uris, boolean unique, boolean exact) {
+    }
+
+    private record CachedStats(long version, List<ViewStats> stats) {
+    }
+}
@@ -0,0 +1,195 @@
+package ru.practicum.statsservice.compaction;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.statsservice.model.EndpointHitEntity;
+import ru.practicum.statsservice.model.HitCompactionEntity;
+import ru.practicum.statsservice.model.RollupGranularity;
+import ru.practicum.statsservice.repository.EndpointHitRepository;
+import ru.practicum.statsservice.repository.HitCompactionRepository;
+import ru.practicum.statsservice.repository.HitRollupRepository;
+import ru.practicum.statsservice.repository.HitSketchRepository;
+import ru.practicum.statsservice.rollup.RollupService;
+import ru.practicum.statsservice.sketch.SketchService;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Removes raw hits older than {@code age-days} once their day is fully represented by rollups
+ * (exact counts) and visitor sketches (mergeable unique ips). Days are processed oldest first:
+ * the day's rollup total is checked against its raw rows and both aggregates are rebuilt from
+ * raw if they disagree, then the compaction watermark moves past the day and its raw rows are
+ * deleted in batches of {@code batch-size}, each in its own transaction. Queries reaching
+ * behind the watermark are answered from aggregates only.
+ */
+@Slf4j
+@Component
+public class HitCompactor {
+    private static final int REBUILD_PAGE_SIZE = 5000;
+    private final boolean enabled;
+    private final int ageDays;
+    private final int batchSize;
+    private final int maxDaysPerRun;
+    private final EndpointHitRepository hitRepository;
+    private final HitRollupRepository rollupRepository;
+    private final HitSketchRepository sketchRepository;
+    private final HitCompactionRepository compactionRepository;
+    private final RollupService rollupService;
+    private final SketchService sketchService;
+    private final TransactionTemplate transactionTemplate;
+    private final Clock clock;
+    private final Counter deleted;
+    private final Counter rebuiltDays;
+    private volatile LocalDateTime watermark;
+
+    @Autowired
+    public HitCompactor(@Value("${stats.compaction.enabled:false}") boolean enabled,
+                        @Value("${stats.compaction.age-days:90}") int ageDays,
+                        @Value("${stats.compaction.batch-size:5000}") int batchSize,
+                        @Value("${stats.compaction.max-days-per-run:7}") int maxDaysPerRun,
+                        EndpointHitRepository hitRepository,
+                        HitRollupRepository rollupRepository,
+                        HitSketchRepository sketchRepository,
+                        HitCompactionRepository compactionRepository,
+                        RollupService rollupService,
+                        SketchService sketchService,
+                        PlatformTransactionManager transactionManager,
+                        MeterRegistry meterRegistry) {
+        this(enabled, ageDays, batchSize, maxDaysPerRun, hitRepository, rollupRepository, sketchRepository,
+                compactionRepository, rollupService, sketchService, transactionManager, meterRegistry,
+                Clock.systemDefaultZone());
+    }
+
+    HitCompactor(boolean enabled, int ageDays, int batchSize, int maxDaysPerRun,
+                 EndpointHitRepository hitRepository, HitRollupRepository rollupRepository,
+                 HitSketchRepository sketchRepository, HitCompactionRepository compactionRepository,
+                 RollupService rollupService, SketchService sketchService,
+                 PlatformTransactionManager transactionManager, MeterRegistry meterRegistry, Clock clock) {
+        this.enabled = enabled && rollupService.isEnabled() && sketchService.isEnabled();
+        this.ageDays = ageDays;
+        this.batchSize = batchSize;
+        this.maxDaysPerRun = maxDaysPerRun;
+        this.hitRepository = hitRepository;
+        this.rollupRepository = rollupRepository;
+        this.sketchRepository = sketchRepository;
+        this.compactionRepository = compactionRepository;
+        this.rollupService = rollupService;
+        this.sketchService = sketchService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.clock = clock;
+        this.deleted = meterRegistry.counter("stats.compaction.deleted");
+        this.rebuiltDays = meterRegistry.counter("stats.compaction.rebuilt-days");
+        if (enabled && !this.enabled) {
+            log.warn("Hit compaction needs stats.rollup.enabled and stats.sketch.enabled, leaving raw hits in place");
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Whether raw hits before {@code time} may already be gone, so the range has to be read from
+     * aggregates.
+     */
+    public boolean isCompacted(LocalDateTime time) {
+        LocalDateTime current = watermark;
+        return current != null && time.isBefore(current);
+    }
+
+    public LocalDateTime getWatermark() {
+        return watermark;
+    }
+
+    @PostConstruct
+    public void loadWatermark() {
+        if (enabled) {
+            watermark = compactionRepository.findById(HitCompactionEntity.SINGLETON_ID)
+                    .map(HitCompactionEntity::getCompactedBefore)
+                    .orElse(null);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${stats.compaction.interval-ms:3600000}",
+            initialDelayString = "${stats.compaction.initial-delay-ms:60000}")
+    public void compact() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime cutoff = RollupGranularity.DAY.floor(LocalDateTime.now(clock).minusDays(ageDays));
+        for (int days = 0; days < maxDaysPerRun; days++) {
+            Optional<EndpointHitEntity> oldest = hitRepository.findFirstByOrderByTimestampAsc();
+            if (oldest.isEmpty() || !oldest.get().getTimestamp().isBefore(cutoff)) {
+                return;
+            }
+            LocalDateTime day = RollupGranularity.DAY.floor(oldest.get().getTimestamp());
+            LocalDateTime nextDay = RollupGranularity.DAY.next(day);
+            if (!isCompacted(day)) {
+                transactionTemplate.executeWithoutResult(status -> verifyAggregates(day, nextDay));
+                advanceWatermark(nextDay);
+            }
+            deleteRawBefore(nextDay);
+        }
+    }
+
+    private void verifyAggregates(LocalDateTime day, LocalDateTime nextDay) {
+        long raw = hitRepository.countByTimestampGreaterThanEqualAndTimestampLessThan(day, nextDay);
+        long rolledUp = rollupRepository.sumHits(RollupGranularity.DAY, day, nextDay, null).stream()
+                .mapToLong(row -> ((Number) row[2]).longValue())
+                .sum();
+        if (raw == rolledUp) {
+            return;
+        }
+        log.warn("Rollups for {} hold {} hits but {} raw hits exist, rebuilding the day", day.toLocalDate(),
+                rolledUp, raw);
+        rollupRepository.deleteBuckets(day, nextDay);
+        sketchRepository.deleteBuckets(day, nextDay);
+        long lastId = 0;
+        List<EndpointHitEntity> page;
+        do {
+            page = hitRepository.findByTimestampGreaterThanEqualAndTimestampLessThanAndIdGreaterThanOrderByIdAsc(
+                    day, nextDay, lastId, PageRequest.of(0, REBUILD_PAGE_SIZE));
+            if (!page.isEmpty()) {
+                rollupService.record(page);
+                sketchService.record(page);
+                lastId = page.getLast().getId();
+            }
+        } while (page.size() == REBUILD_PAGE_SIZE);
+        rebuiltDays.increment();
+    }
+
+    private void advanceWatermark(LocalDateTime compactedBefore) {
+        transactionTemplate.executeWithoutResult(status -> compactionRepository.save(HitCompactionEntity.builder()
+                .id(HitCompactionEntity.SINGLETON_ID)
+                .compactedBefore(compactedBefore)
+                .build()));
+        watermark = compactedBefore;
+    }
+
+    private void deleteRawBefore(LocalDateTime before) {
+        int removed;
+        long total = 0;
+        do {
+            removed = transactionTemplate.execute(status -> hitRepository.deleteBatchBefore(before, batchSize));
+            total += removed;
+            deleted.increment(removed);
+        } while (removed == batchSize);
+        if (total > 0) {
+            log.info("Compacted {} raw hits before {}", total, before);
+        }
+    }
+}
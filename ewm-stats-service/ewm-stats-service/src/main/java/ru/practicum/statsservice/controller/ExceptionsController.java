@@ -9,6 +9,7 @@ import org.springframework.web.bind.annotation.RestControllerAdvice;
 import ru.practicum.statsdto.ErrorResponse;
 import ru.practicum.statsservice.exception.BadRequestException;
 import ru.practicum.statsservice.exception.StatsServiceException;
+import ru.practicum.statsservice.exception.TooManyRequestsException;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -53,6 +54,16 @@ public class ExceptionsController {
         return ResponseEntity.badRequest().body(error);
     }
 
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<ErrorResponse> handleTooManyRequests(TooManyRequestsException e) {
+        ErrorResponse error = ErrorResponse.builder()
+                .message(e.getMessage())
+                .timestamp(LocalDateTime.now().format(FORMATTER))
+                .status(HttpStatus.TOO_MANY_REQUESTS.value())
+                .build();
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(error);
+    }
+
     @ExceptionHandler(StatsServiceException.class)
     public ResponseEntity<ErrorResponse> handleServiceException(StatsServiceException e) {
         ErrorResponse error = ErrorResponse.builder()
@@ -1,23 +1,48 @@
 package ru.practicum.statsservice.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.statsdto.EndpointHit;
+import ru.practicum.statsdto.HitBatchResult;
+import ru.practicum.statsdto.StatsQuery;
+import ru.practicum.statsdto.StatsWireFormat;
+import ru.practicum.statsdto.TimeSeriesPoint;
 import ru.practicum.statsdto.ViewStats;
 import ru.practicum.statsservice.service.StatsService;
 
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
 public class StatsController {
+    private static final MediaType WIRE_FORMAT = MediaType.parseMediaType(StatsWireFormat.MEDIA_TYPE_VALUE);
     private final StatsService statsService;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Off by default: with the rollup, sketch, compaction or hot window aggregates on, the service answers
+     * from those and collects the full list before the first row is written anyway.
+     */
+    @Value("${stats.streaming.enabled:false}")
+    private boolean streaming;
 
     @Autowired
-    public StatsController(StatsService statsService) {
+    public StatsController(StatsService statsService, ObjectMapper objectMapper) {
         this.statsService = statsService;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping("/hit")
@@ -26,13 +51,132 @@ public class StatsController {
         return ResponseEntity.status(HttpStatus.CREATED).build();
     }
 
+    @PostMapping("/hits")
+    public ResponseEntity<HitBatchResult> hits(@RequestBody List<EndpointHit> hits) {
+        HitBatchResult result = statsService.handleHits(hits);
+        return ResponseEntity.status(HttpStatus.CREATED).body(result);
+    }
+
+    /**
+     * Binary counterpart of {@code POST /hits} for {@value StatsWireFormat#MEDIA_TYPE_VALUE}
+     * bodies; the result is still JSON.
+     */
+    @PostMapping(value = "/hits", consumes = StatsWireFormat.MEDIA_TYPE_VALUE)
+    public ResponseEntity<HitBatchResult> wireHits(@RequestBody byte[] body) {
+        HitBatchResult result = statsService.handleWireHits(body);
+        return ResponseEntity.status(HttpStatus.CREATED).body(result);
+    }
+
     @GetMapping("/stats")
-    public ResponseEntity<List<ViewStats>> getStats(
+    public ResponseEntity<?> getStats(
             @RequestParam String start,
             @RequestParam String end,
             @RequestParam(required = false) List<String> uris,
+            @RequestParam(defaultValue = "false") boolean unique,
+            @RequestParam(defaultValue = "false") boolean exact,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            HttpServletResponse response) throws IOException {
+        if (streaming && (uris == null || uris.isEmpty())) {
+            streamStats(start, end, unique, exact, acceptsWireFormat(accept), response);
+            return null;
+        }
+        List<ViewStats> stats = statsService.handleGetStats(start, end, uris, unique, exact);
+        return respond(stats, accept);
+    }
+
+    @GetMapping("/stats/top")
+    public ResponseEntity<?> getTopStats(
+            @RequestParam String start,
+            @RequestParam String end,
+            @RequestParam(defaultValue = "10") int k,
+            @RequestParam(defaultValue = "false") boolean unique,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        return respond(statsService.handleGetTopStats(start, end, k, unique), accept);
+    }
+
+    /**
+     * Hits of one uri per {@code minute}, {@code hour} or {@code day} bucket, oldest bucket first.
+     */
+    @GetMapping("/stats/timeseries")
+    public ResponseEntity<List<TimeSeriesPoint>> getTimeSeries(
+            @RequestParam String uri,
+            @RequestParam String start,
+            @RequestParam String end,
+            @RequestParam(defaultValue = "hour") String interval,
             @RequestParam(defaultValue = "false") boolean unique) {
-        List<ViewStats> stats = statsService.handleGetStats(start, end, uris, unique);
+        return ResponseEntity.ok(statsService.handleGetTimeSeries(uri, start, end, interval, unique));
+    }
+
+    /**
+     * Same as {@code GET /stats}, but the uri list (or event ids) travels in the body, so large
+     * listings do not run into url length limits and need no per-uri url decoding.
+     */
+    @PostMapping("/stats/query")
+    public ResponseEntity<?> query(@Valid @RequestBody StatsQuery query,
+                                   @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        return respond(statsService.handleQuery(query), accept);
+    }
+
+    /**
+     * JSON unless the caller explicitly accepts {@value StatsWireFormat#MEDIA_TYPE_VALUE}, so
+     * wildcard and missing Accept headers keep getting the JSON the spec describes.
+     */
+    private static ResponseEntity<?> respond(List<ViewStats> stats, String accept) {
+        if (acceptsWireFormat(accept)) {
+            return ResponseEntity.ok().contentType(WIRE_FORMAT).body(StatsWireFormat.encodeViewStats(stats));
+        }
         return ResponseEntity.ok(stats);
     }
+
+    private static boolean acceptsWireFormat(String accept) {
+        return accept != null && accept.contains(StatsWireFormat.MEDIA_TYPE_VALUE);
+    }
+
+    /**
+     * Without a uri filter the result holds one row per uri ever hit, so it is written to the
+     * response row by row while the database cursor is read instead of being collected first.
+     * A failure while the response is still buffered is answered with the usual error body; once
+     * rows have been sent the exception propagates so the response is aborted rather than ended
+     * as a well-formed but truncated list.
+     */
+    private void streamStats(String start, String end, boolean unique, boolean exact, boolean wireFormat,
+                             HttpServletResponse response) throws IOException {
+        LocalDateTime startDate = statsService.parseAndDecodeDateTime(start);
+        LocalDateTime endDate = statsService.parseAndDecodeDateTime(end);
+        statsService.validateDateRange(startDate, endDate);
+        response.setStatus(HttpStatus.OK.value());
+        try {
+            if (wireFormat) {
+                response.setContentType(StatsWireFormat.MEDIA_TYPE_VALUE);
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(response.getOutputStream()));
+                StatsWireFormat.writeHeader(out);
+                statsService.handleStreamStats(startDate, endDate, unique, exact, stats -> {
+                    try {
+                        StatsWireFormat.writeViewStats(out, stats);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                out.close();
+                return;
+            }
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream());
+            generator.writeStartArray();
+            statsService.handleStreamStats(startDate, endDate, unique, exact, stats -> {
+                try {
+                    generator.writeObject(stats);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            generator.writeEndArray();
+            generator.close();
+        } catch (RuntimeException e) {
+            if (!response.isCommitted()) {
+                response.reset();
+            }
+            throw e;
+        }
+    }
 }
@@ -0,0 +1,306 @@
+package ru.practicum.statsservice.hotwindow;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.statsdto.ViewStats;
+import ru.practicum.statsservice.model.EndpointHitEntity;
+import ru.practicum.statsservice.repository.EndpointHitRepository;
+import ru.practicum.statsservice.service.HitCounts;
+import ru.practicum.statsservice.sketch.HyperLogLog;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Keeps the hits of the last {@code hours} hours in memory, split into fixed time slices of
+ * columnar arrays (timestamp, interned app and uri ids, ip hash). Stats for a range that starts
+ * inside the window are computed by scanning the overlapping slices without touching the database.
+ * The window is filled from the database on startup and then from every stored hit; when it holds
+ * more than {@code max-hits} hits the oldest slices are dropped, which shortens the window.
+ * App and uri names no longer referenced by any slice are forgotten when slices are dropped, so
+ * the name dictionary stays bounded by what the window holds.
+ */
+@Slf4j
+@Component
+public class HotWindow {
+    private static final int LOAD_PAGE_SIZE = 5000;
+    private final boolean enabled;
+    private final long windowSeconds;
+    private final long sliceSeconds;
+    private final long maxHits;
+    private final EndpointHitRepository repository;
+    private final Clock clock;
+    private final ConcurrentSkipListMap<Long, HotWindowSlice> slices = new ConcurrentSkipListMap<>();
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private final Map<Integer, String> names = new ConcurrentHashMap<>();
+    /**
+     * Shared by appends and queries; dropping slices and pruning names takes it exclusively, so
+     * no name is forgotten between being interned and stored in a slice, or while being looked up.
+     */
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private int nextId;
+    private final AtomicLong hits = new AtomicLong();
+    private final Counter served;
+    private final Counter missed;
+    private volatile long coveredFrom = Long.MAX_VALUE;
+
+    @Autowired
+    public HotWindow(@Value("${stats.hot-window.enabled:false}") boolean enabled,
+                     @Value("${stats.hot-window.hours:6}") int hours,
+                     @Value("${stats.hot-window.slice-minutes:10}") int sliceMinutes,
+                     @Value("${stats.hot-window.max-hits:2000000}") long maxHits,
+                     EndpointHitRepository repository,
+                     MeterRegistry meterRegistry) {
+        this(enabled, hours, sliceMinutes, maxHits, repository, meterRegistry, Clock.systemDefaultZone());
+    }
+
+    HotWindow(boolean enabled, int hours, int sliceMinutes, long maxHits, EndpointHitRepository repository,
+              MeterRegistry meterRegistry, Clock clock) {
+        this.enabled = enabled;
+        this.windowSeconds = hours * 3600L;
+        this.sliceSeconds = sliceMinutes * 60L;
+        this.maxHits = maxHits;
+        this.repository = repository;
+        this.clock = clock;
+
+        Gauge.builder("stats.hot-window.hits", hits, AtomicLong::get)
+                .description("Hits held in the in-memory window")
+                .register(meterRegistry);
+        Gauge.builder("stats.hot-window.bytes", this, HotWindow::getAllocatedBytes)
+                .description("Memory allocated for the in-memory window columns")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("stats.hot-window.coverage", this, HotWindow::getCoverageSeconds)
+                .description("How far back the in-memory window currently reaches")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        this.served = meterRegistry.counter("stats.hot-window.queries", "source", "memory");
+        this.missed = meterRegistry.counter("stats.hot-window.queries", "source", "database");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @PostConstruct
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        long from = sliceStart(epochSecond(LocalDateTime.now(clock)) - windowSeconds);
+        LocalDateTime fromTime = LocalDateTime.ofEpochSecond(from, 0, ZoneOffset.UTC);
+        long lastId = 0;
+        List<EndpointHitEntity> page;
+        do {
+            page = repository.findByTimestampGreaterThanEqualAndIdGreaterThanOrderByIdAsc(fromTime, lastId,
+                    PageRequest.of(0, LOAD_PAGE_SIZE));
+            lock.readLock().lock();
+            try {
+                for (EndpointHitEntity hit : page) {
+                    append(hit);
+                    lastId = hit.getId();
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+        } while (page.size() == LOAD_PAGE_SIZE);
+        coveredFrom = from;
+        enforceLimit();
+        log.info("Loaded {} recent hits into the in-memory window", hits.get());
+    }
+
+    public boolean covers(LocalDateTime start) {
+        boolean covered = enabled && epochSecond(start) >= coveredFrom;
+        (covered ? served : missed).increment();
+        return covered;
+    }
+
+    public void record(List<EndpointHitEntity> entities) {
+        long from = coveredFrom;
+        lock.readLock().lock();
+        try {
+            for (EndpointHitEntity hit : entities) {
+                if (epochSecond(hit.getTimestamp()) >= from) {
+                    append(hit);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        enforceLimit();
+    }
+
+    public List<ViewStats> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique) {
+        lock.readLock().lock();
+        try {
+            return scan(epochSecond(start), epochSecond(end), uris, unique);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<ViewStats> scan(long from, long to, List<String> uris, boolean unique) {
+        Set<Integer> uriIds = null;
+        if (uris != null) {
+            uriIds = new HashSet<>();
+            for (String uri : uris) {
+                Integer id = ids.get(uri);
+                if (id != null) {
+                    uriIds.add(id);
+                }
+            }
+            if (uriIds.isEmpty()) {
+                return List.of();
+            }
+        }
+        Set<Integer> filter = uriIds;
+        Map<Long, long[]> counts = new HashMap<>();
+        Map<Long, Set<Long>> visitors = new HashMap<>();
+        for (HotWindowSlice slice : slices.subMap(sliceStart(from), true, to, true).values()) {
+            slice.scan(from, to, (app, uri, ip) -> {
+                if (filter != null && !filter.contains(uri)) {
+                    return;
+                }
+                long key = ((long) app << 32) | (uri & 0xFFFFFFFFL);
+                if (unique) {
+                    visitors.computeIfAbsent(key, k -> new HashSet<>()).add(ip);
+                } else {
+                    counts.computeIfAbsent(key, k -> new long[1])[0]++;
+                }
+            });
+        }
+        HitCounts result = new HitCounts();
+        if (unique) {
+            visitors.forEach((key, ips) -> result.add(names.get((int) (key >>> 32)), names.get(key.intValue()), ips.size()));
+        } else {
+            counts.forEach((key, count) -> result.add(names.get((int) (key >>> 32)), names.get(key.intValue()), count[0]));
+        }
+        return result.toViewStats();
+    }
+
+    @Scheduled(fixedDelayString = "${stats.hot-window.evict-interval-ms:60000}")
+    public void evictExpired() {
+        if (!enabled) {
+            return;
+        }
+        long cutoff = sliceStart(epochSecond(LocalDateTime.now(clock)) - windowSeconds);
+        if (cutoff > coveredFrom) {
+            coveredFrom = cutoff;
+        }
+        if (slices.isEmpty() || slices.firstKey() >= cutoff) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            while (!slices.isEmpty() && slices.firstKey() < cutoff) {
+                drop(slices.pollFirstEntry().getValue());
+            }
+            pruneNames();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    long getHitCount() {
+        return hits.get();
+    }
+
+    int getNameCount() {
+        return names.size();
+    }
+
+    long getAllocatedBytes() {
+        return slices.values().stream()
+                .mapToLong(slice -> (long) slice.capacity() * HotWindowSlice.BYTES_PER_HIT)
+                .sum();
+    }
+
+    double getCoverageSeconds() {
+        long from = coveredFrom;
+        return from == Long.MAX_VALUE ? 0 : Math.max(0, epochSecond(LocalDateTime.now(clock)) - from);
+    }
+
+    private void append(EndpointHitEntity hit) {
+        long timestamp = epochSecond(hit.getTimestamp());
+        long start = sliceStart(timestamp);
+        slices.computeIfAbsent(start, key -> new HotWindowSlice(key, key + sliceSeconds))
+                .append(timestamp, intern(hit.getApp()), intern(hit.getUri()), HyperLogLog.hash(hit.getIp()));
+        hits.incrementAndGet();
+    }
+
+    private void enforceLimit() {
+        if (hits.get() <= maxHits) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            while (hits.get() > maxHits && !slices.isEmpty()) {
+                HotWindowSlice oldest = slices.pollFirstEntry().getValue();
+                coveredFrom = Math.max(coveredFrom == Long.MAX_VALUE ? 0 : coveredFrom, oldest.getEnd());
+                drop(oldest);
+            }
+            pruneNames();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void drop(HotWindowSlice slice) {
+        hits.addAndGet(-slice.size());
+    }
+
+    private void pruneNames() {
+        BitSet used = new BitSet();
+        for (HotWindowSlice slice : slices.values()) {
+            slice.collectIds(used);
+        }
+        names.entrySet().removeIf(entry -> {
+            if (used.get(entry.getKey())) {
+                return false;
+            }
+            ids.remove(entry.getValue());
+            return true;
+        });
+    }
+
+    private int intern(String name) {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        synchronized (ids) {
+            return ids.computeIfAbsent(name, key -> {
+                int next = nextId++;
+                names.put(next, key);
+                return next;
+            });
+        }
+    }
+
+    private long sliceStart(long epochSecond) {
+        return Math.floorDiv(epochSecond, sliceSeconds) * sliceSeconds;
+    }
+
+    private static long epochSecond(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,89 @@
+package ru.practicum.statsservice.hotwindow;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Hits of one time slice stored column-wise in primitive arrays. Appends are serialized; readers
+ * take no lock and see every row below the published {@link #size()}.
+ */
+class HotWindowSlice {
+    static final int BYTES_PER_HIT = Long.BYTES + Integer.BYTES + Integer.BYTES + Long.BYTES;
+    private static final int INITIAL_CAPACITY = 1024;
+    private final long start;
+    private final long end;
+    private volatile long[] timestamps = new long[INITIAL_CAPACITY];
+    private volatile int[] apps = new int[INITIAL_CAPACITY];
+    private volatile int[] uris = new int[INITIAL_CAPACITY];
+    private volatile long[] ips = new long[INITIAL_CAPACITY];
+    private volatile int size;
+
+    HotWindowSlice(long start, long end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    long getStart() {
+        return start;
+    }
+
+    long getEnd() {
+        return end;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int capacity() {
+        return timestamps.length;
+    }
+
+    synchronized void append(long timestamp, int app, int uri, long ip) {
+        int index = size;
+        if (index == timestamps.length) {
+            int capacity = index * 2;
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            apps = Arrays.copyOf(apps, capacity);
+            uris = Arrays.copyOf(uris, capacity);
+            ips = Arrays.copyOf(ips, capacity);
+        }
+        timestamps[index] = timestamp;
+        apps[index] = app;
+        uris[index] = uri;
+        ips[index] = ip;
+        size = index + 1;
+    }
+
+    void scan(long from, long to, RowVisitor visitor) {
+        int count = size;
+        long[] timestamps = this.timestamps;
+        int[] apps = this.apps;
+        int[] uris = this.uris;
+        long[] ips = this.ips;
+        for (int i = 0; i < count; i++) {
+            long timestamp = timestamps[i];
+            if (timestamp >= from && timestamp <= to) {
+                visitor.visit(apps[i], uris[i], ips[i]);
+            }
+        }
+    }
+
+    /**
+     * Marks the app and uri ids this slice refers to in {@code ids}.
+     */
+    void collectIds(BitSet ids) {
+        int count = size;
+        int[] apps = this.apps;
+        int[] uris = this.uris;
+        for (int i = 0; i < count; i++) {
+            ids.set(apps[i]);
+            ids.set(uris[i]);
+        }
+    }
+
+    @FunctionalInterface
+    interface RowVisitor {
+        void visit(int app, int uri, long ip);
+    }
+}
@@ -0,0 +1,106 @@
+package ru.practicum.statsservice.ingest;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.statsservice.model.EndpointHitEntity;
+import ru.practicum.statsservice.store.HitStore;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Drops hits whose client-assigned {@code hitId} was already stored, so resent hits are counted
+ * once. A rotating Bloom filter answers "certainly new" for almost every fresh hit without a
+ * store round trip; hits it may have seen, and hits older than the filter's window, are
+ * looked up in the {@link HitStore}. With the JPA store the unique index on
+ * {@code (hit_id, timestamp)} is the final guard against concurrent resends, which then fail and
+ * are deduplicated on the next retry.
+ * Hits without a {@code hitId} are never deduplicated.
+ */
+@Component
+public class HitDeduplicator {
+    private static final int LOOKUP_CHUNK = 1000;
+    private final boolean enabled;
+    private final HitStore store;
+    private final RotatingBloomFilter filter;
+    private final Clock clock;
+    private final Counter duplicates;
+    private final Counter lookups;
+
+    @Autowired
+    public HitDeduplicator(@Value("${stats.dedup.enabled:false}") boolean enabled,
+                           @Value("${stats.dedup.window-ms:600000}") long windowMs,
+                           @Value("${stats.dedup.generations:4}") int generations,
+                           @Value("${stats.dedup.expected-hits:1000000}") long expectedHits,
+                           @Value("${stats.dedup.false-positive-rate:0.001}") double falsePositiveRate,
+                           HitStore store,
+                           MeterRegistry meterRegistry) {
+        this(enabled, windowMs, generations, expectedHits, falsePositiveRate, store, meterRegistry,
+                Clock.systemDefaultZone());
+    }
+
+    HitDeduplicator(boolean enabled, long windowMs, int generations, long expectedHits, double falsePositiveRate,
+                    HitStore store, MeterRegistry meterRegistry, Clock clock) {
+        this.enabled = enabled;
+        this.store = store;
+        this.clock = clock;
+        this.filter = new RotatingBloomFilter(windowMs, generations, Math.max(1, expectedHits / generations),
+                falsePositiveRate, clock::millis);
+        this.duplicates = meterRegistry.counter("stats.dedup.duplicates");
+        this.lookups = meterRegistry.counter("stats.dedup.lookups");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the hits that were not stored before, in their original order.
+     */
+    public List<EndpointHitEntity> filter(List<EndpointHitEntity> hits) {
+        LocalDateTime coveredSince = LocalDateTime.ofInstant(Instant.ofEpochMilli(filter.coveredSince()),
+                clock.getZone());
+        Set<UUID> batch = new HashSet<>();
+        Set<EndpointHitEntity> dropped = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<EndpointHitEntity> suspects = new ArrayList<>();
+        for (EndpointHitEntity hit : hits) {
+            UUID hitId = hit.getHitId();
+            if (hitId == null) {
+                continue;
+            }
+            if (!batch.add(hitId)) {
+                dropped.add(hit);
+            } else if (!filter.put(hitId) || hit.getTimestamp().isBefore(coveredSince)) {
+                suspects.add(hit);
+            }
+        }
+        for (int i = 0; i < suspects.size(); i += LOOKUP_CHUNK) {
+            List<EndpointHitEntity> chunk = suspects.subList(i, Math.min(suspects.size(), i + LOOKUP_CHUNK));
+            lookups.increment(chunk.size());
+            LocalDateTime from = chunk.stream().map(EndpointHitEntity::getTimestamp)
+                    .min(Comparator.naturalOrder()).orElseThrow();
+            LocalDateTime to = chunk.stream().map(EndpointHitEntity::getTimestamp)
+                    .max(Comparator.naturalOrder()).orElseThrow();
+            Set<UUID> stored = new HashSet<>(store.findExistingHitIds(
+                    chunk.stream().map(EndpointHitEntity::getHitId).toList(), from, to));
+            chunk.stream().filter(hit -> stored.contains(hit.getHitId())).forEach(dropped::add);
+        }
+        if (dropped.isEmpty()) {
+            return hits;
+        }
+        duplicates.increment(dropped.size());
+        return hits.stream().filter(hit -> !dropped.contains(hit)).toList();
+    }
+}
@@ -0,0 +1,284 @@
+package ru.practicum.statsservice.ingest;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.statsservice.exception.TooManyRequestsException;
+import ru.practicum.statsservice.model.EndpointHitEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Write-behind buffer for incoming hits. Request threads enqueue parsed hits into a lock-free
+ * ring buffer and return; a single background writer drains it into batched inserts every
+ * {@code flush-interval-ms} or as soon as {@code max-batch-size} hits are waiting.
+ * <p>
+ * Buffered hits were already acknowledged, so a batch whose write fails is kept and written again
+ * on the following flushes, up to {@code max-attempts} writes in total; while it keeps failing no
+ * further hits are drained, so the ring fills up and pushes back on clients instead of piling up
+ * failed batches in memory. With {@code include-pending} reads wait, up to
+ * {@code read-wait-ms}, for the writer to store hits that are still buffered; concurrent reads
+ * share one flush and the write itself stays on the writer thread.
+ */
+@Slf4j
+@Component
+public class HitWriteBuffer {
+    private final boolean enabled;
+    private final boolean includePending;
+    private final boolean blockWhenFull;
+    private final long blockTimeoutNanos;
+    private final long flushIntervalMs;
+    private final int maxBatchSize;
+    private final int maxAttempts;
+    private final long readWaitMs;
+    private final RingBuffer<EndpointHitEntity> ring;
+    private final TransactionTemplate transactionTemplate;
+    private final ReentrantLock drainLock = new ReentrantLock();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final Counter rejected;
+    private final Counter failed;
+    private final Counter retried;
+    private final Timer flushLatency;
+    private volatile ScheduledExecutorService executor;
+    private volatile Consumer<List<EndpointHitEntity>> sink;
+    private CompletableFuture<Void> pendingFlush;
+    private volatile List<EndpointHitEntity> retryBatch;
+    private int retryAttempts;
+
+    public HitWriteBuffer(@Value("${stats.write-behind.enabled:false}") boolean enabled,
+                          @Value("${stats.write-behind.capacity:65536}") int capacity,
+                          @Value("${stats.write-behind.flush-interval-ms:500}") long flushIntervalMs,
+                          @Value("${stats.write-behind.max-batch-size:1000}") int maxBatchSize,
+                          @Value("${stats.write-behind.overflow:reject}") String overflow,
+                          @Value("${stats.write-behind.block-timeout-ms:1000}") long blockTimeoutMs,
+                          @Value("${stats.write-behind.include-pending:false}") boolean includePending,
+                          @Value("${stats.write-behind.max-attempts:5}") int maxAttempts,
+                          @Value("${stats.write-behind.read-wait-ms:1000}") long readWaitMs,
+                          PlatformTransactionManager transactionManager,
+                          MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.includePending = includePending;
+        this.blockWhenFull = "block".equalsIgnoreCase(overflow);
+        this.blockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(blockTimeoutMs);
+        this.flushIntervalMs = flushIntervalMs;
+        this.maxBatchSize = maxBatchSize;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.readWaitMs = readWaitMs;
+        this.ring = new RingBuffer<>(capacity);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        Gauge.builder("stats.write-behind.depth", ring, RingBuffer::size)
+                .description("Hits accepted but not yet written to the database")
+                .register(meterRegistry);
+        this.rejected = meterRegistry.counter("stats.write-behind.rejected");
+        this.failed = meterRegistry.counter("stats.write-behind.failed");
+        this.retried = meterRegistry.counter("stats.write-behind.retried");
+        this.flushLatency = Timer.builder("stats.write-behind.flush.latency")
+                .description("Time spent writing one batch of buffered hits")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isIncludePending() {
+        return enabled && includePending;
+    }
+
+    public synchronized void start(Consumer<List<EndpointHitEntity>> sink) {
+        if (!enabled || executor != null) {
+            return;
+        }
+        this.sink = sink;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stats-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void enqueue(EndpointHitEntity hit) {
+        if (ring.offer(hit)) {
+            scheduleFlushIfFull();
+            return;
+        }
+        if (blockWhenFull) {
+            long deadline = System.nanoTime() + blockTimeoutNanos;
+            while (System.nanoTime() < deadline) {
+                scheduleFlushIfFull();
+                LockSupport.parkNanos(100_000);
+                if (ring.offer(hit)) {
+                    return;
+                }
+            }
+        }
+        rejected.increment();
+        throw new TooManyRequestsException("Stats write buffer is full, retry later");
+    }
+
+    public int getDepth() {
+        return ring.size();
+    }
+
+    public void flush() {
+        if (sink == null) {
+            return;
+        }
+        drainLock.lock();
+        try {
+            if (!retryFailedBatch()) {
+                return;
+            }
+            List<EndpointHitEntity> batch = new ArrayList<>(maxBatchSize);
+            while (ring.drainTo(batch, maxBatchSize) > 0) {
+                if (!write(batch)) {
+                    retryBatch = List.copyOf(batch);
+                    retryAttempts = 1;
+                    return;
+                }
+                batch.clear();
+            }
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    /**
+     * Has the writer thread store everything buffered so far and waits for it up to
+     * {@code read-wait-ms}. Returns at once when nothing is pending.
+     */
+    public void awaitFlush() {
+        ScheduledExecutorService current = executor;
+        if (current == null || ring.size() == 0 && retryBatch == null) {
+            return;
+        }
+        CompletableFuture<Void> flushed;
+        synchronized (this) {
+            if (pendingFlush == null) {
+                CompletableFuture<Void> next = new CompletableFuture<>();
+                try {
+                    current.execute(() -> {
+                        synchronized (this) {
+                            pendingFlush = null;
+                        }
+                        try {
+                            flush();
+                        } finally {
+                            next.complete(null);
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    return;
+                }
+                pendingFlush = next;
+            }
+            flushed = pendingFlush;
+        }
+        try {
+            flushed.get(readWaitMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            log.debug("Reading without waiting for buffered hits: {}", e.toString());
+        }
+    }
+
+    /**
+     * Writes the batch that failed earlier, if any; returns whether draining may go on.
+     */
+    private boolean retryFailedBatch() {
+        if (retryBatch == null) {
+            return true;
+        }
+        retried.increment(retryBatch.size());
+        if (write(retryBatch)) {
+            retryBatch = null;
+            return true;
+        }
+        if (++retryAttempts < maxAttempts) {
+            return false;
+        }
+        failed.increment(retryBatch.size());
+        log.error("Dropping {} buffered hits after {} failed writes", retryBatch.size(), retryAttempts);
+        retryBatch = null;
+        return true;
+    }
+
+    private boolean write(List<EndpointHitEntity> batch) {
+        try {
+            flushLatency.record(() -> transactionTemplate.executeWithoutResult(status -> sink.accept(batch)));
+            return true;
+        } catch (Exception e) {
+            log.warn("Failed to write {} buffered hits: {}", batch.size(), e.getMessage());
+            return false;
+        }
+    }
+
+    private void scheduleFlushIfFull() {
+        ScheduledExecutorService current = executor;
+        if (ring.size() >= maxBatchSize && current != null && flushScheduled.compareAndSet(false, true)) {
+            try {
+                current.execute(() -> {
+                    flushScheduled.set(false);
+                    flush();
+                });
+            } catch (RejectedExecutionException e) {
+                flushScheduled.set(false);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        ScheduledExecutorService current;
+        synchronized (this) {
+            current = executor;
+            executor = null;
+        }
+        if (current == null) {
+            return;
+        }
+        current.shutdown();
+        try {
+            current.awaitTermination(flushIntervalMs * 2, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        drainLock.lock();
+        try {
+            if (retryBatch != null || ring.size() > 0) {
+                int lost = ring.size() + (retryBatch == null ? 0 : retryBatch.size());
+                failed.increment(lost);
+                log.error("Write-behind buffer closed with {} hits that could not be written", lost);
+                return;
+            }
+        } finally {
+            drainLock.unlock();
+        }
+        log.info("Write-behind buffer flushed on shutdown");
+    }
+}
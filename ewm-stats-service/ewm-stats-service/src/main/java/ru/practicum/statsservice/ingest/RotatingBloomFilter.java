@@ -0,0 +1,128 @@
+package ru.practicum.statsservice.ingest;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Bloom filter over a sliding time window, built from {@code generations} plain Bloom filters
+ * that each take new keys for {@code windowMs / generations}. When the newest generation is full
+ * in time the oldest one is cleared and reused, so a key is remembered for at least
+ * {@code windowMs * (generations - 1) / generations} and memory stays fixed. Lookups check every
+ * generation; false positives happen at roughly the configured rate, false negatives never
+ * happen for keys younger than {@link #coveredSince()}.
+ */
+public class RotatingBloomFilter {
+    private final int bits;
+    private final int hashes;
+    private final long generationMs;
+    private final LongSupplier clock;
+    private final int words;
+    private final AtomicReferenceArray<AtomicLongArray> generations;
+    private final AtomicLongArray startedAt;
+    private volatile int current;
+
+    public RotatingBloomFilter(long windowMs, int generations, long expectedPerGeneration, double falsePositiveRate,
+                               LongSupplier clock) {
+        double ln2 = Math.log(2);
+        long optimalBits = (long) Math.ceil(-expectedPerGeneration * Math.log(falsePositiveRate) / (ln2 * ln2));
+        this.bits = (int) Math.min(Integer.MAX_VALUE - 63L, Math.max(Long.SIZE, optimalBits));
+        this.hashes = Math.max(1, (int) Math.round((double) bits / expectedPerGeneration * ln2));
+        this.generationMs = Math.max(1, windowMs / generations);
+        this.clock = clock;
+        this.words = (bits + Long.SIZE - 1) / Long.SIZE;
+        this.generations = new AtomicReferenceArray<>(generations);
+        this.startedAt = new AtomicLongArray(generations);
+        long now = clock.getAsLong();
+        for (int i = 0; i < generations; i++) {
+            this.generations.set(i, new AtomicLongArray(words));
+            this.startedAt.set(i, now);
+        }
+    }
+
+    public boolean mightContain(UUID key) {
+        rotateIfDue();
+        long h1 = mix(key.getMostSignificantBits());
+        long h2 = mix(key.getLeastSignificantBits() ^ h1) | 1;
+        for (int i = 0; i < generations.length(); i++) {
+            if (contains(generations.get(i), h1, h2)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds the key to the current generation.
+     *
+     * @return {@code false} if the key may already have been added, {@code true} if it certainly
+     * was not
+     */
+    public boolean put(UUID key) {
+        boolean known = mightContain(key);
+        long h1 = mix(key.getMostSignificantBits());
+        long h2 = mix(key.getLeastSignificantBits() ^ h1) | 1;
+        AtomicLongArray generation = generations.get(current);
+        for (int i = 0; i < hashes; i++) {
+            int bit = index(h1, h2, i);
+            long mask = 1L << bit;
+            generation.getAndAccumulate(bit >>> 6, mask, (word, m) -> word | m);
+        }
+        return !known;
+    }
+
+    /**
+     * Time since which every added key is still remembered: the start of the oldest generation.
+     */
+    public synchronized long coveredSince() {
+        rotateIfDue();
+        return startedAt.get((current + 1) % generations.length());
+    }
+
+    private void rotateIfDue() {
+        if (clock.getAsLong() - startedAt.get(current) < generationMs) {
+            return;
+        }
+        synchronized (this) {
+            long now = clock.getAsLong();
+            long steps = (now - startedAt.get(current)) / generationMs;
+            if (steps >= generations.length()) {
+                for (int i = 0; i < generations.length(); i++) {
+                    generations.set(i, new AtomicLongArray(words));
+                    startedAt.set(i, now);
+                }
+                return;
+            }
+            for (long step = 0; step < steps; step++) {
+                int next = (current + 1) % generations.length();
+                generations.set(next, new AtomicLongArray(words));
+                startedAt.set(next, startedAt.get(current) + generationMs);
+                current = next;
+            }
+        }
+    }
+
+    private boolean contains(AtomicLongArray generation, long h1, long h2) {
+        for (int i = 0; i < hashes; i++) {
+            int bit = index(h1, h2, i);
+            if ((generation.get(bit >>> 6) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int index(long h1, long h2, int i) {
+        return (int) Long.remainderUnsigned(h1 + i * h2, bits);
+    }
+
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
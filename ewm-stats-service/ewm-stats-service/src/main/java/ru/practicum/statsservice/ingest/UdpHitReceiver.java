@@ -0,0 +1,197 @@
+package ru.practicum.statsservice.ingest;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.statsdto.HitBatchResult;
+import ru.practicum.statsdto.StatsWireFormat;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Fire-and-forget ingestion channel: listens on {@code stats.udp.port} for datagrams holding a
+ * {@link StatsWireFormat} hit batch and hands each batch to the regular batch ingestion path.
+ * One thread receives and decodes; a single writer stores batches from a bounded queue, and
+ * datagrams that arrive while the queue is full are dropped and counted. Nothing is acknowledged,
+ * so hits lost in the network or dropped here are gone for good.
+ */
+@Slf4j
+@Component
+public class UdpHitReceiver {
+    private final boolean enabled;
+    private final String host;
+    private final int port;
+    private final int maxDatagramSize;
+    private final int receiveBufferSize;
+    private final int queueCapacity;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter received;
+    private final Counter malformed;
+    private final Counter dropped;
+    private final Counter rejectedHits;
+    private volatile DatagramChannel channel;
+    private volatile ThreadPoolExecutor writer;
+
+    public UdpHitReceiver(@Value("${stats.udp.enabled:false}") boolean enabled,
+                          @Value("${stats.udp.host:0.0.0.0}") String host,
+                          @Value("${stats.udp.port:9091}") int port,
+                          @Value("${stats.udp.max-datagram-size:65507}") int maxDatagramSize,
+                          @Value("${stats.udp.receive-buffer-bytes:4194304}") int receiveBufferSize,
+                          @Value("${stats.udp.queue-capacity:1024}") int queueCapacity,
+                          PlatformTransactionManager transactionManager,
+                          MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.host = host;
+        this.port = port;
+        this.maxDatagramSize = maxDatagramSize;
+        this.receiveBufferSize = receiveBufferSize;
+        this.queueCapacity = queueCapacity;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.received = meterRegistry.counter("stats.udp.datagrams.received");
+        this.malformed = meterRegistry.counter("stats.udp.datagrams.malformed");
+        this.dropped = meterRegistry.counter("stats.udp.datagrams.dropped");
+        this.rejectedHits = meterRegistry.counter("stats.udp.hits.rejected");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Port the channel is bound to, which differs from {@code stats.udp.port} when that is 0.
+     */
+    public int getLocalPort() {
+        DatagramChannel current = channel;
+        if (current == null) {
+            return -1;
+        }
+        try {
+            return ((InetSocketAddress) current.getLocalAddress()).getPort();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    public synchronized void start(Function<List<StatsWireFormat.WireHit>, HitBatchResult> sink) {
+        if (!enabled || channel != null) {
+            return;
+        }
+        try {
+            DatagramChannel opened = DatagramChannel.open();
+            opened.setOption(StandardSocketOptions.SO_RCVBUF, receiveBufferSize);
+            opened.bind(new InetSocketAddress(host, port));
+            channel = opened;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot bind UDP hit receiver to " + host + ":" + port, e);
+        }
+        writer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "stats-udp-writer");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        DatagramChannel current = channel;
+        ThreadPoolExecutor currentWriter = writer;
+        Thread receiver = new Thread(() -> receive(current, currentWriter, sink), "stats-udp-receiver");
+        receiver.setDaemon(true);
+        receiver.start();
+        log.info("Receiving hits over UDP on port {}", getLocalPort());
+    }
+
+    private void receive(DatagramChannel current, ThreadPoolExecutor currentWriter,
+                         Function<List<StatsWireFormat.WireHit>, HitBatchResult> sink) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(maxDatagramSize);
+        while (current.isOpen()) {
+            try {
+                buffer.clear();
+                if (current.receive(buffer) == null) {
+                    continue;
+                }
+                buffer.flip();
+                received.increment();
+                handle(buffer, currentWriter, sink);
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                log.warn("UDP receive failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void handle(ByteBuffer datagram, ThreadPoolExecutor currentWriter,
+                        Function<List<StatsWireFormat.WireHit>, HitBatchResult> sink) {
+        List<StatsWireFormat.WireHit> hits;
+        try {
+            hits = StatsWireFormat.decodeHits(datagram);
+        } catch (IllegalArgumentException e) {
+            malformed.increment();
+            return;
+        }
+        if (hits.isEmpty()) {
+            return;
+        }
+        try {
+            currentWriter.execute(() -> store(hits, sink));
+        } catch (RejectedExecutionException e) {
+            dropped.increment();
+        }
+    }
+
+    private void store(List<StatsWireFormat.WireHit> hits,
+                       Function<List<StatsWireFormat.WireHit>, HitBatchResult> sink) {
+        try {
+            HitBatchResult result = transactionTemplate.execute(status -> sink.apply(hits));
+            if (result != null && result.getRejected() != null) {
+                rejectedHits.increment(result.getRejected().size());
+            }
+        } catch (Exception e) {
+            dropped.increment();
+            log.error("Failed to store {} hits received over UDP", hits.size(), e);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        DatagramChannel current;
+        ThreadPoolExecutor currentWriter;
+        synchronized (this) {
+            current = channel;
+            currentWriter = writer;
+            channel = null;
+            writer = null;
+        }
+        if (current == null) {
+            return;
+        }
+        try {
+            current.close();
+        } catch (IOException e) {
+            log.warn("Failed to close UDP hit receiver: {}", e.getMessage());
+        }
+        currentWriter.shutdown();
+        try {
+            currentWriter.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
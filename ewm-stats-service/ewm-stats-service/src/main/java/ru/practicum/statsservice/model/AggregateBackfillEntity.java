@@ -0,0 +1,32 @@
+package ru.practicum.statsservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Progress of one aggregate's backfill from raw hits: hits up to {@code targetHitId} existed
+ * when it started, those up to {@code lastHitId} are already folded in.
+ */
+@Entity
+@Table(name = "aggregate_backfill")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AggregateBackfillEntity {
+    @Id
+    @Column(length = 32)
+    private String name;
+
+    @Column(name = "last_hit_id", nullable = false)
+    private long lastHitId;
+
+    @Column(name = "target_hit_id", nullable = false)
+    private long targetHitId;
+
+    @Column(nullable = false)
+    private boolean completed;
+}
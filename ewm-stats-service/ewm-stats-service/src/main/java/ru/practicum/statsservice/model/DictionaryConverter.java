@@ -0,0 +1,41 @@
+package ru.practicum.statsservice.model;
+
+import jakarta.persistence.AttributeConverter;
+import ru.practicum.statsservice.repository.HitDictionary;
+
+/**
+ * Stores a string attribute as its {@link HitDictionary} id. Values are only looked up here;
+ * {@link EndpointHitListener} interns them before an entity is inserted, so binding an unknown
+ * value as a query parameter yields {@link HitDictionary#UNKNOWN} and matches no rows.
+ */
+public abstract class DictionaryConverter implements AttributeConverter<String, Integer> {
+    private final HitDictionary dictionary;
+    private final HitDictionary.Kind kind;
+
+    protected DictionaryConverter(HitDictionary dictionary, HitDictionary.Kind kind) {
+        this.dictionary = dictionary;
+        this.kind = kind;
+    }
+
+    @Override
+    public Integer convertToDatabaseColumn(String attribute) {
+        return attribute == null ? null : dictionary.lookup(kind, attribute);
+    }
+
+    @Override
+    public String convertToEntityAttribute(Integer dbData) {
+        return dbData == null ? null : dictionary.resolve(dbData);
+    }
+
+    public static class App extends DictionaryConverter {
+        public App(HitDictionary dictionary) {
+            super(dictionary, HitDictionary.Kind.APP);
+        }
+    }
+
+    public static class Uri extends DictionaryConverter {
+        public Uri(HitDictionary dictionary) {
+            super(dictionary, HitDictionary.Kind.URI);
+        }
+    }
+}
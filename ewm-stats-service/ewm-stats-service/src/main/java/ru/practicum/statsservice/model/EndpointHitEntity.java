@@ -7,9 +7,12 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
+import java.util.UUID;
 
 @Entity
-@Table(name = "endpoint_hits")
+@Table(name = "endpoint_hits",
+        uniqueConstraints = @UniqueConstraint(name = "ux_endpoint_hits_hit_id", columnNames = {"hit_id", "timestamp"}))
+@EntityListeners(EndpointHitListener.class)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -19,15 +22,21 @@ public class EndpointHitEntity {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(nullable = false)
+    @Convert(converter = DictionaryConverter.App.class)
+    @Column(name = "app_id", nullable = false)
     private String app;
 
-    @Column(nullable = false)
+    @Convert(converter = DictionaryConverter.Uri.class)
+    @Column(name = "uri_id", nullable = false)
     private String uri;
 
-    @Column(nullable = false)
+    @Convert(converter = IpAddressConverter.class)
+    @Column(nullable = false, length = IpAddressConverter.MAX_LENGTH)
     private String ip;
 
     @Column(nullable = false)
     private LocalDateTime timestamp;
+
+    @Column(name = "hit_id")
+    private UUID hitId;
 }
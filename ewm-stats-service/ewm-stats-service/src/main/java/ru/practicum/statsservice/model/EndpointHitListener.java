@@ -0,0 +1,18 @@
+package ru.practicum.statsservice.model;
+
+import jakarta.persistence.PrePersist;
+import ru.practicum.statsservice.repository.HitDictionary;
+
+public class EndpointHitListener {
+    private final HitDictionary dictionary;
+
+    public EndpointHitListener(HitDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    @PrePersist
+    public void intern(EndpointHitEntity hit) {
+        dictionary.intern(HitDictionary.Kind.APP, hit.getApp());
+        dictionary.intern(HitDictionary.Kind.URI, hit.getUri());
+    }
+}
@@ -0,0 +1,25 @@
+package ru.practicum.statsservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "hit_compaction")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class HitCompactionEntity {
+    public static final long SINGLETON_ID = 1L;
+
+    @Id
+    private Long id;
+
+    @Column(name = "compacted_before", nullable = false)
+    private LocalDateTime compactedBefore;
+}
@@ -0,0 +1,26 @@
+package ru.practicum.statsservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Entity
+@Table(name = "hit_dictionary",
+        uniqueConstraints = @UniqueConstraint(name = "ux_hit_dictionary_kind_name", columnNames = {"kind", "name"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class HitDictionaryEntity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @Column(nullable = false, length = 8)
+    private String kind;
+
+    @Column(nullable = false)
+    private String name;
+}
@@ -0,0 +1,39 @@
+package ru.practicum.statsservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "hit_rollups",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"granularity", "bucket_start", "app", "uri"}),
+        indexes = @Index(name = "idx_hit_rollups_bucket", columnList = "granularity, bucket_start"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class HitRollupEntity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private RollupGranularity granularity;
+
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+
+    @Column(nullable = false)
+    private String app;
+
+    @Column(nullable = false)
+    private String uri;
+
+    @Column(nullable = false)
+    private Long hits;
+}
@@ -0,0 +1,144 @@
+package ru.practicum.statsservice.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Stores ip addresses as 4 (IPv4) or 16 (IPv6) raw bytes. Only plain literals are parsed, never
+ * resolved, so no value triggers a DNS lookup. Anything else, including bracketed or scoped IPv6,
+ * is kept as its UTF-8 text behind one or two zero bytes, chosen so the length never looks like an
+ * address, so it still round-trips; {@link #MAX_LENGTH} bytes fit any 255-character text. IPv6
+ * addresses are read back in their full form, e.g. {@code ::1} as {@code 0:0:0:0:0:0:0:1}.
+ */
+@Converter
+public class IpAddressConverter implements AttributeConverter<String, byte[]> {
+    public static final int MAX_LENGTH = 255 * 4 + 2;
+
+    @Override
+    public byte[] convertToDatabaseColumn(String attribute) {
+        if (attribute == null) {
+            return null;
+        }
+        byte[] address = parseIpv4(attribute);
+        if (address == null && attribute.indexOf(':') >= 0) {
+            address = parseIpv6(attribute);
+        }
+        if (address != null) {
+            return address;
+        }
+        byte[] text = attribute.getBytes(StandardCharsets.UTF_8);
+        int prefix = text.length + 1 == 4 || text.length + 1 == 16 ? 2 : 1;
+        byte[] encoded = new byte[text.length + prefix];
+        System.arraycopy(text, 0, encoded, prefix, text.length);
+        return encoded;
+    }
+
+    @Override
+    public String convertToEntityAttribute(byte[] dbData) {
+        if (dbData == null) {
+            return null;
+        }
+        if (dbData.length == 4 || dbData.length == 16) {
+            try {
+                return InetAddress.getByAddress(dbData).getHostAddress();
+            } catch (UnknownHostException e) {
+                throw new IllegalStateException("Invalid stored ip address", e);
+            }
+        }
+        int prefix = dbData.length > 1 && dbData[1] == 0 ? 2 : 1;
+        return new String(Arrays.copyOfRange(dbData, prefix, dbData.length), StandardCharsets.UTF_8);
+    }
+
+    private byte[] parseIpv4(String value) {
+        byte[] address = new byte[4];
+        int part = 0;
+        int octet = -1;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                octet = octet < 0 ? c - '0' : octet * 10 + (c - '0');
+                if (octet > 255) {
+                    return null;
+                }
+            } else if (c == '.' && octet >= 0 && part < 3) {
+                address[part++] = (byte) octet;
+                octet = -1;
+            } else {
+                return null;
+            }
+        }
+        if (part != 3 || octet < 0) {
+            return null;
+        }
+        address[3] = (byte) octet;
+        return address;
+    }
+
+    private byte[] parseIpv6(String value) {
+        int gap = value.indexOf("::");
+        if (gap >= 0 && value.indexOf("::", gap + 1) >= 0) {
+            return null;
+        }
+        byte[] head = parseGroups(gap < 0 ? value : value.substring(0, gap), gap < 0);
+        byte[] tail = gap < 0 ? new byte[0] : parseGroups(value.substring(gap + 2), true);
+        if (head == null || tail == null) {
+            return null;
+        }
+        int zeros = 16 - head.length - tail.length;
+        if (gap < 0 ? zeros != 0 : zeros < 2) {
+            return null;
+        }
+        byte[] address = new byte[16];
+        System.arraycopy(head, 0, address, 0, head.length);
+        System.arraycopy(tail, 0, address, 16 - tail.length, tail.length);
+        return address;
+    }
+
+    /**
+     * Parses colon-separated groups of up to four hex digits; with {@code last} set the final group
+     * may be a dotted IPv4 address.
+     */
+    private byte[] parseGroups(String value, boolean last) {
+        if (value.isEmpty()) {
+            return new byte[0];
+        }
+        String[] groups = value.split(":", -1);
+        if (groups.length > 8) {
+            return null;
+        }
+        byte[] bytes = new byte[groups.length * 2 + 2];
+        int length = 0;
+        for (int i = 0; i < groups.length; i++) {
+            String group = groups[i];
+            if (last && i == groups.length - 1 && group.indexOf('.') >= 0) {
+                byte[] ipv4 = parseIpv4(group);
+                if (ipv4 == null) {
+                    return null;
+                }
+                System.arraycopy(ipv4, 0, bytes, length, 4);
+                length += 4;
+                continue;
+            }
+            if (group.isEmpty() || group.length() > 4) {
+                return null;
+            }
+            int word = 0;
+            for (int j = 0; j < group.length(); j++) {
+                char c = group.charAt(j);
+                int digit = c < 128 ? Character.digit(c, 16) : -1;
+                if (digit < 0) {
+                    return null;
+                }
+                word = word * 16 + digit;
+            }
+            bytes[length++] = (byte) (word >> 8);
+            bytes[length++] = (byte) word;
+        }
+        return length <= 16 ? Arrays.copyOf(bytes, length) : null;
+    }
+}
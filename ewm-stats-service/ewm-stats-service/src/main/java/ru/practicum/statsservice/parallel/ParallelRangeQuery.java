@@ -0,0 +1,226 @@
+package ru.practicum.statsservice.parallel;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.statsdto.ViewStats;
+import ru.practicum.statsservice.exception.StatsServiceException;
+import ru.practicum.statsservice.model.RollupGranularity;
+import ru.practicum.statsservice.repository.EndpointHitRepository;
+import ru.practicum.statsservice.service.HitCounts;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.Predicate;
+
+/**
+ * Answers long raw-hit queries by splitting the range at day boundaries (which are also the
+ * partition boundaries of {@code endpoint_hits}) into slices of {@code slice-days}. The calling
+ * thread works through the slices on its own connection while up to {@code max-concurrency}
+ * helpers on virtual threads take slices as well, each in its own read-only transaction. A
+ * helper only takes a slice once that transaction holds a connection, so a caller never waits
+ * on a helper that is itself waiting for the pool; with the pool exhausted the caller simply
+ * does all slices. Hit counts of the slices are summed; unique visitors are merged as the exact
+ * union of each slice's distinct ips, and once the union grows past {@code max-unique-ips} the
+ * range is counted by a single {@code COUNT(DISTINCT)} query instead.
+ */
+@Slf4j
+@Component
+public class ParallelRangeQuery {
+    private final boolean enabled;
+    private final int sliceDays;
+    private final int minDays;
+    private final int maxConcurrency;
+    private final int maxUniqueIps;
+    private final EndpointHitRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final Semaphore permits;
+    private final ExecutorService executor;
+    private final Counter slices;
+    private final Counter uniqueFallbacks;
+
+    @Autowired
+    public ParallelRangeQuery(@Value("${stats.parallel.enabled:false}") boolean enabled,
+                              @Value("${stats.parallel.slice-days:7}") int sliceDays,
+                              @Value("${stats.parallel.min-days:14}") int minDays,
+                              @Value("${stats.parallel.max-concurrency:4}") int maxConcurrency,
+                              @Value("${stats.parallel.max-unique-ips:1000000}") int maxUniqueIps,
+                              EndpointHitRepository repository,
+                              PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.sliceDays = Math.max(1, sliceDays);
+        this.minDays = minDays;
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.maxUniqueIps = maxUniqueIps;
+        this.repository = repository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.transactionTemplate.setReadOnly(true);
+        this.permits = new Semaphore(this.maxConcurrency);
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("stats-range-", 0).factory());
+        this.slices = meterRegistry.counter("stats.parallel.slices");
+        this.uniqueFallbacks = meterRegistry.counter("stats.parallel.unique.fallbacks");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean shouldSplit(LocalDateTime start, LocalDateTime end) {
+        return enabled && start.plusDays(minDays).isBefore(end);
+    }
+
+    public List<ViewStats> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique) {
+        List<Slice> ranges = split(start, end);
+        if (!unique) {
+            HitCounts counts = new HitCounts();
+            run(ranges, slice -> slice.last() ?
+                    repository.getStats(slice.from(), slice.to(), uris) :
+                    repository.countInRange(slice.from(), slice.to(), uris), rows -> {
+                counts.addRows(rows);
+                return true;
+            });
+            return counts.toViewStats();
+        }
+        Map<Key, Set<String>> ips = new HashMap<>();
+        AtomicInteger collected = new AtomicInteger();
+        boolean complete = run(ranges, slice -> slice.last() ?
+                repository.findDistinctIpsBetween(slice.from(), slice.to(), uris) :
+                repository.findDistinctIps(slice.from(), slice.to(), uris), rows -> {
+            for (Object[] row : rows) {
+                if (ips.computeIfAbsent(new Key(Objects.toString(row[0]), Objects.toString(row[1])), k -> new HashSet<>())
+                        .add(Objects.toString(row[2]))) {
+                    collected.incrementAndGet();
+                }
+            }
+            return collected.get() <= maxUniqueIps;
+        });
+        HitCounts counts = new HitCounts();
+        if (!complete) {
+            ips.clear();
+            uniqueFallbacks.increment();
+            log.debug("More than {} distinct ips between {} and {}, counting them in one query", maxUniqueIps,
+                    start, end);
+            counts.addRows(repository.getStatsUnique(start, end, uris));
+            return counts.toViewStats();
+        }
+        ips.forEach((key, set) -> counts.add(key.app(), key.uri(), set.size()));
+        return counts.toViewStats();
+    }
+
+    /**
+     * Day-aligned slices covering {@code [start, end]}; all but the last are half-open, the last
+     * one includes {@code end} like the {@code /stats} query itself.
+     */
+    List<Slice> split(LocalDateTime start, LocalDateTime end) {
+        List<Slice> ranges = new ArrayList<>();
+        LocalDateTime from = start;
+        LocalDateTime to = RollupGranularity.DAY.floor(start).plusDays(sliceDays);
+        while (to.isBefore(end)) {
+            ranges.add(new Slice(from, to, false));
+            from = to;
+            to = to.plusDays(sliceDays);
+        }
+        ranges.add(new Slice(from, end, true));
+        return ranges;
+    }
+
+    /**
+     * Queries the slices and hands each result to {@code merge} in slice order, so results are
+     * dropped as soon as they are merged. Returns {@code false} as soon as {@code merge} does,
+     * leaving the remaining slices unqueried.
+     */
+    private boolean run(List<Slice> ranges, Function<Slice, List<Object[]>> query,
+                        Predicate<List<Object[]>> merge) {
+        List<CompletableFuture<List<Object[]>>> results = new ArrayList<>(ranges.size());
+        ranges.forEach(slice -> results.add(new CompletableFuture<>()));
+        AtomicInteger next = new AtomicInteger();
+        IntConsumer runSlice = i -> {
+            try {
+                results.get(i).complete(query.apply(ranges.get(i)));
+            } catch (RuntimeException e) {
+                next.set(ranges.size());
+                results.get(i).completeExceptionally(e);
+            }
+        };
+        Runnable worker = () -> {
+            for (int i = next.getAndIncrement(); i < ranges.size(); i = next.getAndIncrement()) {
+                runSlice.accept(i);
+            }
+        };
+        for (int i = 0; i < Math.min(maxConcurrency, ranges.size() - 1); i++) {
+            executor.execute(() -> help(worker));
+        }
+        slices.increment(ranges.size());
+        try {
+            for (int i = 0; i < ranges.size(); i++) {
+                CompletableFuture<List<Object[]>> result = results.get(i);
+                int claimed;
+                while (!result.isDone() && (claimed = next.getAndIncrement()) < ranges.size()) {
+                    runSlice.accept(claimed);
+                }
+                if (!merge.test(result.get())) {
+                    next.set(ranges.size());
+                    return false;
+                }
+                results.set(i, null);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            next.set(ranges.size());
+            throw new StatsServiceException("Interrupted while querying stats", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new StatsServiceException("Internal error while getting stats", e.getCause());
+        }
+        return true;
+    }
+
+    private void help(Runnable worker) {
+        if (!permits.tryAcquire()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> worker.run());
+        } catch (RuntimeException e) {
+            log.debug("Range query helper could not start: {}", e.getMessage());
+        } finally {
+            permits.release();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    record Slice(LocalDateTime from, LocalDateTime to, boolean last) {
+    }
+
+    private record Key(String app, String uri) {
+    }
+}
@@ -0,0 +1,198 @@
+package ru.practicum.statsservice.partition;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.statsservice.repository.DatabaseDialect;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * Keeps {@code endpoint_hits} range-partitioned by day or month on PostgreSQL: partitions for the
+ * next {@code premake} periods are created ahead of time, and once {@code retention-days} is set,
+ * partitions that end before the retention horizon are dropped as a whole instead of deleting rows.
+ * Hits that fell into the default partition and the rollup, sketch and top buckets before the
+ * first kept partition are deleted at the same time, so aggregated and {@code exact=true} stats
+ * cover the same days. Does nothing on other databases or when the table was created unpartitioned.
+ */
+@Slf4j
+@Component
+public class HitPartitionManager {
+    private static final String TABLE = "endpoint_hits";
+    private static final String PARTITIONED_SQL = "SELECT COUNT(*) FROM pg_partitioned_table pt " +
+            "JOIN pg_class c ON c.oid = pt.partrelid WHERE c.relname = ? AND pg_table_is_visible(c.oid)";
+    private static final String PARTITIONS_SQL = "SELECT c.relname FROM pg_inherits i " +
+            "JOIN pg_class c ON c.oid = i.inhrelid JOIN pg_class p ON p.oid = i.inhparent " +
+            "WHERE p.relname = ? AND pg_table_is_visible(p.oid)";
+    private static final List<String> AGGREGATE_TABLES = List.of("hit_rollups", "hit_sketches", "hit_top_sketches");
+    private final boolean enabled;
+    private final boolean monthly;
+    private final int premake;
+    private final int retentionDays;
+    private final JdbcTemplate jdbcTemplate;
+    private final DatabaseDialect dialect;
+    private final Clock clock;
+    private volatile Boolean partitioned;
+
+    @Autowired
+    public HitPartitionManager(@Value("${stats.partitioning.enabled:false}") boolean enabled,
+                               @Value("${stats.partitioning.interval:day}") String interval,
+                               @Value("${stats.partitioning.premake:7}") int premake,
+                               @Value("${stats.partitioning.retention-days:0}") int retentionDays,
+                               JdbcTemplate jdbcTemplate) {
+        this(enabled, interval, premake, retentionDays, jdbcTemplate, Clock.systemDefaultZone());
+    }
+
+    HitPartitionManager(boolean enabled, String interval, int premake, int retentionDays, JdbcTemplate jdbcTemplate,
+                        Clock clock) {
+        this.enabled = enabled;
+        this.monthly = "month".equalsIgnoreCase(interval);
+        this.premake = premake;
+        this.retentionDays = retentionDays;
+        this.jdbcTemplate = jdbcTemplate;
+        this.dialect = new DatabaseDialect(jdbcTemplate);
+        this.clock = clock;
+    }
+
+    public boolean isActive() {
+        if (!enabled || !dialect.isPostgres()) {
+            return false;
+        }
+        Boolean result = partitioned;
+        if (result == null) {
+            Integer count = jdbcTemplate.queryForObject(PARTITIONED_SQL, Integer.class, TABLE);
+            result = count != null && count > 0;
+            if (!result) {
+                log.warn("Table {} is not partitioned, partition maintenance is disabled", TABLE);
+            }
+            partitioned = result;
+        }
+        return result;
+    }
+
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${stats.partitioning.check-interval-ms:3600000}",
+            initialDelayString = "${stats.partitioning.check-interval-ms:3600000}")
+    public void maintain() {
+        if (!isActive()) {
+            return;
+        }
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + TABLE + "_default PARTITION OF " + TABLE + " DEFAULT");
+        LocalDate current = periodStart(LocalDate.now(clock));
+        for (int i = 0; i <= premake; i++) {
+            createPartition(current);
+            current = nextPeriod(current);
+        }
+        if (retentionDays > 0) {
+            LocalDate horizon = LocalDate.now(clock).minusDays(retentionDays);
+            dropExpired(horizon);
+            deleteExpired(periodStart(horizon));
+        }
+    }
+
+    /**
+     * Creates the partition for the period starting at {@code from}. PostgreSQL refuses to create a
+     * partition while the default partition holds rows of its range (hits written before partitioning
+     * or migrated from the old table), so those rows are moved into a new table that is then attached
+     * as the partition, all in one statement.
+     */
+    private void createPartition(LocalDate from) {
+        String partition = partitionName(from);
+        LocalDate to = nextPeriod(from);
+        try {
+            Boolean stranded = jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM " + TABLE + "_default " +
+                    "WHERE timestamp >= ? AND timestamp < ?)", Boolean.class,
+                    Timestamp.valueOf(from.atStartOfDay()), Timestamp.valueOf(to.atStartOfDay()));
+            if (!Boolean.TRUE.equals(stranded)) {
+                jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partition + " PARTITION OF " + TABLE +
+                        " FOR VALUES FROM ('" + from + "') TO ('" + to + "')");
+                return;
+            }
+            jdbcTemplate.execute("DO $$ BEGIN " +
+                    "CREATE TABLE " + partition + " (LIKE " + TABLE + " INCLUDING DEFAULTS); " +
+                    "WITH moved AS (DELETE FROM " + TABLE + "_default WHERE timestamp >= '" + from + "' " +
+                    "AND timestamp < '" + to + "' RETURNING *) INSERT INTO " + partition + " SELECT * FROM moved; " +
+                    "ALTER TABLE " + TABLE + " ATTACH PARTITION " + partition +
+                    " FOR VALUES FROM ('" + from + "') TO ('" + to + "'); " +
+                    "END $$");
+            log.info("Moved hits of {} from {}_default into new partition {}", from, TABLE, partition);
+        } catch (Exception e) {
+            log.error("Failed to create partition {}, its hits stay in {}_default", partition, TABLE, e);
+        }
+    }
+
+    private void dropExpired(LocalDate horizon) {
+        List<String> partitions = jdbcTemplate.queryForList(PARTITIONS_SQL, String.class, TABLE);
+        for (String partition : partitions) {
+            LocalDate end = partitionEnd(partition);
+            if (end != null && !end.isAfter(horizon)) {
+                jdbcTemplate.execute("DROP TABLE IF EXISTS " + partition);
+                log.info("Dropped expired partition {}", partition);
+            }
+        }
+    }
+
+    /**
+     * Deletes what the dropped partitions no longer back: rows of the default partition and
+     * aggregate buckets starting before {@code cutoff}, the start of the oldest kept partition.
+     */
+    private void deleteExpired(LocalDate cutoff) {
+        Timestamp before = Timestamp.valueOf(cutoff.atStartOfDay());
+        int hits = jdbcTemplate.update("DELETE FROM " + TABLE + "_default WHERE timestamp < ?", before);
+        if (hits > 0) {
+            log.info("Deleted {} expired hits from {}_default", hits, TABLE);
+        }
+        for (String table : AGGREGATE_TABLES) {
+            try {
+                int buckets = jdbcTemplate.update("DELETE FROM " + table + " WHERE bucket_start < ?", before);
+                if (buckets > 0) {
+                    log.info("Deleted {} expired buckets from {}", buckets, table);
+                }
+            } catch (Exception e) {
+                log.warn("Failed to delete expired buckets from {}: {}", table, e.getMessage());
+            }
+        }
+    }
+
+    String partitionName(LocalDate from) {
+        return TABLE + "_p" + from.format(formatter());
+    }
+
+    LocalDate partitionEnd(String partition) {
+        String prefix = TABLE + "_p";
+        if (!partition.startsWith(prefix)) {
+            return null;
+        }
+        String suffix = partition.substring(prefix.length());
+        try {
+            if (suffix.length() == 6) {
+                return LocalDate.parse(suffix + "01", DateTimeFormatter.BASIC_ISO_DATE).plusMonths(1);
+            }
+            return LocalDate.parse(suffix, DateTimeFormatter.BASIC_ISO_DATE).plusDays(1);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private LocalDate periodStart(LocalDate date) {
+        return monthly ? date.withDayOfMonth(1) : date;
+    }
+
+    private LocalDate nextPeriod(LocalDate from) {
+        return from.plus(1, monthly ? ChronoUnit.MONTHS : ChronoUnit.DAYS);
+    }
+
+    private DateTimeFormatter formatter() {
+        return monthly ? DateTimeFormatter.ofPattern("yyyyMM") : DateTimeFormatter.BASIC_ISO_DATE;
+    }
+}
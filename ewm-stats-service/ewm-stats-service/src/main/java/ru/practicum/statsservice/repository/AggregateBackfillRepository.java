@@ -0,0 +1,7 @@
+package ru.practicum.statsservice.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import ru.practicum.statsservice.model.AggregateBackfillEntity;
+
+public interface AggregateBackfillRepository extends JpaRepository<AggregateBackfillEntity, String> {
+}
@@ -1,17 +1,60 @@
 package ru.practicum.statsservice.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import ru.practicum.statsservice.model.EndpointHitEntity;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
 
-public interface EndpointHitRepository extends JpaRepository<EndpointHitEntity, Long> {
+public interface EndpointHitRepository extends JpaRepository<EndpointHitEntity, Long>, EndpointHitRepositoryCustom {
     @Query("SELECT e.app as app, e.uri as uri, COUNT(e) as hits FROM EndpointHitEntity e WHERE e.timestamp BETWEEN :start AND :end AND (:uris IS NULL OR e.uri IN :uris) GROUP BY e.app, e.uri ORDER BY hits DESC")
     List<Object[]> getStats(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end, @Param("uris") List<String> uris);
 
     @Query("SELECT e.app as app, e.uri as uri, COUNT(DISTINCT e.ip) as hits FROM EndpointHitEntity e WHERE e.timestamp BETWEEN :start AND :end AND (:uris IS NULL OR e.uri IN :uris) GROUP BY e.app, e.uri ORDER BY hits DESC")
     List<Object[]> getStatsUnique(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end, @Param("uris") List<String> uris);
-}
\ No newline at end of file
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT e.app as app, e.uri as uri, COUNT(e) as hits FROM EndpointHitEntity e WHERE e.timestamp BETWEEN :start AND :end AND (:uris IS NULL OR e.uri IN :uris) GROUP BY e.app, e.uri ORDER BY hits DESC")
+    Stream<Object[]> streamStats(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end, @Param("uris") List<String> uris);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT e.app as app, e.uri as uri, COUNT(DISTINCT e.ip) as hits FROM EndpointHitEntity e WHERE e.timestamp BETWEEN :start AND :end AND (:uris IS NULL OR e.uri IN :uris) GROUP BY e.app, e.uri ORDER BY hits DESC")
+    Stream<Object[]> streamStatsUnique(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end, @Param("uris") List<String> uris);
+
+    @Query("SELECT e.app as app, e.uri as uri, COUNT(e) as hits FROM EndpointHitEntity e WHERE e.timestamp >= :from AND e.timestamp < :to AND (:uris IS NULL OR e.uri IN :uris) GROUP BY e.app, e.uri")
+    List<Object[]> countInRange(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to, @Param("uris") List<String> uris);
+
+    @Query("SELECT DISTINCT e.app, e.uri, e.ip FROM EndpointHitEntity e WHERE e.timestamp >= :from AND e.timestamp < :to AND (:uris IS NULL OR e.uri IN :uris)")
+    List<Object[]> findDistinctIps(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to, @Param("uris") List<String> uris);
+
+    @Query("SELECT DISTINCT e.app, e.uri, e.ip FROM EndpointHitEntity e WHERE e.timestamp BETWEEN :start AND :end AND (:uris IS NULL OR e.uri IN :uris)")
+    List<Object[]> findDistinctIpsBetween(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end, @Param("uris") List<String> uris);
+
+    @Query("SELECT e.hitId FROM EndpointHitEntity e WHERE e.hitId IN :hitIds AND e.timestamp BETWEEN :from AND :to")
+    List<UUID> findExistingHitIds(@Param("hitIds") Collection<UUID> hitIds, @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    List<EndpointHitEntity> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    List<EndpointHitEntity> findByIdGreaterThanAndIdLessThanEqualOrderByIdAsc(Long after, Long upTo, Pageable pageable);
+
+    @Query("SELECT COALESCE(MAX(e.id), 0) FROM EndpointHitEntity e")
+    long findMaxId();
+
+    List<EndpointHitEntity> findByTimestampGreaterThanEqualAndIdGreaterThanOrderByIdAsc(LocalDateTime from, Long id, Pageable pageable);
+
+    List<EndpointHitEntity> findByTimestampGreaterThanEqualAndTimestampLessThanAndIdGreaterThanOrderByIdAsc(LocalDateTime from, LocalDateTime to, Long id, Pageable pageable);
+
+    long countByTimestampGreaterThanEqualAndTimestampLessThan(LocalDateTime from, LocalDateTime to);
+
+    Optional<EndpointHitEntity> findFirstByOrderByTimestampAsc();
+}
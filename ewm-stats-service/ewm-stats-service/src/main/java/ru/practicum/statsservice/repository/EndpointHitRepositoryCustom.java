@@ -0,0 +1,18 @@
+package ru.practicum.statsservice.repository;
+
+import ru.practicum.statsservice.model.EndpointHitEntity;
+import ru.practicum.statsservice.model.RollupGranularity;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+public interface EndpointHitRepositoryCustom {
+
+    void insertAll(List<EndpointHitEntity> hits);
+
+    int deleteBatchBefore(LocalDateTime before, int limit);
+
+    Map<LocalDateTime, Long> countByBucket(String uri, RollupGranularity granularity, LocalDateTime from,
+                                           LocalDateTime to, boolean inclusiveEnd, boolean unique);
+}
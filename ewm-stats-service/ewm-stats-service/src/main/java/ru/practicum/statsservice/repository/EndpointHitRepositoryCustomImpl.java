@@ -0,0 +1,73 @@
+package ru.practicum.statsservice.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.statsservice.model.EndpointHitEntity;
+import ru.practicum.statsservice.model.IpAddressConverter;
+import ru.practicum.statsservice.model.RollupGranularity;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+public class EndpointHitRepositoryCustomImpl implements EndpointHitRepositoryCustom {
+    private static final String INSERT_SQL = "INSERT INTO endpoint_hits (app_id, uri_id, ip, timestamp, hit_id) VALUES (?, ?, ?, ?, ?)";
+    private static final String DELETE_BATCH_SQL = "DELETE FROM endpoint_hits WHERE id IN " +
+            "(SELECT id FROM endpoint_hits WHERE timestamp < ? ORDER BY id LIMIT ?)";
+    private static final int BATCH_SIZE = 500;
+    private final JdbcTemplate jdbcTemplate;
+    private final HitDictionary dictionary;
+    private final IpAddressConverter ipConverter = new IpAddressConverter();
+
+    @Autowired
+    public EndpointHitRepositoryCustomImpl(JdbcTemplate jdbcTemplate, HitDictionary dictionary) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dictionary = dictionary;
+    }
+
+    @Override
+    public void insertAll(List<EndpointHitEntity> hits) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, hits, BATCH_SIZE, (ps, hit) -> {
+            ps.setInt(1, dictionary.intern(HitDictionary.Kind.APP, hit.getApp()));
+            ps.setInt(2, dictionary.intern(HitDictionary.Kind.URI, hit.getUri()));
+            ps.setBytes(3, ipConverter.convertToDatabaseColumn(hit.getIp()));
+            ps.setTimestamp(4, Timestamp.valueOf(hit.getTimestamp()));
+            if (hit.getHitId() == null) {
+                ps.setNull(5, Types.OTHER);
+            } else {
+                ps.setObject(5, hit.getHitId());
+            }
+        });
+    }
+
+    /**
+     * Hits (or distinct ips) of one uri per {@code granularity} bucket, keyed by bucket start.
+     * Buckets without hits are absent.
+     */
+    @Override
+    public Map<LocalDateTime, Long> countByBucket(String uri, RollupGranularity granularity, LocalDateTime from,
+                                                  LocalDateTime to, boolean inclusiveEnd, boolean unique) {
+        Map<LocalDateTime, Long> counts = new HashMap<>();
+        int uriId = dictionary.lookup(HitDictionary.Kind.URI, uri);
+        if (uriId == HitDictionary.UNKNOWN) {
+            return counts;
+        }
+        String bucket = "date_trunc('" + granularity.name().toLowerCase(Locale.ROOT) + "', timestamp)";
+        String sql = "SELECT " + bucket + ", " + (unique ? "COUNT(DISTINCT ip)" : "COUNT(*)") +
+                " FROM endpoint_hits WHERE uri_id = ? AND timestamp >= ? AND timestamp " +
+                (inclusiveEnd ? "<=" : "<") + " ? GROUP BY " + bucket;
+        jdbcTemplate.query(sql, rs -> {
+            counts.merge(rs.getTimestamp(1).toLocalDateTime(), rs.getLong(2), Long::sum);
+        }, uriId, Timestamp.valueOf(from), Timestamp.valueOf(to));
+        return counts;
+    }
+
+    @Override
+    public int deleteBatchBefore(LocalDateTime before, int limit) {
+        return jdbcTemplate.update(DELETE_BATCH_SQL, Timestamp.valueOf(before), limit);
+    }
+}
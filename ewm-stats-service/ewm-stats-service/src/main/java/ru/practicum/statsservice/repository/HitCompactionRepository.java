@@ -0,0 +1,7 @@
+package ru.practicum.statsservice.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import ru.practicum.statsservice.model.HitCompactionEntity;
+
+public interface HitCompactionRepository extends JpaRepository<HitCompactionEntity, Long> {
+}
@@ -0,0 +1,141 @@
+package ru.practicum.statsservice.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.UncategorizedSQLException;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps app names and uris to compact integer ids stored in {@code hit_dictionary}, with both
+ * directions cached in memory. New values are written on their own auto-commit connection so an
+ * id handed out to an ingest transaction stays valid even if that transaction rolls back.
+ */
+@Component
+public class HitDictionary {
+    public static final int UNKNOWN = -1;
+    private static final String SELECT_ID_SQL = "SELECT id FROM hit_dictionary WHERE kind = ? AND name = ?";
+    private static final String SELECT_NAME_SQL = "SELECT name FROM hit_dictionary WHERE id = ?";
+    private static final String POSTGRES_INSERT_SQL = "INSERT INTO hit_dictionary (kind, name) VALUES (?, ?) " +
+            "ON CONFLICT (kind, name) DO NOTHING";
+    private static final String MERGE_INSERT_SQL = "MERGE INTO hit_dictionary t " +
+            "USING (VALUES (CAST(? AS VARCHAR(8)), CAST(? AS VARCHAR(255)))) s (kind, name) " +
+            "ON t.kind = s.kind AND t.name = s.name " +
+            "WHEN NOT MATCHED THEN INSERT (kind, name) VALUES (s.kind, s.name)";
+    private final DataSource dataSource;
+    private final Map<Kind, Map<String, Integer>> ids = new ConcurrentHashMap<>();
+    private final Map<Integer, String> names = new ConcurrentHashMap<>();
+    private volatile Boolean postgres;
+
+    @Autowired
+    public HitDictionary(DataSource dataSource) {
+        this.dataSource = dataSource;
+        for (Kind kind : Kind.values()) {
+            ids.put(kind, new ConcurrentHashMap<>());
+        }
+    }
+
+    public int intern(Kind kind, String name) {
+        Integer id = ids.get(kind).get(name);
+        if (id != null) {
+            return id;
+        }
+        return withConnection(connection -> {
+            Integer found = selectId(connection, kind, name);
+            if (found == null) {
+                try (PreparedStatement ps = connection.prepareStatement(isPostgres(connection) ?
+                        POSTGRES_INSERT_SQL : MERGE_INSERT_SQL)) {
+                    ps.setString(1, kind.name());
+                    ps.setString(2, name);
+                    ps.executeUpdate();
+                }
+                if (!connection.getAutoCommit()) {
+                    connection.commit();
+                }
+                found = selectId(connection, kind, name);
+            }
+            return remember(kind, name, found);
+        });
+    }
+
+    /**
+     * Returns the id of a known value or {@link #UNKNOWN} without creating one, so that filtering
+     * by a value that was never ingested matches nothing.
+     */
+    public int lookup(Kind kind, String name) {
+        Integer id = ids.get(kind).get(name);
+        if (id != null) {
+            return id;
+        }
+        Integer found = withConnection(connection -> selectId(connection, kind, name));
+        return found == null ? UNKNOWN : remember(kind, name, found);
+    }
+
+    public String resolve(int id) {
+        String name = names.get(id);
+        if (name != null) {
+            return name;
+        }
+        return withConnection(connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(SELECT_NAME_SQL)) {
+                ps.setInt(1, id);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next()) {
+                        throw new IllegalStateException("Unknown dictionary id: " + id);
+                    }
+                    names.put(id, rs.getString(1));
+                    return rs.getString(1);
+                }
+            }
+        });
+    }
+
+    private int remember(Kind kind, String name, int id) {
+        ids.get(kind).put(name, id);
+        names.put(id, name);
+        return id;
+    }
+
+    private Integer selectId(Connection connection, Kind kind, String name) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(SELECT_ID_SQL)) {
+            ps.setString(1, kind.name());
+            ps.setString(2, name);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : null;
+            }
+        }
+    }
+
+    private boolean isPostgres(Connection connection) throws SQLException {
+        Boolean result = postgres;
+        if (result == null) {
+            result = "PostgreSQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName());
+            postgres = result;
+        }
+        return result;
+    }
+
+    private <T> T withConnection(ConnectionFunction<T> function) {
+        try (Connection connection = dataSource.getConnection()) {
+            return function.apply(connection);
+        } catch (SQLException e) {
+            throw new UncategorizedSQLException("hit dictionary", null, e);
+        }
+    }
+
+    public enum Kind {
+        APP,
+        URI
+    }
+
+    @FunctionalInterface
+    private interface ConnectionFunction<T> {
+        T apply(Connection connection) throws SQLException;
+    }
+}
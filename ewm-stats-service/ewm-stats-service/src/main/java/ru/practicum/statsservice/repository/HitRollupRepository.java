@@ -0,0 +1,23 @@
+package ru.practicum.statsservice.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.practicum.statsservice.model.HitRollupEntity;
+import ru.practicum.statsservice.model.RollupGranularity;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface HitRollupRepository extends JpaRepository<HitRollupEntity, Long>, HitRollupRepositoryCustom {
+    @Query("SELECT r.app as app, r.uri as uri, SUM(r.hits) as hits FROM HitRollupEntity r WHERE r.granularity = :granularity AND r.bucketStart >= :from AND r.bucketStart < :to AND (:uris IS NULL OR r.uri IN :uris) GROUP BY r.app, r.uri")
+    List<Object[]> sumHits(@Param("granularity") RollupGranularity granularity, @Param("from") LocalDateTime from, @Param("to") LocalDateTime to, @Param("uris") List<String> uris);
+
+    @Query("SELECT r.bucketStart as bucketStart, SUM(r.hits) as hits FROM HitRollupEntity r WHERE r.granularity = :granularity AND r.bucketStart >= :from AND r.bucketStart < :to AND r.uri = :uri GROUP BY r.bucketStart")
+    List<Object[]> sumHitsByBucket(@Param("granularity") RollupGranularity granularity, @Param("from") LocalDateTime from, @Param("to") LocalDateTime to, @Param("uri") String uri);
+
+    @Modifying
+    @Query("DELETE FROM HitRollupEntity r WHERE r.bucketStart >= :from AND r.bucketStart < :to")
+    int deleteBuckets(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+}
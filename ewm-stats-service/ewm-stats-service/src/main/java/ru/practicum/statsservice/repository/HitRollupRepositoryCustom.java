@@ -0,0 +1,10 @@
+package ru.practicum.statsservice.repository;
+
+import ru.practicum.statsservice.model.HitRollupEntity;
+
+import java.util.Collection;
+
+public interface HitRollupRepositoryCustom {
+
+    void increment(Collection<HitRollupEntity> deltas);
+}
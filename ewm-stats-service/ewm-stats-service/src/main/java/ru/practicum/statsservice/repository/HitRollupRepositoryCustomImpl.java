@@ -0,0 +1,42 @@
+package ru.practicum.statsservice.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.statsservice.model.HitRollupEntity;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+
+public class HitRollupRepositoryCustomImpl implements HitRollupRepositoryCustom {
+    private static final String POSTGRES_UPSERT_SQL = "INSERT INTO hit_rollups (granularity, bucket_start, app, uri, hits) " +
+            "VALUES (?, ?, ?, ?, ?) " +
+            "ON CONFLICT (granularity, bucket_start, app, uri) DO UPDATE SET hits = hit_rollups.hits + EXCLUDED.hits";
+    private static final String MERGE_SQL = "MERGE INTO hit_rollups t " +
+            "USING (VALUES (CAST(? AS VARCHAR(16)), CAST(? AS TIMESTAMP), CAST(? AS VARCHAR(255)), " +
+            "CAST(? AS VARCHAR(255)), CAST(? AS BIGINT))) s (granularity, bucket_start, app, uri, hits) " +
+            "ON t.granularity = s.granularity AND t.bucket_start = s.bucket_start AND t.app = s.app AND t.uri = s.uri " +
+            "WHEN MATCHED THEN UPDATE SET hits = t.hits + s.hits " +
+            "WHEN NOT MATCHED THEN INSERT (granularity, bucket_start, app, uri, hits) " +
+            "VALUES (s.granularity, s.bucket_start, s.app, s.uri, s.hits)";
+    private static final int BATCH_SIZE = 500;
+    private final JdbcTemplate jdbcTemplate;
+    private final DatabaseDialect dialect;
+
+    @Autowired
+    public HitRollupRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dialect = new DatabaseDialect(jdbcTemplate);
+    }
+
+    @Override
+    public void increment(Collection<HitRollupEntity> deltas) {
+        String sql = dialect.isPostgres() ? POSTGRES_UPSERT_SQL : MERGE_SQL;
+        jdbcTemplate.batchUpdate(sql, deltas, BATCH_SIZE, (ps, delta) -> {
+            ps.setString(1, delta.getGranularity().name());
+            ps.setTimestamp(2, Timestamp.valueOf(delta.getBucketStart()));
+            ps.setString(3, delta.getApp());
+            ps.setString(4, delta.getUri());
+            ps.setLong(5, delta.getHits());
+        });
+    }
+}
@@ -0,0 +1,20 @@
+package ru.practicum.statsservice.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.practicum.statsservice.model.HitSketchEntity;
+import ru.practicum.statsservice.model.RollupGranularity;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface HitSketchRepository extends JpaRepository<HitSketchEntity, Long>, HitSketchRepositoryCustom {
+    @Query("SELECT s FROM HitSketchEntity s WHERE s.granularity = :granularity AND s.bucketStart >= :from AND s.bucketStart < :to AND (:uris IS NULL OR s.uri IN :uris)")
+    List<HitSketchEntity> findBuckets(@Param("granularity") RollupGranularity granularity, @Param("from") LocalDateTime from, @Param("to") LocalDateTime to, @Param("uris") List<String> uris);
+
+    @Modifying
+    @Query("DELETE FROM HitSketchEntity s WHERE s.bucketStart >= :from AND s.bucketStart < :to")
+    int deleteBuckets(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+}
@@ -0,0 +1,9 @@
+package ru.practicum.statsservice.repository;
+
+import ru.practicum.statsservice.model.HitSketchEntity;
+
+import java.util.Collection;
+
+public interface HitSketchRepositoryCustom {
+    void merge(Collection<HitSketchEntity> deltas);
+}
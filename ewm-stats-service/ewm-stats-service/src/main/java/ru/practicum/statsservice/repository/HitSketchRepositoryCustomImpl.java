@@ -0,0 +1,66 @@
+package ru.practicum.statsservice.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.statsservice.model.HitSketchEntity;
+import ru.practicum.statsservice.sketch.HyperLogLog;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+public class HitSketchRepositoryCustomImpl implements HitSketchRepositoryCustom {
+    private static final String POSTGRES_INSERT_SQL = "INSERT INTO hit_sketches (granularity, bucket_start, app, uri, sketch) " +
+            "VALUES (?, ?, ?, ?, ?) ON CONFLICT (granularity, bucket_start, app, uri) DO NOTHING";
+    private static final String MERGE_INSERT_SQL = "MERGE INTO hit_sketches t " +
+            "USING (VALUES (CAST(? AS VARCHAR(16)), CAST(? AS TIMESTAMP), CAST(? AS VARCHAR(255)), " +
+            "CAST(? AS VARCHAR(255)), CAST(? AS VARBINARY(8192)))) s (granularity, bucket_start, app, uri, sketch) " +
+            "ON t.granularity = s.granularity AND t.bucket_start = s.bucket_start AND t.app = s.app AND t.uri = s.uri " +
+            "WHEN NOT MATCHED THEN INSERT (granularity, bucket_start, app, uri, sketch) " +
+            "VALUES (s.granularity, s.bucket_start, s.app, s.uri, s.sketch)";
+    private static final String LOCK_SQL = "SELECT id, sketch FROM hit_sketches " +
+            "WHERE granularity = ? AND bucket_start = ? AND app = ? AND uri = ? FOR UPDATE";
+    private static final String UPDATE_SQL = "UPDATE hit_sketches SET sketch = ? WHERE id = ?";
+    private static final Comparator<HitSketchEntity> LOCK_ORDER = Comparator
+            .comparing(HitSketchEntity::getGranularity)
+            .thenComparing(HitSketchEntity::getBucketStart)
+            .thenComparing(HitSketchEntity::getApp)
+            .thenComparing(HitSketchEntity::getUri);
+    private final JdbcTemplate jdbcTemplate;
+    private final DatabaseDialect dialect;
+
+    @Autowired
+    public HitSketchRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dialect = new DatabaseDialect(jdbcTemplate);
+    }
+
+    /**
+     * Merges each delta into the stored sketch of its bucket. Sketches cannot be combined in SQL,
+     * so an existing row is locked, merged in memory and written back; rows are locked in a fixed
+     * order so concurrent batches cannot deadlock.
+     */
+    @Override
+    public void merge(Collection<HitSketchEntity> deltas) {
+        String insertSql = dialect.isPostgres() ? POSTGRES_INSERT_SQL : MERGE_INSERT_SQL;
+        List<HitSketchEntity> ordered = deltas.stream().sorted(LOCK_ORDER).toList();
+        for (HitSketchEntity delta : ordered) {
+            Timestamp bucketStart = Timestamp.valueOf(delta.getBucketStart());
+            int inserted = jdbcTemplate.update(insertSql, delta.getGranularity().name(), bucketStart,
+                    delta.getApp(), delta.getUri(), delta.getSketch());
+            if (inserted > 0) {
+                continue;
+            }
+            List<HitSketchEntity> stored = jdbcTemplate.query(LOCK_SQL, (rs, rowNum) -> HitSketchEntity.builder()
+                    .id(rs.getLong("id"))
+                    .sketch(rs.getBytes("sketch"))
+                    .build(), delta.getGranularity().name(), bucketStart, delta.getApp(), delta.getUri());
+            for (HitSketchEntity row : stored) {
+                HyperLogLog sketch = HyperLogLog.fromBytes(row.getSketch());
+                sketch.merge(HyperLogLog.fromBytes(delta.getSketch()));
+                jdbcTemplate.update(UPDATE_SQL, sketch.toBytes(), row.getId());
+            }
+        }
+    }
+}
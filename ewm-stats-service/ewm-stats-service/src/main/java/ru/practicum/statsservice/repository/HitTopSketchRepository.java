@@ -0,0 +1,15 @@
+package ru.practicum.statsservice.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.practicum.statsservice.model.HitTopSketchEntity;
+import ru.practicum.statsservice.model.RollupGranularity;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface HitTopSketchRepository extends JpaRepository<HitTopSketchEntity, Long>, HitTopSketchRepositoryCustom {
+    @Query("SELECT s FROM HitTopSketchEntity s WHERE s.granularity = :granularity AND s.bucketStart >= :from AND s.bucketStart < :to")
+    List<HitTopSketchEntity> findBuckets(@Param("granularity") RollupGranularity granularity, @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+}
@@ -0,0 +1,9 @@
+package ru.practicum.statsservice.repository;
+
+import ru.practicum.statsservice.model.HitTopSketchEntity;
+
+import java.util.Collection;
+
+public interface HitTopSketchRepositoryCustom {
+    void merge(Collection<HitTopSketchEntity> deltas);
+}
@@ -0,0 +1,62 @@
+package ru.practicum.statsservice.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.statsservice.model.HitTopSketchEntity;
+import ru.practicum.statsservice.sketch.SpaceSaving;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+public class HitTopSketchRepositoryCustomImpl implements HitTopSketchRepositoryCustom {
+    private static final String POSTGRES_INSERT_SQL = "INSERT INTO hit_top_sketches (granularity, bucket_start, sketch) " +
+            "VALUES (?, ?, ?) ON CONFLICT (granularity, bucket_start) DO NOTHING";
+    private static final String MERGE_INSERT_SQL = "MERGE INTO hit_top_sketches t " +
+            "USING (VALUES (CAST(? AS VARCHAR(16)), CAST(? AS TIMESTAMP), CAST(? AS VARBINARY(1048576)))) " +
+            "s (granularity, bucket_start, sketch) " +
+            "ON t.granularity = s.granularity AND t.bucket_start = s.bucket_start " +
+            "WHEN NOT MATCHED THEN INSERT (granularity, bucket_start, sketch) " +
+            "VALUES (s.granularity, s.bucket_start, s.sketch)";
+    private static final String LOCK_SQL = "SELECT id, sketch FROM hit_top_sketches " +
+            "WHERE granularity = ? AND bucket_start = ? FOR UPDATE";
+    private static final String UPDATE_SQL = "UPDATE hit_top_sketches SET sketch = ? WHERE id = ?";
+    private static final Comparator<HitTopSketchEntity> LOCK_ORDER = Comparator
+            .comparing(HitTopSketchEntity::getGranularity)
+            .thenComparing(HitTopSketchEntity::getBucketStart);
+    private final JdbcTemplate jdbcTemplate;
+    private final DatabaseDialect dialect;
+
+    @Autowired
+    public HitTopSketchRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dialect = new DatabaseDialect(jdbcTemplate);
+    }
+
+    /**
+     * Merges each delta summary into the stored summary of its bucket, locking existing rows in a
+     * fixed order like {@link HitSketchRepositoryCustomImpl#merge}.
+     */
+    @Override
+    public void merge(Collection<HitTopSketchEntity> deltas) {
+        String insertSql = dialect.isPostgres() ? POSTGRES_INSERT_SQL : MERGE_INSERT_SQL;
+        List<HitTopSketchEntity> ordered = deltas.stream().sorted(LOCK_ORDER).toList();
+        for (HitTopSketchEntity delta : ordered) {
+            Timestamp bucketStart = Timestamp.valueOf(delta.getBucketStart());
+            int inserted = jdbcTemplate.update(insertSql, delta.getGranularity().name(), bucketStart, delta.getSketch());
+            if (inserted > 0) {
+                continue;
+            }
+            List<HitTopSketchEntity> stored = jdbcTemplate.query(LOCK_SQL, (rs, rowNum) -> HitTopSketchEntity.builder()
+                    .id(rs.getLong("id"))
+                    .sketch(rs.getBytes("sketch"))
+                    .build(), delta.getGranularity().name(), bucketStart);
+            for (HitTopSketchEntity row : stored) {
+                SpaceSaving summary = SpaceSaving.fromBytes(row.getSketch());
+                summary.merge(SpaceSaving.fromBytes(delta.getSketch()));
+                jdbcTemplate.update(UPDATE_SQL, summary.toBytes(), row.getId());
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package ru.practicum.statsservice.rollup;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.statsservice.model.AggregateBackfillEntity;
+import ru.practicum.statsservice.model.EndpointHitEntity;
+import ru.practicum.statsservice.repository.AggregateBackfillRepository;
+import ru.practicum.statsservice.repository.EndpointHitRepository;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Builds an aggregate from the raw hits that were stored before it was enabled. The hits that
+ * exist when a backfill first starts are its target; each page is folded in and the progress row
+ * in {@code aggregate_backfill} advanced in one transaction, so a backfill interrupted by a crash
+ * resumes where it stopped on the next start, and hits stored meanwhile, which the live path
+ * already records, are never counted twice. Aggregates that existed before progress was tracked
+ * are taken as complete.
+ */
+@Slf4j
+@Component
+public class AggregateBackfill {
+    private static final int PAGE_SIZE = 5000;
+    private final AggregateBackfillRepository backfillRepository;
+    private final EndpointHitRepository hitRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public AggregateBackfill(AggregateBackfillRepository backfillRepository,
+                             EndpointHitRepository hitRepository,
+                             PlatformTransactionManager transactionManager) {
+        this.backfillRepository = backfillRepository;
+        this.hitRepository = hitRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Runs or resumes the backfill called {@code name}; {@code record} folds one page of hits into
+     * the aggregate and joins the transaction that advances the progress.
+     */
+    public void run(String name, boolean hasAggregates, Consumer<List<EndpointHitEntity>> record) {
+        AggregateBackfillEntity progress = transactionTemplate.execute(status -> backfillRepository.findById(name)
+                .orElseGet(() -> backfillRepository.save(AggregateBackfillEntity.builder()
+                        .name(name)
+                        .targetHitId(hitRepository.findMaxId())
+                        .completed(hasAggregates)
+                        .build())));
+        if (progress.isCompleted()) {
+            return;
+        }
+        if (progress.getLastHitId() > 0) {
+            log.info("Resuming {} backfill after hit {} of {}", name, progress.getLastHitId(), progress.getTargetHitId());
+        }
+        long total = 0;
+        List<EndpointHitEntity> page;
+        do {
+            page = hitRepository.findByIdGreaterThanAndIdLessThanEqualOrderByIdAsc(progress.getLastHitId(),
+                    progress.getTargetHitId(), PageRequest.of(0, PAGE_SIZE));
+            if (!page.isEmpty()) {
+                List<EndpointHitEntity> hits = page;
+                progress.setLastHitId(hits.getLast().getId());
+                transactionTemplate.executeWithoutResult(status -> {
+                    record.accept(hits);
+                    backfillRepository.save(progress);
+                });
+                total += hits.size();
+            }
+        } while (page.size() == PAGE_SIZE);
+        progress.setCompleted(true);
+        transactionTemplate.executeWithoutResult(status -> backfillRepository.save(progress));
+        if (total > 0) {
+            log.info("Backfilled {} from {} existing hits", name, total);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package ru.practicum.statsservice.rollup;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.statsdto.ViewStats;
+import ru.practicum.statsservice.model.EndpointHitEntity;
+import ru.practicum.statsservice.model.HitRollupEntity;
+import ru.practicum.statsservice.model.RollupGranularity;
+import ru.practicum.statsservice.repository.EndpointHitRepository;
+import ru.practicum.statsservice.repository.HitRollupRepository;
+import ru.practicum.statsservice.service.HitCounts;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maintains per-minute, per-hour and per-day hit counts for every (app, uri) and answers
+ * non-unique stats queries from them. A range is covered by the coarsest aligned buckets that
+ * fit inside it; only the partial minutes at both edges are counted from raw hits, so the cost
+ * of a query depends on the number of buckets rather than the number of hits.
+ */
+@Component
+public class RollupService {
+    private final boolean enabled;
+    private final HitRollupRepository rollupRepository;
+    private final EndpointHitRepository hitRepository;
+    private final AggregateBackfill backfill;
+
+    public RollupService(@Value("${stats.rollup.enabled:false}") boolean enabled,
+                         HitRollupRepository rollupRepository,
+                         EndpointHitRepository hitRepository,
+                         AggregateBackfill backfill) {
+        this.enabled = enabled;
+        this.rollupRepository = rollupRepository;
+        this.hitRepository = hitRepository;
+        this.backfill = backfill;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @PostConstruct
+    public void backfill() {
+        if (enabled) {
+            backfill.run("rollup", rollupRepository.count() > 0, this::record);
+        }
+    }
+
+    public void record(List<EndpointHitEntity> hits) {
+        Map<RollupKey, Long> deltas = new LinkedHashMap<>();
+        for (EndpointHitEntity hit : hits) {
+            for (RollupGranularity granularity : RollupGranularity.values()) {
+                RollupKey key = new RollupKey(granularity, granularity.floor(hit.getTimestamp()), hit.getApp(), hit.getUri());
+                deltas.merge(key, 1L, Long::sum);
+            }
+        }
+        rollupRepository.increment(deltas.entrySet().stream()
+                .map(entry -> HitRollupEntity.builder()
+                        .granularity(entry.getKey().granularity())
+                        .bucketStart(entry.getKey().bucketStart())
+                        .app(entry.getKey().app())
+                        .uri(entry.getKey().uri())
+                        .hits(entry.getValue())
+                        .build())
+                .toList());
+    }
+
+    public List<ViewStats> getStats(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        HitCounts counts = new HitCounts();
+        LocalDateTime firstMinute = RollupGranularity.MINUTE.ceil(start);
+        LocalDateTime lastMinute = RollupGranularity.MINUTE.floor(end);
+        if (!firstMinute.isBefore(lastMinute)) {
+            counts.addRows(hitRepository.getStats(start, end, uris));
+            return counts.toViewStats();
+        }
+        if (start.isBefore(firstMinute)) {
+            counts.addRows(hitRepository.countInRange(start, firstMinute, uris));
+        }
+        addBuckets(counts, RollupGranularity.MINUTE, firstMinute, lastMinute, uris);
+        counts.addRows(hitRepository.getStats(lastMinute, end, uris));
+        return counts.toViewStats();
+    }
+
+    private void addBuckets(HitCounts counts, RollupGranularity granularity, LocalDateTime from, LocalDateTime to,
+                            List<String> uris) {
+        if (!from.isBefore(to)) {
+            return;
+        }
+        if (granularity != RollupGranularity.DAY) {
+            RollupGranularity coarser = RollupGranularity.values()[granularity.ordinal() + 1];
+            LocalDateTime coarseFrom = coarser.ceil(from);
+            LocalDateTime coarseTo = coarser.floor(to);
+            if (coarseFrom.isBefore(coarseTo)) {
+                sumBuckets(counts, granularity, from, coarseFrom, uris);
+                addBuckets(counts, coarser, coarseFrom, coarseTo, uris);
+                sumBuckets(counts, granularity, coarseTo, to, uris);
+                return;
+            }
+        }
+        sumBuckets(counts, granularity, from, to, uris);
+    }
+
+    private void sumBuckets(HitCounts counts, RollupGranularity granularity, LocalDateTime from, LocalDateTime to,
+                            List<String> uris) {
+        if (from.isBefore(to)) {
+            counts.addRows(rollupRepository.sumHits(granularity, from, to, uris));
+        }
+    }
+
+    private record RollupKey(RollupGranularity granularity, LocalDateTime bucketStart, String app, String uri) {
+    }
+}
@@ -0,0 +1,46 @@
+package ru.practicum.statsservice.service;
+
+import ru.practicum.statsdto.ViewStats;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Accumulates hit counts per (app, uri) from several partial results and renders them in the
+ * same order as the {@code /stats} query: most hits first.
+ */
+public class HitCounts {
+    private final Map<Key, Long> counts = new LinkedHashMap<>();
+
+    public void add(String app, String uri, long hits) {
+        counts.merge(new Key(app, uri), hits, Long::sum);
+    }
+
+    public void addRows(List<Object[]> rows) {
+        for (Object[] row : rows) {
+            add(Objects.toString(row[0]), Objects.toString(row[1]), ((Number) row[2]).longValue());
+        }
+    }
+
+    public boolean isEmpty() {
+        return counts.isEmpty();
+    }
+
+    public List<ViewStats> toViewStats() {
+        return counts.entrySet().stream()
+                .filter(entry -> entry.getValue() > 0)
+                .sorted(Map.Entry.<Key, Long>comparingByValue(Comparator.reverseOrder()))
+                .map(entry -> ViewStats.builder()
+                        .app(entry.getKey().app())
+                        .uri(entry.getKey().uri())
+                        .hits(entry.getValue())
+                        .build())
+                .toList();
+    }
+
+    private record Key(String app, String uri) {
+    }
+}
@@ -1,22 +1,65 @@
 package ru.practicum.statsservice.service;
 
 import ru.practicum.statsdto.EndpointHit;
+import ru.practicum.statsdto.HitBatchResult;
+import ru.practicum.statsdto.StatsQuery;
+import ru.practicum.statsdto.StatsWireFormat;
+import ru.practicum.statsdto.TimeSeriesPoint;
 import ru.practicum.statsdto.ViewStats;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface StatsService {
 
     void saveHit(EndpointHit hit);
 
+    HitBatchResult saveHits(List<EndpointHit> hits);
+
+    HitBatchResult saveWireHits(List<StatsWireFormat.WireHit> hits);
+
     List<ViewStats> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique);
 
+    List<ViewStats> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique, boolean exact);
+
+    List<ViewStats> getStats(StatsQuery query);
+
+    List<ViewStats> getTopStats(LocalDateTime start, LocalDateTime end, int k, boolean unique);
+
+    List<TimeSeriesPoint> getTimeSeries(String uri, LocalDateTime start, LocalDateTime end, String interval,
+                                        boolean unique);
+
+    /**
+     * Passes rows to {@code sink} while they are read from the hit store. Answers that come from
+     * the hot window, rollups or sketches are built in memory first and then handed over, so only
+     * the raw-hit path keeps memory flat.
+     */
+    void streamStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique, boolean exact,
+                     Consumer<ViewStats> sink);
+
+    LocalDateTime parseAndDecodeDateTime(String dateTime);
+
     void validateDateRange(LocalDateTime start, LocalDateTime end);
 
     List<String> decodeUris(List<String> uris);
 
     void handleHit(EndpointHit hit);
 
+    HitBatchResult handleHits(List<EndpointHit> hits);
+
+    HitBatchResult handleWireHits(byte[] body);
+
     List<ViewStats> handleGetStats(String start, String end, List<String> uris, boolean unique);
+
+    List<ViewStats> handleGetStats(String start, String end, List<String> uris, boolean unique, boolean exact);
+
+    List<ViewStats> handleQuery(StatsQuery query);
+
+    List<ViewStats> handleGetTopStats(String start, String end, int k, boolean unique);
+
+    List<TimeSeriesPoint> handleGetTimeSeries(String uri, String start, String end, String interval, boolean unique);
+
+    void handleStreamStats(LocalDateTime start, LocalDateTime end, boolean unique, boolean exact,
+                           Consumer<ViewStats> sink);
 }
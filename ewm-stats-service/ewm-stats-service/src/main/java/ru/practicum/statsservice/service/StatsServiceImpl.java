@@ -1,63 +1,399 @@
 package ru.practicum.statsservice.service;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.validation.Validator;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import ru.practicum.statsdto.EndpointHit;
+import ru.practicum.statsdto.HitBatchError;
+import ru.practicum.statsdto.HitBatchResult;
+import ru.practicum.statsdto.StatsQuery;
+import ru.practicum.statsdto.StatsWireFormat;
+import ru.practicum.statsdto.TimeSeriesPoint;
 import ru.practicum.statsdto.ViewStats;
+import ru.practicum.statsservice.cache.StatsResultCache;
+import ru.practicum.statsservice.compaction.HitCompactor;
 import ru.practicum.statsservice.exception.BadRequestException;
 import ru.practicum.statsservice.exception.StatsServiceException;
+import ru.practicum.statsservice.exception.TooManyRequestsException;
+import ru.practicum.statsservice.hotwindow.HotWindow;
+import ru.practicum.statsservice.ingest.HitDeduplicator;
+import ru.practicum.statsservice.ingest.HitWriteBuffer;
+import ru.practicum.statsservice.ingest.UdpHitReceiver;
 import ru.practicum.statsservice.model.EndpointHitEntity;
-import ru.practicum.statsservice.repository.EndpointHitRepository;
+import ru.practicum.statsservice.model.RollupGranularity;
+import ru.practicum.statsservice.rollup.RollupService;
+import ru.practicum.statsservice.sketch.SketchService;
+import ru.practicum.statsservice.sketch.TopHitsService;
+import ru.practicum.statsservice.store.HitStore;
+import ru.practicum.statsservice.timeseries.TimeSeriesService;
 
+import java.io.UncheckedIOException;
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Objects;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
 public class StatsServiceImpl implements StatsService {
     private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-    private final EndpointHitRepository repository;
+    private static final String EVENT_URI_PREFIX = "/events/";
+    private static final int MAX_TOP = 1000;
+    private final HitStore hitStore;
+    private final Validator validator;
+    private final HitWriteBuffer writeBuffer;
+    private final RollupService rollupService;
+    private final SketchService sketchService;
+    private final HotWindow hotWindow;
+    private final StatsResultCache resultCache;
+    private final TopHitsService topHitsService;
+    private final HitCompactor compactor;
+    private final TimeSeriesService timeSeriesService;
+    private final HitDeduplicator deduplicator;
+    private final UdpHitReceiver udpReceiver;
+
+    @Value("${stats.query.max-uris:10000}")
+    private int maxQueryUris;
 
     @Autowired
-    public StatsServiceImpl(EndpointHitRepository repository) {
-        this.repository = repository;
+    public StatsServiceImpl(HitStore hitStore, Validator validator, HitWriteBuffer writeBuffer,
+                            RollupService rollupService, SketchService sketchService, HotWindow hotWindow,
+                            StatsResultCache resultCache, TopHitsService topHitsService,
+                            HitCompactor compactor, TimeSeriesService timeSeriesService,
+                            HitDeduplicator deduplicator, UdpHitReceiver udpReceiver) {
+        this.hitStore = hitStore;
+        this.validator = validator;
+        this.writeBuffer = writeBuffer;
+        this.rollupService = rollupService;
+        this.sketchService = sketchService;
+        this.hotWindow = hotWindow;
+        this.resultCache = resultCache;
+        this.topHitsService = topHitsService;
+        this.compactor = compactor;
+        this.timeSeriesService = timeSeriesService;
+        this.deduplicator = deduplicator;
+        this.udpReceiver = udpReceiver;
+    }
+
+    @PostConstruct
+    public void startWriteBuffer() {
+        writeBuffer.start(this::store);
+        udpReceiver.start(this::saveWireHits);
     }
 
     @Override
     public void saveHit(EndpointHit hit) {
-        LocalDateTime timestamp = parseDateTime(hit.getTimestamp());
-        EndpointHitEntity entity = EndpointHitEntity.builder()
+        EndpointHitEntity entity = toEntity(hit);
+        if (writeBuffer.isEnabled()) {
+            writeBuffer.enqueue(entity);
+            return;
+        }
+        if (deduplicator.isEnabled() && deduplicator.filter(List.of(entity)).isEmpty()) {
+            return;
+        }
+        hitStore.save(entity);
+        aggregate(List.of(entity));
+    }
+
+    @Override
+    public HitBatchResult saveHits(List<EndpointHit> hits) {
+        if (hits == null) {
+            throw new BadRequestException("Hit batch must not be null");
+        }
+        return saveBatch(hits.size(), i -> {
+            EndpointHit hit = hits.get(i);
+            validateHit(hit);
+            return toEntity(hit);
+        });
+    }
+
+    /**
+     * Binary batches carry parsed timestamps, so hits are checked field by field instead of going
+     * through bean validation and date parsing.
+     */
+    @Override
+    public HitBatchResult saveWireHits(List<StatsWireFormat.WireHit> hits) {
+        return saveBatch(hits.size(), i -> toEntity(hits.get(i)));
+    }
+
+    private HitBatchResult saveBatch(int size, IntFunction<EndpointHitEntity> entityAt) {
+        List<EndpointHitEntity> entities = new ArrayList<>(size);
+        List<HitBatchError> rejected = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            try {
+                EndpointHitEntity entity = entityAt.apply(i);
+                if (writeBuffer.isEnabled()) {
+                    writeBuffer.enqueue(entity);
+                }
+                entities.add(entity);
+            } catch (BadRequestException | TooManyRequestsException e) {
+                rejected.add(new HitBatchError(i, e.getMessage()));
+            }
+        }
+        if (!entities.isEmpty() && !writeBuffer.isEnabled()) {
+            store(entities);
+        }
+        return HitBatchResult.builder()
+                .accepted(entities.size())
+                .rejected(rejected)
+                .build();
+    }
+
+    private void store(List<EndpointHitEntity> entities) {
+        List<EndpointHitEntity> fresh = deduplicator.isEnabled() ? deduplicator.filter(entities) : entities;
+        if (fresh.isEmpty()) {
+            return;
+        }
+        hitStore.insertAll(fresh);
+        aggregate(fresh);
+    }
+
+    private void aggregate(List<EndpointHitEntity> entities) {
+        if (rollupService.isEnabled()) {
+            rollupService.record(entities);
+        }
+        if (sketchService.isEnabled()) {
+            sketchService.record(entities);
+        }
+        if (hotWindow.isEnabled()) {
+            afterCommit(() -> hotWindow.record(entities));
+        }
+        if (resultCache.isEnabled()) {
+            afterCommit(() -> resultCache.invalidate(entities));
+        }
+        if (topHitsService.isEnabled()) {
+            topHitsService.record(entities);
+        }
+    }
+
+    /**
+     * Runs {@code action} once the current transaction commits, or right away outside one, so
+     * in-memory views never show hits that were rolled back and cached results are invalidated
+     * only once a query can see the new hits.
+     */
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private void validateHit(EndpointHit hit) {
+        if (hit == null) {
+            throw new BadRequestException("Hit must not be null");
+        }
+        validator.validate(hit).stream()
+                .min(Comparator.comparing(violation -> violation.getPropertyPath().toString()))
+                .ifPresent(violation -> {
+                    throw new BadRequestException(violation.getPropertyPath() + ": " + violation.getMessage());
+                });
+    }
+
+    private EndpointHitEntity toEntity(EndpointHit hit) {
+        return EndpointHitEntity.builder()
                 .app(hit.getApp())
                 .uri(hit.getUri())
                 .ip(hit.getIp())
-                .timestamp(timestamp)
+                .timestamp(parseDateTime(hit.getTimestamp()))
+                .hitId(hit.getHitId())
                 .build();
-        repository.save(entity);
+    }
+
+    private EndpointHitEntity toEntity(StatsWireFormat.WireHit hit) {
+        requireText(hit.app(), "app");
+        requireText(hit.uri(), "uri");
+        requireText(hit.ip(), "ip");
+        if (hit.timestamp() == null) {
+            throw new BadRequestException("Invalid timestamp format. Expected format: yyyy-MM-dd HH:mm:ss");
+        }
+        return EndpointHitEntity.builder()
+                .app(hit.app())
+                .uri(hit.uri())
+                .ip(hit.ip())
+                .timestamp(hit.timestamp())
+                .hitId(hit.hitId())
+                .build();
+    }
+
+    private void requireText(String value, String field) {
+        if (value == null || value.isBlank()) {
+            throw new BadRequestException(field + ": must not be blank");
+        }
     }
 
     @Override
     @Transactional(readOnly = true)
     public List<ViewStats> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique) {
+        return getStats(start, end, uris, unique, false);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ViewStats> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique,
+                                    boolean exact) {
+        return queryStats(start, end, decodeUris(uris), unique, exact);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ViewStats> getStats(StatsQuery query) {
+        LocalDateTime start = parseDateTime(query.getStart());
+        LocalDateTime end = parseDateTime(query.getEnd());
+        Set<String> uris = new LinkedHashSet<>();
+        if (query.getUris() != null) {
+            uris.addAll(query.getUris());
+        }
+        if (query.getEventIds() != null) {
+            query.getEventIds().forEach(eventId -> uris.add(EVENT_URI_PREFIX + eventId));
+        }
+        if (maxQueryUris > 0 && uris.size() > maxQueryUris) {
+            throw new BadRequestException("Too many uris in one query: " + uris.size() + ", at most "
+                    + maxQueryUris + " allowed");
+        }
+        return queryStats(start, end, uris.isEmpty() ? null : List.copyOf(uris), query.isUnique(), query.isExact());
+    }
+
+    /**
+     * Busiest uris of the range. Hit counts come from the heavy-hitter summaries; for unique
+     * visitors the summary's candidates are re-counted by unique ips and the best {@code k} kept,
+     * since a uri with many unique visitors also has at least as many hits.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<ViewStats> getTopStats(LocalDateTime start, LocalDateTime end, int k, boolean unique) {
+        validateDateRange(start, end);
+        if (k < 1 || k > MAX_TOP) {
+            throw new BadRequestException("k must be between 1 and " + MAX_TOP);
+        }
+        if (!topHitsService.isEnabled()) {
+            return queryStats(start, end, null, unique, false).stream().limit(k).toList();
+        }
+        if (!unique) {
+            return topHitsService.getTop(start, end, k);
+        }
+        List<String> candidates = topHitsService.getTop(start, end, topHitsService.getCapacity()).stream()
+                .map(ViewStats::getUri)
+                .distinct()
+                .toList();
+        if (candidates.isEmpty()) {
+            return List.of();
+        }
+        return queryStats(start, end, candidates, true, false).stream()
+                .sorted(Comparator.comparing(ViewStats::getHits).reversed())
+                .limit(k)
+                .toList();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<TimeSeriesPoint> getTimeSeries(String uri, LocalDateTime start, LocalDateTime end, String interval,
+                                               boolean unique) {
+        validateDateRange(start, end);
+        if (uri == null || uri.isBlank()) {
+            throw new BadRequestException("uri must not be blank");
+        }
+        RollupGranularity granularity;
+        try {
+            granularity = RollupGranularity.valueOf(interval.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("interval must be one of minute, hour, day");
+        }
+        if (writeBuffer.isIncludePending()) {
+            writeBuffer.awaitFlush();
+        }
+        return timeSeriesService.getTimeSeries(decodeUris(List.of(uri)).getFirst(), start, end,
+                granularity, unique);
+    }
+
+    private List<ViewStats> queryStats(LocalDateTime start, LocalDateTime end, List<String> decodedUris,
+                                       boolean unique, boolean exact) {
         validateDateRange(start, end);
+        if (writeBuffer.isIncludePending()) {
+            writeBuffer.awaitFlush();
+        }
+        if (resultCache.isEnabled()) {
+            return resultCache.get(start, end, decodedUris, unique, exact,
+                    () -> computeStats(start, end, decodedUris, unique, exact));
+        }
+        return computeStats(start, end, decodedUris, unique, exact);
+    }
+
+    private List<ViewStats> computeStats(LocalDateTime start, LocalDateTime end, List<String> decodedUris,
+                                         boolean unique, boolean exact) {
+        List<ViewStats> aggregated = getAggregatedStats(start, end, decodedUris, unique, exact);
+        if (aggregated != null) {
+            return aggregated;
+        }
+        return hitStore.getStats(start, end, decodedUris, unique);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique, boolean exact,
+                            Consumer<ViewStats> sink) {
+        validateDateRange(start, end);
+        if (writeBuffer.isIncludePending()) {
+            writeBuffer.awaitFlush();
+        }
         List<String> decodedUris = decodeUris(uris);
-        List<Object[]> results = unique ?
-                repository.getStatsUnique(start, end, decodedUris) :
-                repository.getStats(start, end, decodedUris);
-        List<ViewStats> stats = new ArrayList<>();
-        for (Object[] row : results) {
-            stats.add(ViewStats.builder()
-                    .app(Objects.toString(row[0]))
-                    .uri(Objects.toString(row[1]))
-                    .hits(Long.parseLong(row[2].toString()))
-                    .build());
+        List<ViewStats> aggregated = getAggregatedStats(start, end, decodedUris, unique, exact);
+        if (aggregated != null) {
+            aggregated.forEach(sink);
+            return;
+        }
+        try (Stream<ViewStats> rows = hitStore.streamStats(start, end, decodedUris, unique)) {
+            rows.forEach(sink);
+        }
+    }
+
+    private List<ViewStats> getAggregatedStats(LocalDateTime start, LocalDateTime end, List<String> uris,
+                                               boolean unique, boolean exact) {
+        if (hotWindow.isEnabled() && hotWindow.covers(start)) {
+            return hotWindow.getStats(start, end, uris, unique);
+        }
+        if (compactor.isEnabled() && compactor.isCompacted(start)) {
+            return getCompactedStats(start, end, uris, unique);
+        }
+        if (!unique && rollupService.isEnabled()) {
+            return rollupService.getStats(start, end, uris);
+        }
+        if (unique && !exact && sketchService.isEnabled()) {
+            return sketchService.getUniqueStats(start, end, uris);
         }
-        return stats;
+        return null;
+    }
+
+    /**
+     * Raw hits behind the compaction watermark are gone, so range edges that fall there are widened
+     * to whole buckets: minutes for counts, hours for unique visitors (estimated even when exact
+     * was requested).
+     */
+    private List<ViewStats> getCompactedStats(LocalDateTime start, LocalDateTime end, List<String> uris,
+                                              boolean unique) {
+        RollupGranularity granularity = unique ? RollupGranularity.HOUR : RollupGranularity.MINUTE;
+        LocalDateTime from = granularity.floor(start);
+        LocalDateTime to = compactor.isCompacted(end) ? granularity.ceil(end) : end;
+        return unique ? sketchService.getUniqueStats(from, to, uris) : rollupService.getStats(from, to, uris);
     }
 
     @Override
@@ -98,19 +434,50 @@ public class StatsServiceImpl implements StatsService {
     public void handleHit(EndpointHit hit) {
         try {
             saveHit(hit);
-        } catch (BadRequestException e) {
+        } catch (BadRequestException | TooManyRequestsException e) {
             throw e;
         } catch (Exception e) {
             throw new StatsServiceException("Internal error while saving hit", e);
         }
     }
 
+    @Override
+    public HitBatchResult handleHits(List<EndpointHit> hits) {
+        try {
+            return saveHits(hits);
+        } catch (BadRequestException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new StatsServiceException("Internal error while saving hits", e);
+        }
+    }
+
+    @Override
+    public HitBatchResult handleWireHits(byte[] body) {
+        List<StatsWireFormat.WireHit> hits;
+        try {
+            hits = StatsWireFormat.decodeHits(body);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Malformed hit batch: " + e.getMessage());
+        }
+        try {
+            return saveWireHits(hits);
+        } catch (Exception e) {
+            throw new StatsServiceException("Internal error while saving hits", e);
+        }
+    }
+
     @Override
     public List<ViewStats> handleGetStats(String start, String end, List<String> uris, boolean unique) {
+        return handleGetStats(start, end, uris, unique, false);
+    }
+
+    @Override
+    public List<ViewStats> handleGetStats(String start, String end, List<String> uris, boolean unique, boolean exact) {
         try {
             LocalDateTime startDate = parseAndDecodeDateTime(start);
             LocalDateTime endDate = parseAndDecodeDateTime(end);
-            return getStats(startDate, endDate, uris, unique);
+            return getStats(startDate, endDate, uris, unique, exact);
         } catch (BadRequestException e) {
             throw e;
         } catch (Exception e) {
@@ -118,7 +485,59 @@ public class StatsServiceImpl implements StatsService {
         }
     }
 
-    private LocalDateTime parseAndDecodeDateTime(String dateTime) {
+    @Override
+    public List<ViewStats> handleQuery(StatsQuery query) {
+        try {
+            return getStats(query);
+        } catch (BadRequestException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new StatsServiceException("Internal error while getting stats", e);
+        }
+    }
+
+    @Override
+    public List<ViewStats> handleGetTopStats(String start, String end, int k, boolean unique) {
+        try {
+            return getTopStats(parseAndDecodeDateTime(start), parseAndDecodeDateTime(end), k, unique);
+        } catch (BadRequestException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new StatsServiceException("Internal error while getting top stats", e);
+        }
+    }
+
+    @Override
+    public List<TimeSeriesPoint> handleGetTimeSeries(String uri, String start, String end, String interval,
+                                                     boolean unique) {
+        try {
+            return getTimeSeries(uri, parseAndDecodeDateTime(start), parseAndDecodeDateTime(end), interval, unique);
+        } catch (BadRequestException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new StatsServiceException("Internal error while getting time series", e);
+        }
+    }
+
+    /**
+     * I/O errors raised by {@code sink} are the client's connection failing and pass through
+     * unwrapped.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void handleStreamStats(LocalDateTime start, LocalDateTime end, boolean unique, boolean exact,
+                                  Consumer<ViewStats> sink) {
+        try {
+            streamStats(start, end, null, unique, exact, sink);
+        } catch (BadRequestException | UncheckedIOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new StatsServiceException("Internal error while streaming stats", e);
+        }
+    }
+
+    @Override
+    public LocalDateTime parseAndDecodeDateTime(String dateTime) {
         try {
             String decoded = URLDecoder.decode(dateTime, StandardCharsets.UTF_8);
             return LocalDateTime.parse(decoded, FORMATTER);
@@ -0,0 +1,129 @@
+package ru.practicum.statsservice.sketch;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.statsdto.ViewStats;
+import ru.practicum.statsservice.model.EndpointHitEntity;
+import ru.practicum.statsservice.model.HitSketchEntity;
+import ru.practicum.statsservice.model.RollupGranularity;
+import ru.practicum.statsservice.repository.EndpointHitRepository;
+import ru.practicum.statsservice.repository.HitSketchRepository;
+import ru.practicum.statsservice.rollup.AggregateBackfill;
+import ru.practicum.statsservice.service.HitCounts;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Keeps a HyperLogLog sketch of visitor ips per (app, uri) for every hour and every day and
+ * answers unique stats queries by merging them. Whole days and hours inside the range come from
+ * sketches; the partial hours at both edges are read from raw hits and added to the same sketch,
+ * so an ip seen in several buckets is still counted once. Results carry the sketch error
+ * ({@link HyperLogLog#STANDARD_ERROR}); callers that need exact numbers pass {@code exact=true}.
+ */
+@Component
+public class SketchService {
+    private static final List<RollupGranularity> GRANULARITIES = List.of(RollupGranularity.HOUR, RollupGranularity.DAY);
+    private final boolean enabled;
+    private final HitSketchRepository sketchRepository;
+    private final EndpointHitRepository hitRepository;
+    private final AggregateBackfill backfill;
+
+    public SketchService(@Value("${stats.sketch.enabled:false}") boolean enabled,
+                         HitSketchRepository sketchRepository,
+                         EndpointHitRepository hitRepository,
+                         AggregateBackfill backfill) {
+        this.enabled = enabled;
+        this.sketchRepository = sketchRepository;
+        this.hitRepository = hitRepository;
+        this.backfill = backfill;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @PostConstruct
+    public void backfill() {
+        if (enabled) {
+            backfill.run("sketch", sketchRepository.count() > 0, this::record);
+        }
+    }
+
+    public void record(List<EndpointHitEntity> hits) {
+        Map<SketchKey, HyperLogLog> deltas = new LinkedHashMap<>();
+        for (EndpointHitEntity hit : hits) {
+            for (RollupGranularity granularity : GRANULARITIES) {
+                SketchKey key = new SketchKey(granularity, granularity.floor(hit.getTimestamp()), hit.getApp(), hit.getUri());
+                deltas.computeIfAbsent(key, k -> new HyperLogLog()).add(hit.getIp());
+            }
+        }
+        sketchRepository.merge(deltas.entrySet().stream()
+                .map(entry -> HitSketchEntity.builder()
+                        .granularity(entry.getKey().granularity())
+                        .bucketStart(entry.getKey().bucketStart())
+                        .app(entry.getKey().app())
+                        .uri(entry.getKey().uri())
+                        .sketch(entry.getValue().toBytes())
+                        .build())
+                .toList());
+    }
+
+    public List<ViewStats> getUniqueStats(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        Map<Key, HyperLogLog> sketches = new LinkedHashMap<>();
+        LocalDateTime firstHour = RollupGranularity.HOUR.ceil(start);
+        LocalDateTime lastHour = RollupGranularity.HOUR.floor(end);
+        if (!firstHour.isBefore(lastHour)) {
+            addIps(sketches, hitRepository.findDistinctIpsBetween(start, end, uris));
+            return estimate(sketches);
+        }
+        if (start.isBefore(firstHour)) {
+            addIps(sketches, hitRepository.findDistinctIps(start, firstHour, uris));
+        }
+        LocalDateTime firstDay = RollupGranularity.DAY.ceil(firstHour);
+        LocalDateTime lastDay = RollupGranularity.DAY.floor(lastHour);
+        if (firstDay.isBefore(lastDay)) {
+            addBuckets(sketches, RollupGranularity.HOUR, firstHour, firstDay, uris);
+            addBuckets(sketches, RollupGranularity.DAY, firstDay, lastDay, uris);
+            addBuckets(sketches, RollupGranularity.HOUR, lastDay, lastHour, uris);
+        } else {
+            addBuckets(sketches, RollupGranularity.HOUR, firstHour, lastHour, uris);
+        }
+        addIps(sketches, hitRepository.findDistinctIpsBetween(lastHour, end, uris));
+        return estimate(sketches);
+    }
+
+    private void addBuckets(Map<Key, HyperLogLog> sketches, RollupGranularity granularity, LocalDateTime from,
+                            LocalDateTime to, List<String> uris) {
+        if (!from.isBefore(to)) {
+            return;
+        }
+        for (HitSketchEntity bucket : sketchRepository.findBuckets(granularity, from, to, uris)) {
+            sketches.computeIfAbsent(new Key(bucket.getApp(), bucket.getUri()), k -> new HyperLogLog())
+                    .merge(HyperLogLog.fromBytes(bucket.getSketch()));
+        }
+    }
+
+    private void addIps(Map<Key, HyperLogLog> sketches, List<Object[]> rows) {
+        for (Object[] row : rows) {
+            sketches.computeIfAbsent(new Key(Objects.toString(row[0]), Objects.toString(row[1])), k -> new HyperLogLog())
+                    .add(Objects.toString(row[2]));
+        }
+    }
+
+    private List<ViewStats> estimate(Map<Key, HyperLogLog> sketches) {
+        HitCounts counts = new HitCounts();
+        sketches.forEach((key, sketch) -> counts.add(key.app(), key.uri(), sketch.estimate()));
+        return counts.toViewStats();
+    }
+
+    private record SketchKey(RollupGranularity granularity, LocalDateTime bucketStart, String app, String uri) {
+    }
+
+    private record Key(String app, String uri) {
+    }
+}
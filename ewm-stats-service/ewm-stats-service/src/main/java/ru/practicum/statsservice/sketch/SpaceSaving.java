@@ -0,0 +1,173 @@
+package ru.practicum.statsservice.sketch;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Space-Saving heavy-hitter summary with a fixed number of counters. After {@code N} offered
+ * hits every tracked count overestimates the true count by at most its {@code error}, which is
+ * never above {@code N / capacity}, and every item seen more than {@code N / capacity} times is
+ * tracked. Summaries are mergeable with the same bound over the combined total.
+ */
+public class SpaceSaving {
+    private final int capacity;
+    private final Map<String, Counter> counters = new HashMap<>();
+    private final TreeMap<Long, Set<String>> byCount = new TreeMap<>();
+    private long total;
+
+    public SpaceSaving(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public long getMaxError() {
+        return counters.size() < capacity ? 0 : minCount();
+    }
+
+    public boolean isEmpty() {
+        return counters.isEmpty();
+    }
+
+    public void offer(String item, long count) {
+        total += count;
+        Counter counter = counters.get(item);
+        if (counter != null) {
+            setCount(item, counter, counter.count + count);
+            return;
+        }
+        if (counters.size() < capacity) {
+            put(item, new Counter(count, 0));
+            return;
+        }
+        Map.Entry<Long, Set<String>> min = byCount.firstEntry();
+        String evicted = min.getValue().iterator().next();
+        remove(evicted);
+        put(item, new Counter(min.getKey() + count, min.getKey()));
+    }
+
+    public void merge(SpaceSaving other) {
+        long thisMin = getMaxError();
+        long otherMin = other.getMaxError();
+        Map<String, Counter> combined = new HashMap<>();
+        counters.forEach((item, counter) -> {
+            Counter match = other.counters.get(item);
+            combined.put(item, match == null
+                    ? new Counter(counter.count + otherMin, counter.error + otherMin)
+                    : new Counter(counter.count + match.count, counter.error + match.error));
+        });
+        other.counters.forEach((item, counter) -> combined.computeIfAbsent(item,
+                key -> new Counter(counter.count + thisMin, counter.error + thisMin)));
+        long combinedTotal = total + other.total;
+        counters.clear();
+        byCount.clear();
+        combined.entrySet().stream()
+                .sorted(Map.Entry.comparingByValue(Comparator.comparingLong((Counter c) -> c.count).reversed()))
+                .limit(capacity)
+                .forEach(entry -> put(entry.getKey(), entry.getValue()));
+        total = combinedTotal;
+    }
+
+    public List<Entry> top(int k) {
+        List<Entry> result = new ArrayList<>(Math.min(k, counters.size()));
+        for (Map.Entry<Long, Set<String>> bucket : byCount.descendingMap().entrySet()) {
+            for (String item : bucket.getValue()) {
+                if (result.size() == k) {
+                    return result;
+                }
+                result.add(new Entry(item, bucket.getKey(), counters.get(item).error));
+            }
+        }
+        return result;
+    }
+
+    public byte[] toBytes() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(capacity);
+            out.writeLong(total);
+            out.writeInt(counters.size());
+            for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeLong(entry.getValue().count);
+                out.writeLong(entry.getValue().error);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static SpaceSaving fromBytes(byte[] bytes) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            SpaceSaving summary = new SpaceSaving(in.readInt());
+            summary.total = in.readLong();
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                summary.put(in.readUTF(), new Counter(in.readLong(), in.readLong()));
+            }
+            return summary;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Malformed heavy-hitter summary", e);
+        }
+    }
+
+    private long minCount() {
+        return byCount.isEmpty() ? 0 : byCount.firstKey();
+    }
+
+    private void put(String item, Counter counter) {
+        counters.put(item, counter);
+        byCount.computeIfAbsent(counter.count, key -> new LinkedHashSet<>()).add(item);
+    }
+
+    private void remove(String item) {
+        Counter counter = counters.remove(item);
+        unlink(item, counter.count);
+    }
+
+    private void setCount(String item, Counter counter, long count) {
+        unlink(item, counter.count);
+        counter.count = count;
+        byCount.computeIfAbsent(count, key -> new LinkedHashSet<>()).add(item);
+    }
+
+    private void unlink(String item, long count) {
+        Set<String> items = byCount.get(count);
+        items.remove(item);
+        if (items.isEmpty()) {
+            byCount.remove(count);
+        }
+    }
+
+    public record Entry(String item, long count, long error) {
+    }
+
+    private static final class Counter {
+        private long count;
+        private final long error;
+
+        private Counter(long count, long error) {
+            this.count = count;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package ru.practicum.statsservice.sketch;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.statsdto.ViewStats;
+import ru.practicum.statsservice.model.EndpointHitEntity;
+import ru.practicum.statsservice.model.HitTopSketchEntity;
+import ru.practicum.statsservice.model.RollupGranularity;
+import ru.practicum.statsservice.repository.EndpointHitRepository;
+import ru.practicum.statsservice.repository.HitTopSketchRepository;
+import ru.practicum.statsservice.rollup.AggregateBackfill;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Keeps a {@link SpaceSaving} summary of the busiest (app, uri) pairs for every hour and every
+ * day. Ingest only updates in-memory deltas; they are merged into {@code hit_top_sketches}
+ * every {@code flush-interval-ms}. A top query merges the day and hour summaries covering the
+ * range, counts the partial hours at both edges exactly from raw hits, and reads the pending
+ * deltas, so a returned count overestimates the true count by at most {@code N / capacity} for
+ * {@code N} hits in the range.
+ */
+@Slf4j
+@Component
+public class TopHitsService {
+    private static final char SEPARATOR = '\u0000';
+    private static final List<RollupGranularity> GRANULARITIES = List.of(RollupGranularity.HOUR, RollupGranularity.DAY);
+    private final boolean enabled;
+    private final int capacity;
+    private final HitTopSketchRepository sketchRepository;
+    private final EndpointHitRepository hitRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final AggregateBackfill backfill;
+    private Map<BucketKey, SpaceSaving> pending = new HashMap<>();
+
+    @Autowired
+    public TopHitsService(@Value("${stats.top.enabled:false}") boolean enabled,
+                          @Value("${stats.top.capacity:512}") int capacity,
+                          HitTopSketchRepository sketchRepository,
+                          EndpointHitRepository hitRepository,
+                          PlatformTransactionManager transactionManager,
+                          AggregateBackfill backfill) {
+        this.enabled = enabled;
+        this.capacity = capacity;
+        this.sketchRepository = sketchRepository;
+        this.hitRepository = hitRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.backfill = backfill;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Summarizes hits stored before the service was enabled. Each page is merged straight into
+     * {@code hit_top_sketches} in the same transaction that moves the backfill marker, so a
+     * restart resumes after the last stored page instead of skipping or repeating it.
+     */
+    @PostConstruct
+    public void backfill() {
+        if (enabled) {
+            backfill.run("top", sketchRepository.count() > 0, page -> sketchRepository.merge(toEntities(summarize(page))));
+        }
+    }
+
+    public void record(List<EndpointHitEntity> hits) {
+        Map<BucketKey, SpaceSaving> deltas = summarize(hits);
+        synchronized (this) {
+            deltas.forEach((key, delta) -> pending.merge(key, delta, (current, added) -> {
+                current.merge(added);
+                return current;
+            }));
+        }
+    }
+
+    private Map<BucketKey, SpaceSaving> summarize(List<EndpointHitEntity> hits) {
+        Map<BucketKey, Map<String, Long>> counts = new HashMap<>();
+        for (EndpointHitEntity hit : hits) {
+            String item = hit.getApp() + SEPARATOR + hit.getUri();
+            for (RollupGranularity granularity : GRANULARITIES) {
+                BucketKey key = new BucketKey(granularity, granularity.floor(hit.getTimestamp()));
+                counts.computeIfAbsent(key, k -> new HashMap<>()).merge(item, 1L, Long::sum);
+            }
+        }
+        Map<BucketKey, SpaceSaving> summaries = new HashMap<>();
+        counts.forEach((key, items) -> {
+            SpaceSaving summary = new SpaceSaving(capacity);
+            items.forEach(summary::offer);
+            summaries.put(key, summary);
+        });
+        return summaries;
+    }
+
+    private List<HitTopSketchEntity> toEntities(Map<BucketKey, SpaceSaving> summaries) {
+        return summaries.entrySet().stream()
+                .map(entry -> HitTopSketchEntity.builder()
+                        .granularity(entry.getKey().granularity())
+                        .bucketStart(entry.getKey().bucketStart())
+                        .sketch(entry.getValue().toBytes())
+                        .build())
+                .toList();
+    }
+
+    @Scheduled(fixedDelayString = "${stats.top.flush-interval-ms:10000}")
+    public void flush() {
+        if (!enabled) {
+            return;
+        }
+        Map<BucketKey, SpaceSaving> deltas;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            deltas = pending;
+            pending = new HashMap<>();
+        }
+        List<HitTopSketchEntity> entities = toEntities(deltas);
+        try {
+            transactionTemplate.executeWithoutResult(status -> sketchRepository.merge(entities));
+        } catch (Exception e) {
+            synchronized (this) {
+                deltas.forEach((key, delta) -> pending.merge(key, delta, (current, failed) -> {
+                    current.merge(failed);
+                    return current;
+                }));
+            }
+            log.error("Failed to store {} heavy-hitter summaries, will retry", entities.size(), e);
+        }
+    }
+
+    /**
+     * Returns up to {@code k} (app, uri) pairs with the most hits in the range, busiest first.
+     */
+    public List<ViewStats> getTop(LocalDateTime start, LocalDateTime end, int k) {
+        SpaceSaving summary = new SpaceSaving(capacity);
+        LocalDateTime firstHour = RollupGranularity.HOUR.ceil(start);
+        LocalDateTime lastHour = RollupGranularity.HOUR.floor(end);
+        if (!firstHour.isBefore(lastHour)) {
+            addRows(summary, hitRepository.getStats(start, end, null));
+            return toViewStats(summary, k);
+        }
+        if (start.isBefore(firstHour)) {
+            addRows(summary, hitRepository.countInRange(start, firstHour, null));
+        }
+        LocalDateTime firstDay = RollupGranularity.DAY.ceil(firstHour);
+        LocalDateTime lastDay = RollupGranularity.DAY.floor(lastHour);
+        if (firstDay.isBefore(lastDay)) {
+            addBuckets(summary, RollupGranularity.HOUR, firstHour, firstDay);
+            addBuckets(summary, RollupGranularity.DAY, firstDay, lastDay);
+            addBuckets(summary, RollupGranularity.HOUR, lastDay, lastHour);
+        } else {
+            addBuckets(summary, RollupGranularity.HOUR, firstHour, lastHour);
+        }
+        addRows(summary, hitRepository.getStats(lastHour, end, null));
+        return toViewStats(summary, k);
+    }
+
+    private void addBuckets(SpaceSaving summary, RollupGranularity granularity, LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            return;
+        }
+        for (HitTopSketchEntity bucket : sketchRepository.findBuckets(granularity, from, to)) {
+            summary.merge(SpaceSaving.fromBytes(bucket.getSketch()));
+        }
+        synchronized (this) {
+            pending.forEach((key, delta) -> {
+                if (key.granularity() == granularity && !key.bucketStart().isBefore(from)
+                        && key.bucketStart().isBefore(to)) {
+                    summary.merge(delta);
+                }
+            });
+        }
+    }
+
+    private void addRows(SpaceSaving summary, List<Object[]> rows) {
+        SpaceSaving exact = new SpaceSaving(Math.max(capacity, rows.size() + 1));
+        for (Object[] row : rows) {
+            exact.offer(Objects.toString(row[0]) + SEPARATOR + Objects.toString(row[1]), ((Number) row[2]).longValue());
+        }
+        summary.merge(exact);
+    }
+
+    private List<ViewStats> toViewStats(SpaceSaving summary, int k) {
+        return summary.top(k).stream()
+                .map(entry -> {
+                    int split = entry.item().indexOf(SEPARATOR);
+                    return ViewStats.builder()
+                            .app(entry.item().substring(0, split))
+                            .uri(entry.item().substring(split + 1))
+                            .hits(entry.count())
+                            .build();
+                })
+                .toList();
+    }
+
+    @PreDestroy
+    public void close() {
+        flush();
+    }
+
+    private record BucketKey(RollupGranularity granularity, LocalDateTime bucketStart) {
+    }
+}
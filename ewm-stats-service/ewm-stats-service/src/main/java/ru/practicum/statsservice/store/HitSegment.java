@@ -0,0 +1,268 @@
+package ru.practicum.statsservice.store;
+
+import ru.practicum.statsservice.model.EndpointHitEntity;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * One immutable, memory-mapped segment file of hits sorted by timestamp. Layout:
+ * <ul>
+ *     <li>records of {@value #RECORD_SIZE} bytes: timestamp (epoch millis at UTC), app, uri and ip
+ *     ids, hit id (zero when absent);</li>
+ *     <li>string table: count, then length-prefixed UTF-8 strings the ids point to;</li>
+ *     <li>uri index: count, then per uri its id, the number of its records and their ordinals in
+ *     ascending order;</li>
+ *     <li>footer: offsets of the string table and the index, min and max timestamp, record count
+ *     and a magic number.</li>
+ * </ul>
+ * The footer is enough to skip a segment whose time range misses a query.
+ */
+final class HitSegment {
+    static final int RECORD_SIZE = 36;
+    private static final int FOOTER_SIZE = 40;
+    private static final int MAGIC = 0x45574d53;
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private final int records;
+    private final long minTimestamp;
+    private final long maxTimestamp;
+    private final String[] strings;
+    private final Map<String, Integer> uriIndex;
+
+    private HitSegment(Path path, MappedByteBuffer buffer) throws IOException {
+        this.path = path;
+        this.buffer = buffer;
+        int size = buffer.capacity();
+        if (size < FOOTER_SIZE || buffer.getInt(size - 4) != MAGIC) {
+            throw new IOException("Not a hit segment: " + path);
+        }
+        int footer = size - FOOTER_SIZE;
+        int stringsOffset = (int) buffer.getLong(footer);
+        int indexOffset = (int) buffer.getLong(footer + 8);
+        this.minTimestamp = buffer.getLong(footer + 16);
+        this.maxTimestamp = buffer.getLong(footer + 24);
+        this.records = buffer.getInt(footer + 32);
+        if ((long) records * RECORD_SIZE != stringsOffset || indexOffset > footer) {
+            throw new IOException("Corrupt hit segment: " + path);
+        }
+
+        int position = stringsOffset;
+        this.strings = new String[buffer.getInt(position)];
+        position += 4;
+        for (int i = 0; i < strings.length; i++) {
+            int length = buffer.getInt(position);
+            byte[] bytes = new byte[length];
+            buffer.get(position + 4, bytes);
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            position += 4 + length;
+        }
+
+        position = indexOffset;
+        int uris = buffer.getInt(position);
+        position += 4;
+        this.uriIndex = new HashMap<>(uris * 2);
+        for (int i = 0; i < uris; i++) {
+            uriIndex.put(strings[buffer.getInt(position)], position + 4);
+            position += 8 + 4 * buffer.getInt(position + 4);
+        }
+    }
+
+    static HitSegment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new HitSegment(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Writes {@code hits}, which must be sorted by timestamp, through a temporary file that is
+     * renamed into place once complete, so {@code path} never holds a partial segment.
+     */
+    static HitSegment write(Path path, List<EndpointHitEntity> hits) throws IOException {
+        int count = hits.size();
+        Map<String, Integer> ids = new LinkedHashMap<>();
+        int[] appIds = new int[count];
+        int[] uriIds = new int[count];
+        int[] ipIds = new int[count];
+        for (int i = 0; i < count; i++) {
+            EndpointHitEntity hit = hits.get(i);
+            appIds[i] = ids.computeIfAbsent(hit.getApp(), key -> ids.size());
+            uriIds[i] = ids.computeIfAbsent(hit.getUri(), key -> ids.size());
+            ipIds[i] = ids.computeIfAbsent(hit.getIp(), key -> ids.size());
+        }
+        byte[][] encoded = new byte[ids.size()][];
+        long stringsSize = 4;
+        for (Map.Entry<String, Integer> entry : ids.entrySet()) {
+            encoded[entry.getValue()] = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            stringsSize += 4 + encoded[entry.getValue()].length;
+        }
+        int[] uriCounts = new int[ids.size()];
+        int distinctUris = 0;
+        for (int uriId : uriIds) {
+            if (uriCounts[uriId]++ == 0) {
+                distinctUris++;
+            }
+        }
+        long stringsOffset = (long) count * RECORD_SIZE;
+        long indexOffset = stringsOffset + stringsSize;
+        long size = indexOffset + 4 + 8L * distinctUris + 4L * count + FOOTER_SIZE;
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Segment too large: " + count + " hits");
+        }
+
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            for (int i = 0; i < count; i++) {
+                EndpointHitEntity hit = hits.get(i);
+                UUID hitId = hit.getHitId();
+                out.putLong(toMillis(hit.getTimestamp()))
+                        .putInt(appIds[i])
+                        .putInt(uriIds[i])
+                        .putInt(ipIds[i])
+                        .putLong(hitId == null ? 0 : hitId.getMostSignificantBits())
+                        .putLong(hitId == null ? 0 : hitId.getLeastSignificantBits());
+            }
+            out.putInt(encoded.length);
+            for (byte[] string : encoded) {
+                out.putInt(string.length).put(string);
+            }
+
+            out.putInt(distinctUris);
+            int[] starts = new int[ids.size()];
+            int next = out.position();
+            for (int uriId = 0; uriId < uriCounts.length; uriId++) {
+                if (uriCounts[uriId] > 0) {
+                    out.putInt(next, uriId).putInt(next + 4, uriCounts[uriId]);
+                    starts[uriId] = next + 8;
+                    next += 8 + 4 * uriCounts[uriId];
+                }
+            }
+            for (int i = 0; i < count; i++) {
+                out.putInt(starts[uriIds[i]], i);
+                starts[uriIds[i]] += 4;
+            }
+
+            out.position(next);
+            out.putLong(stringsOffset)
+                    .putLong(indexOffset)
+                    .putLong(count == 0 ? Long.MAX_VALUE : toMillis(hits.getFirst().getTimestamp()))
+                    .putLong(count == 0 ? Long.MIN_VALUE : toMillis(hits.getLast().getTimestamp()))
+                    .putInt(count)
+                    .putInt(MAGIC);
+            out.force();
+        }
+        Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return open(path);
+    }
+
+    static long toMillis(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    int getRecords() {
+        return records;
+    }
+
+    long getMaxTimestamp() {
+        return maxTimestamp;
+    }
+
+    boolean overlaps(long from, long to) {
+        return records > 0 && minTimestamp <= to && maxTimestamp >= from;
+    }
+
+    /**
+     * Calls {@code visitor} for each record with a timestamp in {@code [from, to]}, oldest first;
+     * with {@code uri} set only that uri's records are read, through the index.
+     */
+    void scan(long from, long to, String uri, RecordVisitor visitor) {
+        if (!overlaps(from, to)) {
+            return;
+        }
+        if (uri == null) {
+            for (int ordinal = lowerBound(from, 0, records, -1); ordinal < records; ordinal++) {
+                if (timestamp(ordinal) > to) {
+                    return;
+                }
+                visitor.visit(this, ordinal);
+            }
+            return;
+        }
+        Integer entry = uriIndex.get(uri);
+        if (entry == null) {
+            return;
+        }
+        int count = buffer.getInt(entry);
+        int ordinals = entry + 4;
+        for (int i = lowerBound(from, 0, count, ordinals); i < count; i++) {
+            int ordinal = buffer.getInt(ordinals + 4 * i);
+            if (timestamp(ordinal) > to) {
+                return;
+            }
+            visitor.visit(this, ordinal);
+        }
+    }
+
+    long timestamp(int ordinal) {
+        return buffer.getLong(ordinal * RECORD_SIZE);
+    }
+
+    String app(int ordinal) {
+        return strings[buffer.getInt(ordinal * RECORD_SIZE + 8)];
+    }
+
+    String uri(int ordinal) {
+        return strings[buffer.getInt(ordinal * RECORD_SIZE + 12)];
+    }
+
+    String ip(int ordinal) {
+        return strings[buffer.getInt(ordinal * RECORD_SIZE + 16)];
+    }
+
+    UUID hitId(int ordinal) {
+        long most = buffer.getLong(ordinal * RECORD_SIZE + 20);
+        long least = buffer.getLong(ordinal * RECORD_SIZE + 28);
+        return most == 0 && least == 0 ? null : new UUID(most, least);
+    }
+
+    /**
+     * First position in {@code [low, high)} whose record is not older than {@code from}; positions
+     * are record ordinals, or indexes into the ordinal list at {@code ordinals} when it is not -1.
+     */
+    private int lowerBound(long from, int low, int high, int ordinals) {
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int ordinal = ordinals < 0 ? mid : buffer.getInt(ordinals + 4 * mid);
+            if (timestamp(ordinal) < from) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    @FunctionalInterface
+    interface RecordVisitor {
+        void visit(HitSegment segment, int ordinal);
+    }
+}
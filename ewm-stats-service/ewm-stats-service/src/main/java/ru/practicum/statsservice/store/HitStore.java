@@ -0,0 +1,40 @@
+package ru.practicum.statsservice.store;
+
+import ru.practicum.statsdto.ViewStats;
+import ru.practicum.statsservice.model.EndpointHitEntity;
+import ru.practicum.statsservice.model.RollupGranularity;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Storage of raw hits behind the stats service, selected with {@code stats.store.type}: {@code jpa}
+ * (the default) keeps them in the {@code endpoint_hits} table, {@code segment} in local segment
+ * files. Rollups, sketches and the other aggregates are kept in the database either way.
+ */
+public interface HitStore {
+
+    void save(EndpointHitEntity hit);
+
+    void insertAll(List<EndpointHitEntity> hits);
+
+    /**
+     * Hits (or distinct ips when {@code unique}) per app and uri with a timestamp in
+     * {@code [start, end]}, most hits first; a null {@code uris} means all uris.
+     */
+    List<ViewStats> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique);
+
+    /**
+     * Same rows as {@link #getStats}; the caller closes the stream.
+     */
+    Stream<ViewStats> streamStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique);
+
+    List<UUID> findExistingHitIds(Collection<UUID> hitIds, LocalDateTime from, LocalDateTime to);
+
+    Map<LocalDateTime, Long> countByBucket(String uri, RollupGranularity granularity, LocalDateTime from,
+                                           LocalDateTime to, boolean inclusiveEnd, boolean unique);
+}
@@ -0,0 +1,52 @@
+package ru.practicum.statsservice.store;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.practicum.statsservice.parallel.ParallelRangeQuery;
+import ru.practicum.statsservice.repository.EndpointHitRepository;
+
+import java.nio.file.Path;
+
+/**
+ * Selects the {@link HitStore}: {@code jpa} (the default) or the embedded {@code segment} store;
+ * any other type fails startup. Rollups, sketches, top summaries, the hot window's backfill,
+ * compaction and partitioning all work on the {@code endpoint_hits} table and see nothing of the
+ * segment files, so the segment store refuses to start while any of them is enabled.
+ */
+@Configuration
+public class HitStoreConfig {
+
+    @Bean
+    public HitStore hitStore(@Value("${stats.store.type:jpa}") String type,
+                             @Value("${stats.store.segment.dir:data/hit-segments}") String segmentDir,
+                             @Value("${stats.store.segment.max-segment-hits:500000}") int maxSegmentHits,
+                             @Value("${stats.store.segment.seal-interval-ms:60000}") long sealIntervalMs,
+                             @Value("${stats.store.segment.retention-days:0}") int retentionDays,
+                             @Value("${stats.store.segment.fsync:false}") boolean fsync,
+                             @Value("${stats.hot-window.enabled:false}") boolean hotWindow,
+                             @Value("${stats.compaction.enabled:false}") boolean compaction,
+                             @Value("${stats.partitioning.enabled:false}") boolean partitioning,
+                             @Value("${stats.rollup.enabled:false}") boolean rollup,
+                             @Value("${stats.sketch.enabled:false}") boolean sketch,
+                             @Value("${stats.top.enabled:false}") boolean top,
+                             EndpointHitRepository repository,
+                             ParallelRangeQuery parallelQuery,
+                             MeterRegistry meterRegistry) {
+        if ("segment".equalsIgnoreCase(type)) {
+            if (rollup || sketch || top || hotWindow || compaction || partitioning) {
+                throw new IllegalStateException("stats.store.type=segment keeps raw hits out of endpoint_hits, " +
+                        "which rollups, sketches, top summaries, the hot window, compaction and partitioning " +
+                        "read; set stats.rollup.enabled, stats.sketch.enabled, stats.top.enabled, " +
+                        "stats.hot-window.enabled, stats.compaction.enabled and stats.partitioning.enabled to false");
+            }
+            return new SegmentHitStore(Path.of(segmentDir), maxSegmentHits, sealIntervalMs, retentionDays, fsync,
+                    meterRegistry);
+        }
+        if (!"jpa".equalsIgnoreCase(type)) {
+            throw new IllegalStateException("Unknown stats.store.type: " + type + ", expected jpa or segment");
+        }
+        return new JpaHitStore(repository, parallelQuery);
+    }
+}
@@ -0,0 +1,77 @@
+package ru.practicum.statsservice.store;
+
+import ru.practicum.statsdto.ViewStats;
+import ru.practicum.statsservice.model.EndpointHitEntity;
+import ru.practicum.statsservice.model.RollupGranularity;
+import ru.practicum.statsservice.parallel.ParallelRangeQuery;
+import ru.practicum.statsservice.repository.EndpointHitRepository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Default {@link HitStore} over the {@code endpoint_hits} table. Long ranges are split into day
+ * slices by {@link ParallelRangeQuery} when it is enabled.
+ */
+public class JpaHitStore implements HitStore {
+    private final EndpointHitRepository repository;
+    private final ParallelRangeQuery parallelQuery;
+
+    public JpaHitStore(EndpointHitRepository repository, ParallelRangeQuery parallelQuery) {
+        this.repository = repository;
+        this.parallelQuery = parallelQuery;
+    }
+
+    @Override
+    public void save(EndpointHitEntity hit) {
+        repository.save(hit);
+    }
+
+    @Override
+    public void insertAll(List<EndpointHitEntity> hits) {
+        repository.insertAll(hits);
+    }
+
+    @Override
+    public List<ViewStats> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique) {
+        if (parallelQuery.shouldSplit(start, end)) {
+            return parallelQuery.getStats(start, end, uris, unique);
+        }
+        List<Object[]> rows = unique ?
+                repository.getStatsUnique(start, end, uris) :
+                repository.getStats(start, end, uris);
+        return rows.stream().map(this::toViewStats).toList();
+    }
+
+    @Override
+    public Stream<ViewStats> streamStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique) {
+        Stream<Object[]> rows = unique ?
+                repository.streamStatsUnique(start, end, uris) :
+                repository.streamStats(start, end, uris);
+        return rows.map(this::toViewStats);
+    }
+
+    @Override
+    public List<UUID> findExistingHitIds(Collection<UUID> hitIds, LocalDateTime from, LocalDateTime to) {
+        return repository.findExistingHitIds(hitIds, from, to);
+    }
+
+    @Override
+    public Map<LocalDateTime, Long> countByBucket(String uri, RollupGranularity granularity, LocalDateTime from,
+                                                  LocalDateTime to, boolean inclusiveEnd, boolean unique) {
+        return repository.countByBucket(uri, granularity, from, to, inclusiveEnd, unique);
+    }
+
+    private ViewStats toViewStats(Object[] row) {
+        return ViewStats.builder()
+                .app(Objects.toString(row[0]))
+                .uri(Objects.toString(row[1]))
+                .hits(Long.parseLong(row[2].toString()))
+                .build();
+    }
+}
@@ -0,0 +1,523 @@
+package ru.practicum.statsservice.store;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import ru.practicum.statsdto.ViewStats;
+import ru.practicum.statsservice.model.EndpointHitEntity;
+import ru.practicum.statsservice.model.RollupGranularity;
+import ru.practicum.statsservice.service.HitCounts;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Embedded {@link HitStore} that needs no database for raw hits. New hits go to an in-memory
+ * buffer backed by an append-only {@code active.log}; once the buffer holds
+ * {@code max-segment-hits} hits, or its oldest hit is {@code seal-interval-ms} old, it is sorted by
+ * timestamp and sealed into an immutable {@link HitSegment} file. Queries skip segments whose time
+ * range misses the requested one and read only the requested uris through each segment's index.
+ * With {@code retention-days} set, segments that end before the horizon are deleted as a whole.
+ * <p>
+ * A sealing buffer is renamed to {@code sealing-<n>.log} before its segment is written, so a crash
+ * at any point loses nothing: on startup leftover temporary files are removed, sealing logs without
+ * a segment are sealed again and {@code active.log} is replayed up to its last complete record.
+ * The log is only forced to disk on every append when {@code fsync} is set.
+ */
+@Slf4j
+public class SegmentHitStore implements HitStore, Closeable {
+    private static final String ACTIVE_LOG = "active.log";
+    private static final String SEALING_PREFIX = "sealing-";
+    private static final String LOG_SUFFIX = ".log";
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final Comparator<EndpointHitEntity> BY_TIMESTAMP =
+            Comparator.comparing(EndpointHitEntity::getTimestamp);
+    private final Path directory;
+    private final int maxSegmentHits;
+    private final long sealIntervalMs;
+    private final int retentionDays;
+    private final boolean fsync;
+    private final Clock clock;
+    private final Counter sealed;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object sealMonitor = new Object();
+    private volatile List<HitSegment> segments = List.of();
+    private List<EndpointHitEntity> active = new ArrayList<>();
+    private List<EndpointHitEntity> sealing = List.of();
+    private volatile long sealingSequence = -1;
+    private long activeSince;
+    private long nextSequence;
+    private FileChannel activeLog;
+
+    public SegmentHitStore(Path directory, int maxSegmentHits, long sealIntervalMs, int retentionDays,
+                           boolean fsync, MeterRegistry meterRegistry) {
+        this(directory, maxSegmentHits, sealIntervalMs, retentionDays, fsync, meterRegistry,
+                Clock.systemDefaultZone());
+    }
+
+    SegmentHitStore(Path directory, int maxSegmentHits, long sealIntervalMs, int retentionDays, boolean fsync,
+                    MeterRegistry meterRegistry, Clock clock) {
+        this.directory = directory;
+        this.maxSegmentHits = maxSegmentHits;
+        this.sealIntervalMs = sealIntervalMs;
+        this.retentionDays = retentionDays;
+        this.fsync = fsync;
+        this.clock = clock;
+        this.sealed = meterRegistry.counter("stats.store.segments.sealed");
+        try {
+            Files.createDirectories(directory);
+            recover();
+            activeLog = openActiveLog();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open hit segment store in " + directory, e);
+        }
+        meterRegistry.gauge("stats.store.segments", this, store -> store.segments.size());
+        log.info("Opened hit segment store in {}: {} segments, {} buffered hits", directory, segments.size(),
+                active.size());
+    }
+
+    @Override
+    public void save(EndpointHitEntity hit) {
+        insertAll(List.of(hit));
+    }
+
+    @Override
+    public void insertAll(List<EndpointHitEntity> hits) {
+        if (hits.isEmpty()) {
+            return;
+        }
+        ByteBuffer records = encode(hits);
+        boolean full;
+        long size = -1;
+        lock.writeLock().lock();
+        try {
+            size = activeLog.size();
+            write(activeLog, records);
+            if (fsync) {
+                activeLog.force(false);
+            }
+            if (active.isEmpty()) {
+                activeSince = clock.millis();
+            }
+            active.addAll(hits);
+            full = active.size() >= maxSegmentHits;
+        } catch (IOException e) {
+            discardPartialAppend(size, e);
+            throw new UncheckedIOException("Failed to append hits to " + directory.resolve(ACTIVE_LOG), e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (full) {
+            seal();
+        }
+    }
+
+    void write(FileChannel channel, ByteBuffer records) throws IOException {
+        while (records.hasRemaining()) {
+            channel.write(records);
+        }
+    }
+
+    /**
+     * Cuts {@code active.log} back to its size before a failed append, so the hits of the failed
+     * call are neither replayed on restart nor left as a torn record in front of later appends.
+     */
+    private void discardPartialAppend(long size, IOException failure) {
+        if (size < 0) {
+            return;
+        }
+        try {
+            activeLog.truncate(size);
+        } catch (IOException e) {
+            failure.addSuppressed(e);
+            log.error("Cannot truncate {} after a failed append", directory.resolve(ACTIVE_LOG), e);
+        }
+    }
+
+    @Override
+    public List<ViewStats> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique) {
+        HitCounts counts = new HitCounts();
+        if (!unique) {
+            scan(start, end, uris, (app, uri, ip, timestamp) -> counts.add(app, uri, 1));
+            return counts.toViewStats();
+        }
+        Map<String, Map<String, Set<String>>> ips = new HashMap<>();
+        scan(start, end, uris, (app, uri, ip, timestamp) -> ips
+                .computeIfAbsent(app, key -> new HashMap<>())
+                .computeIfAbsent(uri, key -> new HashSet<>())
+                .add(ip));
+        ips.forEach((app, byUri) -> byUri.forEach((uri, visitors) -> counts.add(app, uri, visitors.size())));
+        return counts.toViewStats();
+    }
+
+    @Override
+    public Stream<ViewStats> streamStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique) {
+        return getStats(start, end, uris, unique).stream();
+    }
+
+    @Override
+    public List<UUID> findExistingHitIds(Collection<UUID> hitIds, LocalDateTime from, LocalDateTime to) {
+        Set<UUID> wanted = new HashSet<>(hitIds);
+        Set<UUID> found = new HashSet<>();
+        scan(HitSegment.toMillis(from), HitSegment.toMillis(to), null,
+                hit -> {
+                    if (wanted.contains(hit.getHitId())) {
+                        found.add(hit.getHitId());
+                    }
+                },
+                (segment, ordinal) -> {
+                    UUID hitId = segment.hitId(ordinal);
+                    if (hitId != null && wanted.contains(hitId)) {
+                        found.add(hitId);
+                    }
+                });
+        return new ArrayList<>(found);
+    }
+
+    @Override
+    public Map<LocalDateTime, Long> countByBucket(String uri, RollupGranularity granularity, LocalDateTime from,
+                                                  LocalDateTime to, boolean inclusiveEnd, boolean unique) {
+        LocalDateTime end = inclusiveEnd ? to : to.minusNanos(1);
+        Map<LocalDateTime, Long> counts = new HashMap<>();
+        if (!unique) {
+            scan(from, end, List.of(uri), (app, hitUri, ip, timestamp) ->
+                    counts.merge(granularity.floor(fromMillis(timestamp)), 1L, Long::sum));
+            return counts;
+        }
+        Map<LocalDateTime, Set<String>> ips = new HashMap<>();
+        scan(from, end, List.of(uri), (app, hitUri, ip, timestamp) ->
+                ips.computeIfAbsent(granularity.floor(fromMillis(timestamp)), key -> new HashSet<>()).add(ip));
+        ips.forEach((bucket, visitors) -> counts.put(bucket, (long) visitors.size()));
+        return counts;
+    }
+
+    /**
+     * Seals buffered hits into a new segment, first retrying a seal that failed earlier.
+     */
+    public void seal() {
+        synchronized (sealMonitor) {
+            if (sealingSequence >= 0 && !writeSegment()) {
+                return;
+            }
+            lock.writeLock().lock();
+            try {
+                if (active.isEmpty()) {
+                    return;
+                }
+                long sequence = nextSequence;
+                activeLog.close();
+                try {
+                    Files.move(directory.resolve(ACTIVE_LOG), sealingLog(sequence), StandardCopyOption.ATOMIC_MOVE);
+                } finally {
+                    activeLog = openActiveLog();
+                }
+                nextSequence++;
+                sealingSequence = sequence;
+                sealing = active;
+                active = new ArrayList<>();
+            } catch (IOException e) {
+                log.error("Failed to rotate {}, hits stay buffered", directory.resolve(ACTIVE_LOG), e);
+                return;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            writeSegment();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${stats.store.segment.seal-interval-ms:60000}")
+    public void maintain() {
+        boolean due;
+        lock.readLock().lock();
+        try {
+            due = sealingSequence >= 0 || (!active.isEmpty() && clock.millis() - activeSince >= sealIntervalMs);
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (due) {
+            seal();
+        }
+        if (retentionDays > 0) {
+            dropExpired(HitSegment.toMillis(LocalDateTime.now(clock).minusDays(retentionDays)));
+        }
+    }
+
+    int getSegmentCount() {
+        return segments.size();
+    }
+
+    @Override
+    @PreDestroy
+    public void close() {
+        seal();
+        lock.writeLock().lock();
+        try {
+            if (activeLog.isOpen()) {
+                activeLog.close();
+            }
+        } catch (IOException e) {
+            log.warn("Failed to close {}: {}", directory.resolve(ACTIVE_LOG), e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean writeSegment() {
+        List<EndpointHitEntity> sorted = new ArrayList<>(sealing);
+        sorted.sort(BY_TIMESTAMP);
+        try {
+            HitSegment segment = HitSegment.write(segmentPath(sealingSequence), sorted);
+            lock.writeLock().lock();
+            try {
+                List<HitSegment> updated = new ArrayList<>(segments);
+                updated.add(segment);
+                segments = List.copyOf(updated);
+                sealing = List.of();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            Files.deleteIfExists(sealingLog(sealingSequence));
+            sealingSequence = -1;
+            sealed.increment();
+            return true;
+        } catch (IOException e) {
+            log.error("Failed to seal {} hits into a segment, will retry", sorted.size(), e);
+            return false;
+        }
+    }
+
+    private void dropExpired(long horizon) {
+        List<HitSegment> expired;
+        lock.writeLock().lock();
+        try {
+            expired = segments.stream().filter(segment -> segment.getMaxTimestamp() < horizon).toList();
+            if (expired.isEmpty()) {
+                return;
+            }
+            segments = segments.stream().filter(segment -> segment.getMaxTimestamp() >= horizon).toList();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        for (HitSegment segment : expired) {
+            try {
+                Files.deleteIfExists(segment.getPath());
+                log.info("Dropped expired segment {}", segment.getPath().getFileName());
+            } catch (IOException e) {
+                log.warn("Failed to delete expired segment {}: {}", segment.getPath(), e.getMessage());
+            }
+        }
+    }
+
+    private void scan(LocalDateTime start, LocalDateTime end, List<String> uris, HitSink sink) {
+        scan(HitSegment.toMillis(start), HitSegment.toMillis(end), uris,
+                hit -> sink.accept(hit.getApp(), hit.getUri(), hit.getIp(), HitSegment.toMillis(hit.getTimestamp())),
+                (segment, ordinal) -> sink.accept(segment.app(ordinal), segment.uri(ordinal), segment.ip(ordinal),
+                        segment.timestamp(ordinal)));
+    }
+
+    /**
+     * Visits buffered hits and sealed records in {@code [from, to]}. The segment list is taken
+     * under the same lock as the buffers, so a seal finishing meanwhile is seen exactly once.
+     */
+    private void scan(long from, long to, List<String> uris, Consumer<EndpointHitEntity> buffered,
+                      HitSegment.RecordVisitor visitor) {
+        Set<String> wanted = uris == null ? null : new HashSet<>(uris);
+        List<HitSegment> snapshot;
+        lock.readLock().lock();
+        try {
+            for (List<EndpointHitEntity> hits : List.of(sealing, active)) {
+                for (EndpointHitEntity hit : hits) {
+                    long timestamp = HitSegment.toMillis(hit.getTimestamp());
+                    if (timestamp >= from && timestamp <= to && (wanted == null || wanted.contains(hit.getUri()))) {
+                        buffered.accept(hit);
+                    }
+                }
+            }
+            snapshot = segments;
+        } finally {
+            lock.readLock().unlock();
+        }
+        for (HitSegment segment : snapshot) {
+            if (!segment.overlaps(from, to)) {
+                continue;
+            }
+            if (wanted == null) {
+                segment.scan(from, to, null, visitor);
+            } else {
+                for (String uri : wanted) {
+                    segment.scan(from, to, uri, visitor);
+                }
+            }
+        }
+    }
+
+    private void recover() throws IOException {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.sorted().toList();
+        }
+        List<HitSegment> opened = new ArrayList<>();
+        List<Long> pendingSeals = new ArrayList<>();
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            if (name.endsWith(".tmp")) {
+                Files.delete(file);
+            } else if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                opened.add(HitSegment.open(file));
+                nextSequence = Math.max(nextSequence, sequenceOf(name, SEGMENT_PREFIX, SEGMENT_SUFFIX) + 1);
+            } else if (name.startsWith(SEALING_PREFIX) && name.endsWith(LOG_SUFFIX)) {
+                long sequence = sequenceOf(name, SEALING_PREFIX, LOG_SUFFIX);
+                pendingSeals.add(sequence);
+                nextSequence = Math.max(nextSequence, sequence + 1);
+            }
+        }
+        segments = List.copyOf(opened);
+        for (long sequence : pendingSeals) {
+            if (Files.exists(segmentPath(sequence))) {
+                Files.delete(sealingLog(sequence));
+                continue;
+            }
+            sealing = new ArrayList<>();
+            readLog(sealingLog(sequence), sealing);
+            sealingSequence = sequence;
+            if (!writeSegment()) {
+                throw new IOException("Cannot seal " + sealingLog(sequence));
+            }
+        }
+
+        Path activePath = directory.resolve(ACTIVE_LOG);
+        if (Files.exists(activePath)) {
+            long valid = readLog(activePath, active);
+            try (FileChannel channel = FileChannel.open(activePath, StandardOpenOption.WRITE)) {
+                if (channel.size() > valid) {
+                    log.warn("Truncating {} torn bytes at the end of {}", channel.size() - valid, activePath);
+                    channel.truncate(valid);
+                }
+            }
+            activeSince = clock.millis();
+        }
+    }
+
+    private FileChannel openActiveLog() throws IOException {
+        return FileChannel.open(directory.resolve(ACTIVE_LOG), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    private Path sealingLog(long sequence) {
+        return directory.resolve(SEALING_PREFIX + sequence + LOG_SUFFIX);
+    }
+
+    private Path segmentPath(long sequence) {
+        return directory.resolve(SEGMENT_PREFIX + sequence + SEGMENT_SUFFIX);
+    }
+
+    private static long sequenceOf(String name, String prefix, String suffix) {
+        return Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length()));
+    }
+
+    /**
+     * Log records are {@code [int length][long timestamp][long hitId msb][long hitId lsb]} followed
+     * by app, uri and ip as length-prefixed UTF-8.
+     */
+    private static ByteBuffer encode(List<EndpointHitEntity> hits) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(hits.size() * 96);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            for (EndpointHitEntity hit : hits) {
+                byte[] app = hit.getApp().getBytes(StandardCharsets.UTF_8);
+                byte[] uri = hit.getUri().getBytes(StandardCharsets.UTF_8);
+                byte[] ip = hit.getIp().getBytes(StandardCharsets.UTF_8);
+                UUID hitId = hit.getHitId();
+                out.writeInt(24 + 12 + app.length + uri.length + ip.length);
+                out.writeLong(HitSegment.toMillis(hit.getTimestamp()));
+                out.writeLong(hitId == null ? 0 : hitId.getMostSignificantBits());
+                out.writeLong(hitId == null ? 0 : hitId.getLeastSignificantBits());
+                for (byte[] string : List.of(app, uri, ip)) {
+                    out.writeInt(string.length);
+                    out.write(string);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return ByteBuffer.wrap(bytes.toByteArray());
+    }
+
+    /**
+     * Reads complete records into {@code into} and returns the length they take; anything after
+     * that is a record torn by a crash.
+     */
+    private static long readLog(Path path, List<EndpointHitEntity> into) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(path));
+        while (in.remaining() >= 4) {
+            int start = in.position();
+            int length = in.getInt();
+            if (length < 36 || in.remaining() < length) {
+                in.position(start);
+                break;
+            }
+            ByteBuffer record = in.slice(in.position(), length);
+            in.position(in.position() + length);
+            try {
+                long timestamp = record.getLong();
+                long most = record.getLong();
+                long least = record.getLong();
+                into.add(EndpointHitEntity.builder()
+                        .timestamp(fromMillis(timestamp))
+                        .hitId(most == 0 && least == 0 ? null : new UUID(most, least))
+                        .app(readString(record))
+                        .uri(readString(record))
+                        .ip(readString(record))
+                        .build());
+            } catch (RuntimeException e) {
+                in.position(start);
+                break;
+            }
+        }
+        return in.position();
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static LocalDateTime fromMillis(long millis) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000), (int) Math.floorMod(millis, 1000) * 1_000_000,
+                ZoneOffset.UTC);
+    }
+
+    @FunctionalInterface
+    private interface HitSink {
+        void accept(String app, String uri, String ip, long timestamp);
+    }
+}
@@ -0,0 +1,110 @@
+package ru.practicum.statsservice.timeseries;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.statsdto.TimeSeriesPoint;
+import ru.practicum.statsservice.exception.BadRequestException;
+import ru.practicum.statsservice.model.HitSketchEntity;
+import ru.practicum.statsservice.model.RollupGranularity;
+import ru.practicum.statsservice.repository.HitRollupRepository;
+import ru.practicum.statsservice.repository.HitSketchRepository;
+import ru.practicum.statsservice.rollup.RollupService;
+import ru.practicum.statsservice.sketch.HyperLogLog;
+import ru.practicum.statsservice.sketch.SketchService;
+import ru.practicum.statsservice.store.HitStore;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-bucket hits of one uri. Buckets that lie fully inside the range are read from rollups
+ * (hit counts) or merged hour/day sketches (unique visitors, estimated); the partial buckets at
+ * both edges, unique visitors per minute and everything else when the aggregates are disabled
+ * are counted from raw hits grouped by bucket in the hit store. Every bucket of the range is
+ * present in the result, empty ones with zero hits.
+ */
+@Component
+public class TimeSeriesService {
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private final int maxBuckets;
+    private final HitStore hitStore;
+    private final HitRollupRepository rollupRepository;
+    private final HitSketchRepository sketchRepository;
+    private final RollupService rollupService;
+    private final SketchService sketchService;
+
+    @Autowired
+    public TimeSeriesService(@Value("${stats.timeseries.max-buckets:1440}") int maxBuckets,
+                             HitStore hitStore,
+                             HitRollupRepository rollupRepository,
+                             HitSketchRepository sketchRepository,
+                             RollupService rollupService,
+                             SketchService sketchService) {
+        this.maxBuckets = maxBuckets;
+        this.hitStore = hitStore;
+        this.rollupRepository = rollupRepository;
+        this.sketchRepository = sketchRepository;
+        this.rollupService = rollupService;
+        this.sketchService = sketchService;
+    }
+
+    public List<TimeSeriesPoint> getTimeSeries(String uri, LocalDateTime start, LocalDateTime end,
+                                               RollupGranularity interval, boolean unique) {
+        LocalDateTime first = interval.floor(start);
+        long buckets = interval.getUnit().between(first, interval.floor(end)) + 1;
+        if (buckets > maxBuckets) {
+            throw new BadRequestException("Too many " + interval.name().toLowerCase() + " buckets in range: "
+                    + buckets + ", at most " + maxBuckets + " allowed");
+        }
+        Map<LocalDateTime, Long> counts = new HashMap<>();
+        LocalDateTime firstFull = interval.ceil(start);
+        LocalDateTime lastFull = interval.floor(end);
+        boolean fromRollups = !unique && rollupService.isEnabled();
+        boolean fromSketches = unique && interval != RollupGranularity.MINUTE && sketchService.isEnabled();
+        if ((fromRollups || fromSketches) && firstFull.isBefore(lastFull)) {
+            if (start.isBefore(firstFull)) {
+                counts.putAll(hitStore.countByBucket(uri, interval, start, firstFull, false, unique));
+            }
+            if (fromRollups) {
+                for (Object[] row : rollupRepository.sumHitsByBucket(interval, firstFull, lastFull, uri)) {
+                    counts.merge((LocalDateTime) row[0], ((Number) row[1]).longValue(), Long::sum);
+                }
+            } else {
+                counts.putAll(estimateBuckets(uri, interval, firstFull, lastFull));
+            }
+            hitStore.countByBucket(uri, interval, lastFull, end, true, unique)
+                    .forEach((bucket, hits) -> counts.merge(bucket, hits, Long::sum));
+        } else {
+            counts.putAll(hitStore.countByBucket(uri, interval, start, end, true, unique));
+        }
+        List<TimeSeriesPoint> points = new ArrayList<>((int) buckets);
+        for (LocalDateTime bucket = first; !bucket.isAfter(end); bucket = interval.next(bucket)) {
+            points.add(TimeSeriesPoint.builder()
+                    .start(bucket.format(FORMATTER))
+                    .hits(counts.getOrDefault(bucket, 0L))
+                    .build());
+        }
+        return points;
+    }
+
+    /**
+     * One estimate per bucket; sketches of the same bucket from different apps are merged, so an
+     * ip that hit the uri through several apps is counted once, as in the raw query.
+     */
+    private Map<LocalDateTime, Long> estimateBuckets(String uri, RollupGranularity interval, LocalDateTime from,
+                                                     LocalDateTime to) {
+        Map<LocalDateTime, HyperLogLog> sketches = new HashMap<>();
+        for (HitSketchEntity bucket : sketchRepository.findBuckets(interval, from, to, List.of(uri))) {
+            sketches.computeIfAbsent(bucket.getBucketStart(), k -> new HyperLogLog())
+                    .merge(HyperLogLog.fromBytes(bucket.getSketch()));
+        }
+        Map<LocalDateTime, Long> estimates = new HashMap<>();
+        sketches.forEach((bucket, sketch) -> estimates.put(bucket, sketch.estimate()));
+        return estimates;
+    }
+}
@@ -0,0 +1,91 @@
+DO '
+DECLARE
+    child TEXT;
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_schema = current_schema() AND table_name = ''endpoint_hits'' AND column_name = ''app'') THEN
+        ALTER TABLE endpoint_hits RENAME TO endpoint_hits_legacy;
+        ALTER INDEX IF EXISTS idx_endpoint_hits_timestamp_uri RENAME TO idx_endpoint_hits_legacy_timestamp_uri;
+        ALTER INDEX IF EXISTS ux_endpoint_hits_hit_id RENAME TO ux_endpoint_hits_legacy_hit_id;
+        FOR child IN SELECT c.relname FROM pg_inherits i
+                     JOIN pg_class c ON c.oid = i.inhrelid JOIN pg_class p ON p.oid = i.inhparent
+                     WHERE p.relname = ''endpoint_hits_legacy'' AND pg_table_is_visible(p.oid) LOOP
+            EXECUTE format(''ALTER TABLE %I RENAME TO %I'', child, ''legacy_'' || child);
+        END LOOP;
+    END IF;
+END';
+
+CREATE TABLE IF NOT EXISTS endpoint_hits (
+    id BIGSERIAL NOT NULL,
+    app_id INTEGER NOT NULL,
+    uri_id INTEGER NOT NULL,
+    ip BYTEA NOT NULL,
+    timestamp TIMESTAMP(6) NOT NULL,
+    hit_id UUID,
+    PRIMARY KEY (id, timestamp)
+) PARTITION BY RANGE (timestamp);
+
+DO '
+BEGIN
+    IF EXISTS (SELECT 1 FROM pg_partitioned_table pt JOIN pg_class c ON c.oid = pt.partrelid
+               WHERE c.relname = ''endpoint_hits'' AND pg_table_is_visible(c.oid)) THEN
+        CREATE TABLE IF NOT EXISTS endpoint_hits_default PARTITION OF endpoint_hits DEFAULT;
+    END IF;
+END';
+
+CREATE INDEX IF NOT EXISTS idx_endpoint_hits_timestamp_uri ON endpoint_hits (timestamp, uri_id);
+
+ALTER TABLE endpoint_hits ADD COLUMN IF NOT EXISTS hit_id UUID;
+
+CREATE UNIQUE INDEX IF NOT EXISTS ux_endpoint_hits_hit_id ON endpoint_hits (hit_id, timestamp);
+
+CREATE TABLE IF NOT EXISTS hit_dictionary (
+    id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    kind VARCHAR(8) NOT NULL,
+    name VARCHAR(255) NOT NULL,
+    CONSTRAINT ux_hit_dictionary_kind_name UNIQUE (kind, name)
+);
+
+CREATE OR REPLACE FUNCTION pg_temp.endpoint_hits_legacy_ip(value TEXT) RETURNS BYTEA LANGUAGE plpgsql AS '
+DECLARE
+    text_bytes BYTEA := convert_to(value, ''UTF8'');
+BEGIN
+    IF value ~ ''^[0-9]+[.][0-9]+[.][0-9]+[.][0-9]+$'' THEN
+        IF (SELECT bool_and(part::NUMERIC <= 255) FROM unnest(string_to_array(value, ''.'')) AS part) THEN
+            RETURN decode((SELECT string_agg(lpad(to_hex(part::INTEGER), 2, ''0''), '''' ORDER BY n)
+                           FROM unnest(string_to_array(value, ''.'')) WITH ORDINALITY AS t (part, n)), ''hex'');
+        END IF;
+    ELSIF strpos(value, '':'') > 0 AND value ~ ''^[0-9A-Fa-f:.]+$'' THEN
+        BEGIN
+            RETURN substring(inet_send(value::INET) FROM 5);
+        EXCEPTION WHEN invalid_text_representation THEN
+            NULL;
+        END;
+    END IF;
+    IF octet_length(text_bytes) + 1 IN (4, 16) THEN
+        RETURN decode(''0000'', ''hex'') || text_bytes;
+    END IF;
+    RETURN decode(''00'', ''hex'') || text_bytes;
+END';
+
+DO '
+BEGIN
+    IF to_regclass(''endpoint_hits_legacy'') IS NOT NULL THEN
+        INSERT INTO hit_dictionary (kind, name)
+        SELECT DISTINCT ''APP'', app FROM endpoint_hits_legacy
+        ON CONFLICT (kind, name) DO NOTHING;
+        INSERT INTO hit_dictionary (kind, name)
+        SELECT DISTINCT ''URI'', uri FROM endpoint_hits_legacy
+        ON CONFLICT (kind, name) DO NOTHING;
+        INSERT INTO endpoint_hits (id, app_id, uri_id, ip, timestamp)
+        SELECT l.id, a.id, u.id, pg_temp.endpoint_hits_legacy_ip(l.ip), l.timestamp
+        FROM endpoint_hits_legacy l
+        JOIN hit_dictionary a ON a.kind = ''APP'' AND a.name = l.app
+        JOIN hit_dictionary u ON u.kind = ''URI'' AND u.name = l.uri;
+        PERFORM setval(pg_get_serial_sequence(''endpoint_hits'', ''id''),
+                       (SELECT COALESCE(MAX(id), 0) + 1 FROM endpoint_hits), false);
+        DROP TABLE endpoint_hits_legacy CASCADE;
+    END IF;
+END';
+
+DROP FUNCTION IF EXISTS pg_temp.endpoint_hits_legacy_ip(TEXT);
@@ -0,0 +1,72 @@
+package ru.practicum.statsservice.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.practicum.statsdto.ViewStats;
+import ru.practicum.statsservice.model.EndpointHitEntity;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatsResultCacheTest {
+    private static final LocalDateTime START = LocalDateTime.of(2023, 1, 1, 0, 0);
+    private static final LocalDateTime END = LocalDateTime.of(2023, 1, 2, 0, 0, 10);
+    private final StatsResultCache cache = new StatsResultCache(true, 100, 60_000, 600_000, new SimpleMeterRegistry());
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private Supplier<List<ViewStats>> loader(long hits) {
+        return () -> {
+            loads.incrementAndGet();
+            return List.of(ViewStats.builder().app("app").uri("/events/1").hits(hits).build());
+        };
+    }
+
+    private EndpointHitEntity hit(String uri) {
+        return EndpointHitEntity.builder().app("app").uri(uri).ip("10.0.0.1").timestamp(END).build();
+    }
+
+    @Test
+    void get_WithinSameEndBucket_ShouldReuseResult() {
+        cache.get(START, END, List.of("/events/1", "/events/2"), true, false, loader(1));
+        List<ViewStats> result = cache.get(START, END.plusSeconds(30), List.of("/events/2", "/events/1"), true,
+                false, loader(2));
+
+        assertEquals(1, loads.get());
+        assertEquals(1L, result.getFirst().getHits());
+    }
+
+    @Test
+    void get_WithDifferentStartOrFlags_ShouldLoadAgain() {
+        cache.get(START, END, List.of("/events/1"), true, false, loader(1));
+        cache.get(START.plusSeconds(1), END, List.of("/events/1"), true, false, loader(1));
+        cache.get(START, END, List.of("/events/1"), false, false, loader(1));
+
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void invalidate_ShouldOnlyDropEntriesOfTouchedUris() {
+        cache.get(START, END, List.of("/events/1"), true, false, loader(1));
+        cache.get(START, END, List.of("/events/2"), true, false, loader(1));
+
+        cache.invalidate(List.of(hit("/events/1")));
+
+        assertEquals(2L, cache.get(START, END, List.of("/events/1"), true, false, loader(2)).getFirst().getHits());
+        cache.get(START, END, List.of("/events/2"), true, false, loader(2));
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void invalidate_ShouldDropUnfilteredEntries() {
+        cache.get(START, END, null, false, false, loader(1));
+
+        cache.invalidate(List.of(hit("/events/9")));
+        cache.get(START, END, null, false, false, loader(1));
+
+        assertEquals(2, loads.get());
+    }
+}
@@ -0,0 +1,167 @@
+package ru.practicum.statsservice.compaction;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.practicum.statsservice.model.EndpointHitEntity;
+import ru.practicum.statsservice.model.HitCompactionEntity;
+import ru.practicum.statsservice.model.RollupGranularity;
+import ru.practicum.statsservice.repository.EndpointHitRepository;
+import ru.practicum.statsservice.repository.HitCompactionRepository;
+import ru.practicum.statsservice.repository.HitRollupRepository;
+import ru.practicum.statsservice.repository.HitSketchRepository;
+import ru.practicum.statsservice.rollup.RollupService;
+import ru.practicum.statsservice.sketch.SketchService;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HitCompactorTest {
+
+    @Mock
+    private EndpointHitRepository hitRepository;
+
+    @Mock
+    private HitRollupRepository rollupRepository;
+
+    @Mock
+    private HitSketchRepository sketchRepository;
+
+    @Mock
+    private HitCompactionRepository compactionRepository;
+
+    @Mock
+    private RollupService rollupService;
+
+    @Mock
+    private SketchService sketchService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    private final Clock clock = Clock.fixed(LocalDate.of(2024, 3, 10).atStartOfDay().toInstant(ZoneOffset.UTC),
+            ZoneOffset.UTC);
+
+    private final LocalDateTime day = LocalDateTime.of(2024, 1, 5, 0, 0);
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(rollupService.isEnabled()).thenReturn(true);
+        lenient().when(sketchService.isEnabled()).thenReturn(true);
+    }
+
+    private HitCompactor createCompactor() {
+        return new HitCompactor(true, 30, 2, 1, hitRepository, rollupRepository, sketchRepository,
+                compactionRepository, rollupService, sketchService, transactionManager, registry, clock);
+    }
+
+    private EndpointHitEntity hit(long id, LocalDateTime timestamp) {
+        return EndpointHitEntity.builder()
+                .id(id)
+                .app("test-app")
+                .uri("/events/1")
+                .ip("192.168.1.1")
+                .timestamp(timestamp)
+                .build();
+    }
+
+    private void givenRolledUpHits(long hits) {
+        List<Object[]> rows = hits == 0 ? List.of() : List.<Object[]>of(new Object[]{"test-app", "/events/1", hits});
+        when(rollupRepository.sumHits(RollupGranularity.DAY, day, day.plusDays(1), null)).thenReturn(rows);
+    }
+
+    @Test
+    void compact_WhenRollupsMatchRawHits_ShouldAdvanceWatermarkAndDeleteInBatches() {
+        HitCompactor compactor = createCompactor();
+        when(hitRepository.findFirstByOrderByTimestampAsc()).thenReturn(Optional.of(hit(1, day.plusHours(3))));
+        when(hitRepository.countByTimestampGreaterThanEqualAndTimestampLessThan(day, day.plusDays(1))).thenReturn(5L);
+        givenRolledUpHits(5);
+        when(hitRepository.deleteBatchBefore(day.plusDays(1), 2)).thenReturn(2, 2, 1);
+
+        compactor.compact();
+
+        verify(compactionRepository).save(argThat(state -> state.getId() == HitCompactionEntity.SINGLETON_ID &&
+                state.getCompactedBefore().equals(day.plusDays(1))));
+        verify(hitRepository, times(3)).deleteBatchBefore(day.plusDays(1), 2);
+        verify(rollupRepository, never()).deleteBuckets(any(), any());
+        assertTrue(compactor.isCompacted(day.plusHours(23)));
+        assertFalse(compactor.isCompacted(day.plusDays(1)));
+        assertEquals(5.0, registry.counter("stats.compaction.deleted").count());
+    }
+
+    @Test
+    void compact_WhenRollupsAreMissingHits_ShouldRebuildDayFromRawHits() {
+        HitCompactor compactor = createCompactor();
+        List<EndpointHitEntity> page = List.of(hit(1, day.plusHours(3)), hit(2, day.plusHours(4)));
+        when(hitRepository.findFirstByOrderByTimestampAsc()).thenReturn(Optional.of(page.getFirst()));
+        when(hitRepository.countByTimestampGreaterThanEqualAndTimestampLessThan(day, day.plusDays(1))).thenReturn(2L);
+        givenRolledUpHits(0);
+        when(hitRepository.findByTimestampGreaterThanEqualAndTimestampLessThanAndIdGreaterThanOrderByIdAsc(
+                eq(day), eq(day.plusDays(1)), eq(0L), any(Pageable.class))).thenReturn(page);
+
+        compactor.compact();
+
+        verify(rollupRepository).deleteBuckets(day, day.plusDays(1));
+        verify(sketchRepository).deleteBuckets(day, day.plusDays(1));
+        verify(rollupService).record(page);
+        verify(sketchService).record(page);
+        verify(hitRepository).deleteBatchBefore(day.plusDays(1), 2);
+        assertEquals(1.0, registry.counter("stats.compaction.rebuilt-days").count());
+    }
+
+    @Test
+    void compact_WhenOldestHitIsBehindWatermark_ShouldOnlyDeleteIt() {
+        when(compactionRepository.findById(HitCompactionEntity.SINGLETON_ID))
+                .thenReturn(Optional.of(new HitCompactionEntity(HitCompactionEntity.SINGLETON_ID, day.plusDays(3))));
+        HitCompactor compactor = createCompactor();
+        compactor.loadWatermark();
+        when(hitRepository.findFirstByOrderByTimestampAsc()).thenReturn(Optional.of(hit(9, day.plusHours(1))));
+
+        compactor.compact();
+
+        verify(hitRepository, never()).countByTimestampGreaterThanEqualAndTimestampLessThan(any(), any());
+        verify(compactionRepository, never()).save(any());
+        verify(hitRepository).deleteBatchBefore(day.plusDays(1), 2);
+        assertEquals(day.plusDays(3), compactor.getWatermark());
+    }
+
+    @Test
+    void compact_WhenOldestHitIsYoungerThanAge_ShouldDoNothing() {
+        HitCompactor compactor = createCompactor();
+        when(hitRepository.findFirstByOrderByTimestampAsc())
+                .thenReturn(Optional.of(hit(1, LocalDateTime.of(2024, 2, 20, 0, 0))));
+
+        compactor.compact();
+
+        verify(hitRepository, never()).deleteBatchBefore(any(), anyInt());
+        assertNull(compactor.getWatermark());
+    }
+
+    @Test
+    void isEnabled_WithoutRollups_ShouldBeFalse() {
+        when(rollupService.isEnabled()).thenReturn(false);
+
+        HitCompactor compactor = createCompactor();
+        compactor.compact();
+
+        assertFalse(compactor.isEnabled());
+        verifyNoInteractions(hitRepository);
+    }
+}
@@ -12,6 +12,7 @@ import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import ru.practicum.statsdto.ErrorResponse;
 import ru.practicum.statsservice.exception.BadRequestException;
 import ru.practicum.statsservice.exception.StatsServiceException;
+import ru.practicum.statsservice.exception.TooManyRequestsException;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.mock;
@@ -56,6 +57,18 @@ class ExceptionsControllerTest {
         assertEquals(HttpStatus.INTERNAL_SERVER_ERROR.value(), response.getBody().getStatus());
     }
 
+    @Test
+    void handleTooManyRequests_ShouldReturnTooManyRequestsStatus() {
+        TooManyRequestsException exception = new TooManyRequestsException("Test overflow error");
+
+        ResponseEntity<ErrorResponse> response =
+                exceptionsController.handleTooManyRequests(exception);
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, response.getStatusCode());
+        assertEquals("Test overflow error", response.getBody().getMessage());
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS.value(), response.getBody().getStatus());
+    }
+
     @Test
     void handleOther_ShouldReturnInternalServerErrorStatus() {
         RuntimeException exception = new RuntimeException("Test generic error");
@@ -4,19 +4,27 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import ru.practicum.statsdto.EndpointHit;
+import ru.practicum.statsdto.HitBatchError;
+import ru.practicum.statsdto.HitBatchResult;
+import ru.practicum.statsdto.StatsQuery;
+import ru.practicum.statsdto.StatsWireFormat;
+import ru.practicum.statsdto.TimeSeriesPoint;
 import ru.practicum.statsdto.ViewStats;
 import ru.practicum.statsservice.service.StatsService;
 
+import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.Consumer;
 
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
@@ -29,7 +37,6 @@ class StatsControllerTest {
     @Mock
     private StatsService statsService;
 
-    @InjectMocks
     private StatsController statsController;
 
     private MockMvc mockMvc;
@@ -37,8 +44,9 @@ class StatsControllerTest {
 
     @BeforeEach
     void setUp() {
-        mockMvc = MockMvcBuilders.standaloneSetup(statsController).build();
         objectMapper = new ObjectMapper();
+        statsController = new StatsController(statsService, objectMapper);
+        mockMvc = MockMvcBuilders.standaloneSetup(statsController).build();
     }
 
     @Test
@@ -75,6 +83,32 @@ class StatsControllerTest {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    void hits_ShouldReturnCreatedStatusWithBatchResult() throws Exception {
+        EndpointHit hit = EndpointHit.builder()
+                .app("test-app")
+                .uri("/test")
+                .ip("192.168.1.1")
+                .timestamp("2023-01-01 12:00:00")
+                .build();
+        HitBatchResult result = HitBatchResult.builder()
+                .accepted(1)
+                .rejected(List.of(new HitBatchError(1, "app: must not be blank")))
+                .build();
+
+        when(statsService.handleHits(anyList())).thenReturn(result);
+
+        mockMvc.perform(post("/hits")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(hit, new EndpointHit()))))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.accepted").value(1))
+                .andExpect(jsonPath("$.rejected[0].index").value(1))
+                .andExpect(jsonPath("$.rejected[0].message").value("app: must not be blank"));
+
+        verify(statsService, times(1)).handleHits(argThat(hits -> hits.size() == 2));
+    }
+
     @Test
     void getStats_ShouldReturnStatsList() throws Exception {
         List<ViewStats> expectedStats = Arrays.asList(
@@ -90,7 +124,7 @@ class StatsControllerTest {
                         .build()
         );
 
-        when(statsService.handleGetStats(anyString(), anyString(), anyList(), anyBoolean()))
+        when(statsService.handleGetStats(anyString(), anyString(), anyList(), anyBoolean(), anyBoolean()))
                 .thenReturn(expectedStats);
 
         mockMvc.perform(get("/stats")
@@ -111,6 +145,7 @@ class StatsControllerTest {
                 eq("2023-01-01 00:00:00"),
                 eq("2023-01-02 00:00:00"),
                 eq(Arrays.asList("/test", "/test2")),
+                eq(false),
                 eq(false)
         );
     }
@@ -125,7 +160,7 @@ class StatsControllerTest {
                         .build()
         );
 
-        when(statsService.handleGetStats(anyString(), anyString(), isNull(), anyBoolean()))
+        when(statsService.handleGetStats(anyString(), anyString(), isNull(), anyBoolean(), anyBoolean()))
                 .thenReturn(expectedStats);
 
         mockMvc.perform(get("/stats")
@@ -141,7 +176,8 @@ class StatsControllerTest {
                 eq("2023-01-01 00:00:00"),
                 eq("2023-01-02 00:00:00"),
                 isNull(),
-                eq(true)
+                eq(true),
+                eq(false)
         );
     }
 
@@ -166,7 +202,7 @@ class StatsControllerTest {
                         .build()
         );
 
-        when(statsService.handleGetStats(anyString(), anyString(), anyList(), anyBoolean()))
+        when(statsService.handleGetStats(anyString(), anyString(), anyList(), anyBoolean(), anyBoolean()))
                 .thenReturn(expectedStats);
 
         mockMvc.perform(get("/stats")
@@ -184,7 +220,201 @@ class StatsControllerTest {
                 eq("2023-01-01%2000%3A00%3A00"),
                 eq("2023-01-02%2000%3A00%3A00"),
                 eq(Arrays.asList("/events%2F1")),
+                eq(false),
                 eq(false)
         );
     }
-}
\ No newline at end of file
+
+    @Test
+    void getStats_WithExactFlag_ShouldPassItToService() throws Exception {
+        when(statsService.handleGetStats(anyString(), anyString(), isNull(), anyBoolean(), anyBoolean()))
+                .thenReturn(List.of());
+
+        mockMvc.perform(get("/stats")
+                        .param("start", "2023-01-01 00:00:00")
+                        .param("end", "2023-01-02 00:00:00")
+                        .param("unique", "true")
+                        .param("exact", "true"))
+                .andExpect(status().isOk());
+
+        verify(statsService, times(1)).handleGetStats(
+                eq("2023-01-01 00:00:00"),
+                eq("2023-01-02 00:00:00"),
+                isNull(),
+                eq(true),
+                eq(true)
+        );
+    }
+
+    @Test
+    void getTopStats_ShouldPassParametersToService() throws Exception {
+        when(statsService.handleGetTopStats("2023-01-01 00:00:00", "2023-01-02 00:00:00", 3, true))
+                .thenReturn(List.of(ViewStats.builder().app("test-app").uri("/events/1").hits(7L).build()));
+
+        mockMvc.perform(get("/stats/top")
+                        .param("start", "2023-01-01 00:00:00")
+                        .param("end", "2023-01-02 00:00:00")
+                        .param("k", "3")
+                        .param("unique", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].uri").value("/events/1"))
+                .andExpect(jsonPath("$[0].hits").value(7));
+    }
+
+    @Test
+    void getTimeSeries_ShouldPassParametersToService() throws Exception {
+        when(statsService.handleGetTimeSeries("/events/1", "2023-01-01 00:00:00", "2023-01-02 00:00:00", "day", false))
+                .thenReturn(List.of(TimeSeriesPoint.builder().start("2023-01-01 00:00:00").hits(4L).build()));
+
+        mockMvc.perform(get("/stats/timeseries")
+                        .param("uri", "/events/1")
+                        .param("start", "2023-01-01 00:00:00")
+                        .param("end", "2023-01-02 00:00:00")
+                        .param("interval", "day"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].start").value("2023-01-01 00:00:00"))
+                .andExpect(jsonPath("$[0].hits").value(4));
+    }
+
+    @Test
+    void query_ShouldReturnStatsForBodyUris() throws Exception {
+        StatsQuery query = StatsQuery.builder()
+                .start("2023-01-01 00:00:00")
+                .end("2023-01-02 00:00:00")
+                .eventIds(List.of(1L, 2L))
+                .unique(true)
+                .build();
+        when(statsService.handleQuery(query))
+                .thenReturn(List.of(ViewStats.builder().app("test-app").uri("/events/1").hits(4L).build()));
+
+        mockMvc.perform(post("/stats/query")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(query)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].uri").value("/events/1"))
+                .andExpect(jsonPath("$[0].stale").doesNotExist());
+    }
+
+    @Test
+    void query_WithoutDates_ShouldReturnBadRequest() throws Exception {
+        mockMvc.perform(post("/stats/query")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"uris\":[\"/events/1\"]}"))
+                .andExpect(status().isBadRequest());
+
+        verify(statsService, never()).handleQuery(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void getStats_WithStreamingAndNoUris_ShouldStreamRows() throws Exception {
+        ReflectionTestUtils.setField(statsController, "streaming", true);
+        LocalDateTime start = LocalDateTime.of(2023, 1, 1, 0, 0, 0);
+        LocalDateTime end = LocalDateTime.of(2023, 1, 2, 0, 0, 0);
+        when(statsService.parseAndDecodeDateTime("2023-01-01 00:00:00")).thenReturn(start);
+        when(statsService.parseAndDecodeDateTime("2023-01-02 00:00:00")).thenReturn(end);
+        doAnswer(invocation -> {
+            Consumer<ViewStats> sink = invocation.getArgument(4);
+            sink.accept(ViewStats.builder().app("test-app").uri("/test").hits(10L).build());
+            sink.accept(ViewStats.builder().app("test-app").uri("/test2").hits(5L).build());
+            return null;
+        }).when(statsService).handleStreamStats(eq(start), eq(end), eq(true), eq(false), any(Consumer.class));
+
+        mockMvc.perform(get("/stats")
+                        .param("start", "2023-01-01 00:00:00")
+                        .param("end", "2023-01-02 00:00:00")
+                        .param("unique", "true"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].uri").value("/test"))
+                .andExpect(jsonPath("$[1].hits").value(5));
+        verify(statsService, never()).handleGetStats(anyString(), anyString(), any(), anyBoolean(), anyBoolean());
+    }
+
+    @Test
+    void getStats_WithStreamingAndUris_ShouldReturnList() throws Exception {
+        ReflectionTestUtils.setField(statsController, "streaming", true);
+        when(statsService.handleGetStats(anyString(), anyString(), anyList(), anyBoolean(), anyBoolean()))
+                .thenReturn(List.of());
+
+        mockMvc.perform(get("/stats")
+                        .param("start", "2023-01-01 00:00:00")
+                        .param("end", "2023-01-02 00:00:00")
+                        .param("uris", "/test"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+
+        verify(statsService, never()).handleStreamStats(any(), any(), anyBoolean(), anyBoolean(), any());
+    }
+
+    @Test
+    void hits_WithWireFormatBody_ShouldPassBytesToService() throws Exception {
+        EndpointHit hit = EndpointHit.builder()
+                .app("test-app")
+                .uri("/test")
+                .ip("192.168.1.1")
+                .timestamp("2023-01-01 12:00:00")
+                .build();
+        byte[] body = StatsWireFormat.encodeHits(List.of(hit));
+        when(statsService.handleWireHits(body))
+                .thenReturn(HitBatchResult.builder().accepted(1).rejected(List.of()).build());
+
+        mockMvc.perform(post("/hits")
+                        .contentType(StatsWireFormat.MEDIA_TYPE_VALUE)
+                        .content(body))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.accepted").value(1));
+
+        verify(statsService, never()).handleHits(any());
+    }
+
+    @Test
+    void getStats_AcceptingWireFormat_ShouldReturnBinaryRows() throws Exception {
+        List<ViewStats> stats = List.of(ViewStats.builder().app("test-app").uri("/test").hits(10L).build());
+        when(statsService.handleGetStats(anyString(), anyString(), anyList(), anyBoolean(), anyBoolean()))
+                .thenReturn(stats);
+
+        byte[] body = mockMvc.perform(get("/stats")
+                        .param("start", "2023-01-01 00:00:00")
+                        .param("end", "2023-01-02 00:00:00")
+                        .param("uris", "/test")
+                        .accept(StatsWireFormat.MEDIA_TYPE_VALUE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(StatsWireFormat.MEDIA_TYPE_VALUE))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        assertEquals(stats, StatsWireFormat.decodeViewStats(body));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void getStats_WithStreamingAcceptingWireFormat_ShouldStreamBinaryRows() throws Exception {
+        ReflectionTestUtils.setField(statsController, "streaming", true);
+        LocalDateTime start = LocalDateTime.of(2023, 1, 1, 0, 0, 0);
+        LocalDateTime end = LocalDateTime.of(2023, 1, 2, 0, 0, 0);
+        when(statsService.parseAndDecodeDateTime("2023-01-01 00:00:00")).thenReturn(start);
+        when(statsService.parseAndDecodeDateTime("2023-01-02 00:00:00")).thenReturn(end);
+        doAnswer(invocation -> {
+            Consumer<ViewStats> sink = invocation.getArgument(4);
+            sink.accept(ViewStats.builder().app("test-app").uri("/test").hits(10L).build());
+            sink.accept(ViewStats.builder().app("test-app").uri("/test2").hits(5L).stale(true).build());
+            return null;
+        }).when(statsService).handleStreamStats(eq(start), eq(end), eq(false), eq(false), any(Consumer.class));
+
+        byte[] body = mockMvc.perform(get("/stats")
+                        .param("start", "2023-01-01 00:00:00")
+                        .param("end", "2023-01-02 00:00:00")
+                        .accept(StatsWireFormat.MEDIA_TYPE_VALUE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(StatsWireFormat.MEDIA_TYPE_VALUE))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        List<ViewStats> rows = StatsWireFormat.decodeViewStats(body);
+        assertEquals(2, rows.size());
+        assertEquals("/test2", rows.get(1).getUri());
+        assertTrue(rows.get(1).getStale());
+        assertNull(rows.get(0).getStale());
+    }
+}
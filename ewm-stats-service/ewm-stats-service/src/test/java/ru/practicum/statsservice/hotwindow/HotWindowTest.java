@@ -0,0 +1,127 @@
+package ru.practicum.statsservice.hotwindow;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.practicum.statsdto.ViewStats;
+import ru.practicum.statsservice.model.EndpointHitEntity;
+import ru.practicum.statsservice.repository.EndpointHitRepository;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HotWindowTest {
+
+    @Mock
+    private EndpointHitRepository repository;
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final LocalDateTime now = LocalDateTime.of(2024, 3, 10, 12, 0, 0);
+    private final Clock clock = Clock.fixed(now.toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+
+    @BeforeEach
+    void setUp() {
+        when(repository.findByTimestampGreaterThanEqualAndIdGreaterThanOrderByIdAsc(any(), any(), any()))
+                .thenReturn(List.of(hit(1L, "/events/1", "10.0.0.1", now.minusHours(2))));
+    }
+
+    private HotWindow createWindow(long maxHits) {
+        HotWindow window = new HotWindow(true, 6, 10, maxHits, repository, registry, clock);
+        window.load();
+        return window;
+    }
+
+    private EndpointHitEntity hit(Long id, String uri, String ip, LocalDateTime timestamp) {
+        return EndpointHitEntity.builder()
+                .id(id)
+                .app("ewm-main-service")
+                .uri(uri)
+                .ip(ip)
+                .timestamp(timestamp)
+                .build();
+    }
+
+    @Test
+    void load_ShouldReadOnlyTheWindowFromDatabase() {
+        createWindow(1000);
+
+        verify(repository).findByTimestampGreaterThanEqualAndIdGreaterThanOrderByIdAsc(
+                eq(now.minusHours(6)), eq(0L), any());
+    }
+
+    @Test
+    void covers_ShouldAcceptRangesStartingInsideTheWindow() {
+        HotWindow window = createWindow(1000);
+
+        assertTrue(window.covers(now.minusHours(6)));
+        assertTrue(window.covers(now.minusMinutes(5)));
+        assertFalse(window.covers(now.minusHours(6).minusSeconds(1)));
+        assertEquals(1.0, registry.get("stats.hot-window.queries").tag("source", "database").counter().count());
+    }
+
+    @Test
+    void getStats_ShouldCountRecordedHitsInRange() {
+        HotWindow window = createWindow(1000);
+        List<EndpointHitEntity> hits = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            hits.add(hit(null, i % 2 == 0 ? "/events/1" : "/events/2", "10.0.0." + (i % 5), now.minusMinutes(i)));
+        }
+        hits.add(hit(null, "/events/1", "10.0.0.9", now.minusDays(1)));
+        window.record(hits);
+
+        List<ViewStats> all = window.getStats(now.minusHours(3), now, null, false);
+        List<ViewStats> unique = window.getStats(now.minusHours(3), now, List.of("/events/1"), true);
+        List<ViewStats> recent = window.getStats(now.minusMinutes(9).minusSeconds(30), now, List.of("/events/2"), false);
+
+        assertEquals(List.of(
+                ViewStats.builder().app("ewm-main-service").uri("/events/1").hits(26L).build(),
+                ViewStats.builder().app("ewm-main-service").uri("/events/2").hits(25L).build()), all);
+        assertEquals(5L, unique.get(0).getHits());
+        assertEquals(5L, recent.get(0).getHits());
+        assertTrue(window.getStats(now.minusHours(3), now, List.of("/unknown"), false).isEmpty());
+        assertEquals(51L, window.getHitCount());
+    }
+
+    @Test
+    void record_WhenOverLimit_ShouldDropOldestSlicesAndShrinkCoverage() {
+        HotWindow window = createWindow(10);
+        List<EndpointHitEntity> hits = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            hits.add(hit(null, "/events/1", "10.0.0.1", now.minusMinutes(1)));
+        }
+
+        window.record(hits);
+
+        assertEquals(10L, window.getHitCount());
+        assertFalse(window.covers(now.minusHours(2)));
+        assertTrue(window.covers(now.minusMinutes(1)));
+        assertTrue(window.getAllocatedBytes() > 0);
+    }
+
+    @Test
+    void record_WhenSlicesAreDropped_ShouldForgetNamesNoLongerHeld() {
+        HotWindow window = createWindow(10);
+        List<EndpointHitEntity> hits = new ArrayList<>();
+        hits.add(hit(null, "/events/old", "10.0.0.1", now.minusHours(3)));
+        for (int i = 0; i < 10; i++) {
+            hits.add(hit(null, "/events/2", "10.0.0.1", now.minusMinutes(1)));
+        }
+
+        window.record(hits);
+
+        assertEquals(2, window.getNameCount());
+        assertTrue(window.getStats(now.minusMinutes(5), now, List.of("/events/old"), false).isEmpty());
+    }
+}
@@ -0,0 +1,91 @@
+package ru.practicum.statsservice.ingest;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.practicum.statsservice.model.EndpointHitEntity;
+import ru.practicum.statsservice.store.HitStore;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HitDeduplicatorTest {
+
+    @Mock
+    private HitStore store;
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    private final LocalDateTime now = LocalDateTime.of(2024, 3, 10, 12, 0);
+
+    private HitDeduplicator createDeduplicator() {
+        return new HitDeduplicator(true, 600_000, 4, 10_000, 0.001, store, registry,
+                Clock.fixed(now.toInstant(ZoneOffset.UTC), ZoneOffset.UTC));
+    }
+
+    private EndpointHitEntity hit(UUID hitId, LocalDateTime timestamp) {
+        return EndpointHitEntity.builder()
+                .app("test-app")
+                .uri("/events/1")
+                .ip("192.168.1.1")
+                .timestamp(timestamp)
+                .hitId(hitId)
+                .build();
+    }
+
+    @Test
+    void filter_WithFreshHits_ShouldKeepThemWithoutLookup() {
+        List<EndpointHitEntity> hits = List.of(hit(UUID.randomUUID(), now), hit(UUID.randomUUID(), now),
+                hit(null, now));
+
+        assertSame(hits, createDeduplicator().filter(hits));
+        verifyNoInteractions(store);
+    }
+
+    @Test
+    void filter_WithResentBatch_ShouldDropHitsFoundInDatabase() {
+        HitDeduplicator deduplicator = createDeduplicator();
+        EndpointHitEntity first = hit(UUID.randomUUID(), now);
+        EndpointHitEntity second = hit(UUID.randomUUID(), now.plusSeconds(1));
+        deduplicator.filter(List.of(first, second));
+        when(store.findExistingHitIds(anyList(), eq(now), eq(now.plusSeconds(1))))
+                .thenReturn(List.of(first.getHitId()));
+
+        List<EndpointHitEntity> result = deduplicator.filter(List.of(first, second));
+
+        assertEquals(List.of(second), result);
+        assertEquals(1.0, registry.counter("stats.dedup.duplicates").count());
+        assertEquals(2.0, registry.counter("stats.dedup.lookups").count());
+    }
+
+    @Test
+    void filter_WithSameIdTwiceInBatch_ShouldKeepFirstOnly() {
+        UUID hitId = UUID.randomUUID();
+        EndpointHitEntity first = hit(hitId, now);
+        EndpointHitEntity copy = hit(hitId, now);
+
+        List<EndpointHitEntity> result = createDeduplicator().filter(List.of(first, copy));
+
+        assertEquals(1, result.size());
+        assertSame(first, result.getFirst());
+    }
+
+    @Test
+    void filter_WithHitsOlderThanWindow_ShouldCheckDatabase() {
+        EndpointHitEntity late = hit(UUID.randomUUID(), now.minusHours(1));
+        when(store.findExistingHitIds(anyList(), any(), any())).thenReturn(List.of(late.getHitId()));
+
+        assertTrue(createDeduplicator().filter(List.of(late)).isEmpty());
+    }
+}
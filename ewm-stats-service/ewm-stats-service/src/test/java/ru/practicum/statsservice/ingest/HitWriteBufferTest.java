@@ -0,0 +1,136 @@
+package ru.practicum.statsservice.ingest;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.practicum.statsservice.exception.TooManyRequestsException;
+import ru.practicum.statsservice.model.EndpointHitEntity;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class HitWriteBufferTest {
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final List<List<EndpointHitEntity>> written = new CopyOnWriteArrayList<>();
+    private HitWriteBuffer buffer;
+
+    private HitWriteBuffer createBuffer(int capacity, String overflow) {
+        buffer = new HitWriteBuffer(true, capacity, 60_000, 2, overflow, 10, true, 2, 1000,
+                mock(PlatformTransactionManager.class), registry);
+        return buffer;
+    }
+
+    private HitWriteBuffer createStartedBuffer(int capacity, String overflow) {
+        createBuffer(capacity, overflow).start(batch -> written.add(List.copyOf(batch)));
+        return buffer;
+    }
+
+    private EndpointHitEntity hit() {
+        return EndpointHitEntity.builder()
+                .app("test-app")
+                .uri("/test")
+                .ip("192.168.1.1")
+                .timestamp(LocalDateTime.of(2023, 1, 1, 12, 0, 0))
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        buffer.close();
+    }
+
+    @Test
+    void flush_ShouldWriteBufferedHitsInBatches() {
+        HitWriteBuffer buffer = createStartedBuffer(16, "reject");
+        buffer.enqueue(hit());
+        buffer.enqueue(hit());
+        buffer.enqueue(hit());
+
+        buffer.flush();
+
+        assertEquals(3, written.stream().mapToInt(List::size).sum());
+        assertTrue(written.stream().allMatch(batch -> batch.size() <= 2));
+        assertEquals(0, buffer.getDepth());
+    }
+
+    @Test
+    void enqueue_WhenFullInRejectMode_ShouldThrowTooManyRequests() {
+        HitWriteBuffer buffer = createBuffer(2, "reject");
+        buffer.enqueue(hit());
+        buffer.enqueue(hit());
+
+        assertThrows(TooManyRequestsException.class, () -> buffer.enqueue(hit()));
+        assertEquals(1.0, registry.counter("stats.write-behind.rejected").count());
+    }
+
+    @Test
+    void enqueue_WhenFullInBlockMode_ShouldWaitForWriterToMakeRoom() {
+        HitWriteBuffer buffer = createStartedBuffer(2, "block");
+        buffer.enqueue(hit());
+        buffer.enqueue(hit());
+
+        assertDoesNotThrow(() -> buffer.enqueue(hit()));
+    }
+
+    @Test
+    void flush_WhenWriteFails_ShouldRetryBatchOnNextFlush() {
+        AtomicInteger calls = new AtomicInteger();
+        createBuffer(16, "reject").start(batch -> {
+            if (calls.getAndIncrement() == 0) {
+                throw new IllegalStateException("database is down");
+            }
+            written.add(List.copyOf(batch));
+        });
+        buffer.enqueue(hit());
+        buffer.enqueue(hit());
+        buffer.enqueue(hit());
+
+        buffer.flush();
+        buffer.flush();
+
+        assertEquals(3, written.stream().mapToInt(List::size).sum());
+        assertEquals(0.0, registry.counter("stats.write-behind.failed").count());
+    }
+
+    @Test
+    void flush_WhenWriteKeepsFailing_ShouldDropBatchAfterMaxAttempts() {
+        createBuffer(16, "reject").start(batch -> {
+            throw new IllegalStateException("database is down");
+        });
+        buffer.enqueue(hit());
+        buffer.enqueue(hit());
+
+        buffer.flush();
+        buffer.flush();
+
+        assertEquals(2.0, registry.counter("stats.write-behind.failed").count());
+        assertEquals(0, buffer.getDepth());
+    }
+
+    @Test
+    void awaitFlush_ShouldStorePendingHitsOnWriterThread() {
+        HitWriteBuffer buffer = createStartedBuffer(16, "reject");
+        buffer.enqueue(hit());
+
+        buffer.awaitFlush();
+
+        assertEquals(1, written.size());
+    }
+
+    @Test
+    void close_ShouldFlushPendingHits() {
+        HitWriteBuffer buffer = createStartedBuffer(16, "reject");
+        buffer.enqueue(hit());
+
+        buffer.close();
+
+        assertEquals(1, written.size());
+    }
+}
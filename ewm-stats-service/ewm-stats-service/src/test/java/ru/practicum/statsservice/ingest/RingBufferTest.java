@@ -0,0 +1,71 @@
+package ru.practicum.statsservice.ingest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RingBufferTest {
+
+    @Test
+    void constructor_ShouldRoundCapacityUpToPowerOfTwo() {
+        assertEquals(8, new RingBuffer<Integer>(8).capacity());
+        assertEquals(16, new RingBuffer<Integer>(9).capacity());
+    }
+
+    @Test
+    void offer_WhenFull_ShouldReturnFalse() {
+        RingBuffer<Integer> ring = new RingBuffer<>(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(ring.offer(i));
+        }
+
+        assertFalse(ring.offer(4));
+        assertEquals(4, ring.size());
+    }
+
+    @Test
+    void drainTo_ShouldReturnElementsInOrderAndFreeSlots() {
+        RingBuffer<Integer> ring = new RingBuffer<>(4);
+        for (int i = 0; i < 4; i++) {
+            ring.offer(i);
+        }
+        List<Integer> drained = new ArrayList<>();
+
+        assertEquals(3, ring.drainTo(drained, 3));
+        assertEquals(List.of(0, 1, 2), drained);
+        assertTrue(ring.offer(4));
+        assertEquals(2, ring.drainTo(drained, 10));
+        assertEquals(List.of(0, 1, 2, 3, 4), drained);
+        assertEquals(0, ring.size());
+    }
+
+    @Test
+    void offer_FromConcurrentProducers_ShouldNotLoseElements() throws InterruptedException {
+        RingBuffer<Integer> ring = new RingBuffer<>(1 << 16);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int producer = 0; producer < 4; producer++) {
+            int offset = producer * 10_000;
+            executor.execute(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    ring.offer(offset + i);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        List<Integer> drained = new ArrayList<>();
+        ring.drainTo(drained, Integer.MAX_VALUE);
+
+        Set<Integer> unique = new HashSet<>(drained);
+        assertEquals(40_000, unique.size());
+    }
+}
@@ -0,0 +1,72 @@
+package ru.practicum.statsservice.ingest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RotatingBloomFilterTest {
+    private final AtomicLong now = new AtomicLong(1_000_000);
+
+    @Test
+    void put_ShouldReportNewKeysOnlyOnce() {
+        RotatingBloomFilter filter = new RotatingBloomFilter(60_000, 4, 1000, 0.001, now::get);
+        UUID key = UUID.randomUUID();
+
+        assertFalse(filter.mightContain(key));
+        assertTrue(filter.put(key));
+        assertFalse(filter.put(key));
+        assertTrue(filter.mightContain(key));
+    }
+
+    @Test
+    void put_ShouldKeepFalsePositivesNearConfiguredRate() {
+        RotatingBloomFilter filter = new RotatingBloomFilter(60_000, 4, 10_000, 0.01, now::get);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put(UUID.randomUUID());
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (filter.mightContain(UUID.randomUUID())) {
+                falsePositives++;
+            }
+        }
+
+        assertTrue(falsePositives < 300, "false positives: " + falsePositives);
+    }
+
+    @Test
+    void rotation_ShouldRememberKeysForTheWindowAndForgetThemAfterwards() {
+        RotatingBloomFilter filter = new RotatingBloomFilter(60_000, 4, 1000, 0.001, now::get);
+        List<UUID> keys = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            keys.add(UUID.randomUUID());
+            filter.put(keys.getLast());
+        }
+
+        now.addAndGet(45_000);
+        assertTrue(keys.stream().allMatch(filter::mightContain));
+        assertEquals(1_000_000, filter.coveredSince());
+
+        now.addAndGet(15_000);
+        assertTrue(keys.stream().noneMatch(filter::mightContain));
+        assertEquals(1_015_000, filter.coveredSince());
+    }
+
+    @Test
+    void rotation_AfterLongIdlePeriod_ShouldStartOver() {
+        RotatingBloomFilter filter = new RotatingBloomFilter(60_000, 4, 1000, 0.001, now::get);
+        UUID key = UUID.randomUUID();
+        filter.put(key);
+
+        now.addAndGet(3_600_000);
+
+        assertFalse(filter.mightContain(key));
+        assertEquals(now.get(), filter.coveredSince());
+    }
+}
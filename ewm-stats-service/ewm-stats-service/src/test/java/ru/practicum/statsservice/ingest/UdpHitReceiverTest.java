@@ -0,0 +1,111 @@
+package ru.practicum.statsservice.ingest;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.practicum.statsdto.EndpointHit;
+import ru.practicum.statsdto.HitBatchError;
+import ru.practicum.statsdto.HitBatchResult;
+import ru.practicum.statsdto.StatsWireFormat;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class UdpHitReceiverTest {
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final List<StatsWireFormat.WireHit> stored = new CopyOnWriteArrayList<>();
+    private UdpHitReceiver receiver;
+
+    private UdpHitReceiver startReceiver() {
+        receiver = new UdpHitReceiver(true, "127.0.0.1", 0, 65507, 1 << 20, 16,
+                mock(PlatformTransactionManager.class), registry);
+        receiver.start(hits -> {
+            stored.addAll(hits);
+            return HitBatchResult.builder()
+                    .accepted(hits.size() - 1)
+                    .rejected(List.of(new HitBatchError(0, "ip: must not be blank")))
+                    .build();
+        });
+        return receiver;
+    }
+
+    private EndpointHit hit(String uri) {
+        return EndpointHit.builder()
+                .app("test-app")
+                .uri(uri)
+                .ip("192.168.1.1")
+                .timestamp("2023-01-01 12:00:00")
+                .build();
+    }
+
+    private void send(byte[] datagram) throws IOException {
+        try (DatagramChannel channel = DatagramChannel.open()) {
+            channel.send(ByteBuffer.wrap(datagram), new InetSocketAddress("127.0.0.1", receiver.getLocalPort()));
+        }
+    }
+
+    private void awaitCount(String counter, double expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (registry.counter(counter).count() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (receiver != null) {
+            receiver.close();
+        }
+    }
+
+    @Test
+    void receive_ShouldDecodeBatchAndPassItToSink() throws Exception {
+        startReceiver();
+
+        send(StatsWireFormat.encodeHits(List.of(hit("/events/1"), hit("/events/2"))));
+        awaitCount("stats.udp.hits.rejected", 1);
+
+        assertEquals(2, stored.size());
+        assertEquals("/events/2", stored.get(1).uri());
+        assertEquals(LocalDateTime.of(2023, 1, 1, 12, 0), stored.get(0).timestamp());
+        assertEquals(1.0, registry.counter("stats.udp.datagrams.received").count());
+        assertEquals(1.0, registry.counter("stats.udp.hits.rejected").count());
+    }
+
+    @Test
+    void receive_WithMalformedDatagram_ShouldCountItAndKeepListening() throws Exception {
+        startReceiver();
+        byte[] valid = StatsWireFormat.encodeHits(List.of(hit("/events/1")));
+
+        send(new byte[]{42, 1, 2});
+        send(Arrays.copyOf(valid, valid.length - 4));
+        send(valid);
+        awaitCount("stats.udp.hits.rejected", 1);
+
+        assertEquals(1, stored.size());
+        assertEquals(2.0, registry.counter("stats.udp.datagrams.malformed").count());
+        assertEquals(3.0, registry.counter("stats.udp.datagrams.received").count());
+    }
+
+    @Test
+    void start_WhenDisabled_ShouldNotBind() {
+        receiver = new UdpHitReceiver(false, "127.0.0.1", 0, 65507, 1 << 20, 16,
+                mock(PlatformTransactionManager.class), registry);
+
+        receiver.start(hits -> HitBatchResult.builder().build());
+
+        assertFalse(receiver.isEnabled());
+        assertEquals(-1, receiver.getLocalPort());
+    }
+}
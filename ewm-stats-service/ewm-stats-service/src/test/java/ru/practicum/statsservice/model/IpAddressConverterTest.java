@@ -0,0 +1,54 @@
+package ru.practicum.statsservice.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IpAddressConverterTest {
+    private final IpAddressConverter converter = new IpAddressConverter();
+
+    private String roundTrip(String ip) {
+        return converter.convertToEntityAttribute(converter.convertToDatabaseColumn(ip));
+    }
+
+    @Test
+    void convertToDatabaseColumn_WithIpv4_ShouldUseFourBytes() {
+        assertArrayEquals(new byte[]{(byte) 192, (byte) 168, 0, 1}, converter.convertToDatabaseColumn("192.168.0.1"));
+        assertEquals("192.168.0.1", roundTrip("192.168.0.1"));
+    }
+
+    @Test
+    void convertToDatabaseColumn_WithIpv6_ShouldUseSixteenBytes() {
+        assertEquals(16, converter.convertToDatabaseColumn("2001:db8::1").length);
+        assertEquals("2001:db8:0:0:0:0:0:1", roundTrip("2001:db8::1"));
+        assertEquals("0:0:0:0:0:0:0:1", roundTrip("::1"));
+        assertEquals("1:2:3:4:5:6:7:0", roundTrip("1:2:3:4:5:6:7::"));
+        assertEquals("0:0:0:0:0:0:102:304", roundTrip("::1.2.3.4"));
+    }
+
+    @Test
+    void convertToDatabaseColumn_WithHostLikeText_ShouldKeepTextWithoutResolving() {
+        assertEquals("localhost:8080", roundTrip("localhost:8080"));
+        assertEquals("[::1]", roundTrip("[::1]"));
+        assertEquals("fe80::1%eth0", roundTrip("fe80::1%eth0"));
+        assertEquals("1::2::3", roundTrip("1::2::3"));
+        assertEquals("1:2:3:4:5:6:7:8:9", roundTrip("1:2:3:4:5:6:7:8:9"));
+    }
+
+    @Test
+    void convertToDatabaseColumn_WithLongestLegacyText_ShouldFitColumn() {
+        String text = "\uD83D\uDE00".repeat(255);
+
+        assertTrue(converter.convertToDatabaseColumn(text).length <= IpAddressConverter.MAX_LENGTH);
+        assertEquals(text, roundTrip(text));
+    }
+
+    @Test
+    void convertToDatabaseColumn_WithNonIpText_ShouldRoundTrip() {
+        assertEquals("localhost", roundTrip("localhost"));
+        assertEquals("abc", roundTrip("abc"));
+        assertEquals("256.1.1.1", roundTrip("256.1.1.1"));
+        assertEquals("1.2.3.", roundTrip("1.2.3."));
+        assertEquals("", roundTrip(""));
+    }
+}
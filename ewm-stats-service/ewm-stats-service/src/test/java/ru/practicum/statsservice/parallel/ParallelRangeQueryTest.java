@@ -0,0 +1,175 @@
+package ru.practicum.statsservice.parallel;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.practicum.statsdto.ViewStats;
+import ru.practicum.statsservice.repository.EndpointHitRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ParallelRangeQueryTest {
+
+    @Mock
+    private EndpointHitRepository repository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ParallelRangeQuery query;
+
+    private final LocalDateTime start = LocalDateTime.of(2023, 1, 1, 10, 30);
+
+    private ParallelRangeQuery createQuery(int maxConcurrency) {
+        return createQuery(maxConcurrency, 1_000_000);
+    }
+
+    private ParallelRangeQuery createQuery(int maxConcurrency, int maxUniqueIps) {
+        query = new ParallelRangeQuery(true, 7, 14, maxConcurrency, maxUniqueIps, repository, transactionManager,
+                new SimpleMeterRegistry());
+        return query;
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (query != null) {
+            query.close();
+        }
+    }
+
+    @Test
+    void split_ShouldCoverRangeWithDayAlignedSlices() {
+        LocalDateTime end = LocalDateTime.of(2023, 1, 20, 5, 0);
+
+        List<ParallelRangeQuery.Slice> slices = createQuery(4).split(start, end);
+
+        assertEquals(3, slices.size());
+        assertEquals(start, slices.get(0).from());
+        assertEquals(LocalDateTime.of(2023, 1, 8, 0, 0), slices.get(0).to());
+        assertEquals(slices.get(0).to(), slices.get(1).from());
+        assertEquals(LocalDateTime.of(2023, 1, 15, 0, 0), slices.get(2).from());
+        assertEquals(end, slices.get(2).to());
+        assertTrue(slices.get(2).last());
+        assertFalse(slices.get(1).last());
+    }
+
+    @Test
+    void shouldSplit_ShouldOnlySplitRangesLongerThanMinDays() {
+        ParallelRangeQuery query = createQuery(4);
+
+        assertFalse(query.shouldSplit(start, start.plusDays(14)));
+        assertTrue(query.shouldSplit(start, start.plusDays(15)));
+    }
+
+    @Test
+    void getStats_ShouldSumCountsOfAllSlices() {
+        LocalDateTime end = start.plusDays(20);
+        when(repository.countInRange(any(), any(), eq(List.of("/a", "/b"))))
+                .thenReturn(List.<Object[]>of(new Object[]{"app", "/a", 2L}, new Object[]{"app", "/b", 1L}));
+        when(repository.getStats(any(), eq(end), eq(List.of("/a", "/b"))))
+                .thenReturn(List.<Object[]>of(new Object[]{"app", "/b", 5L}));
+
+        List<ViewStats> result = createQuery(4).getStats(start, end, List.of("/a", "/b"), false);
+
+        assertEquals(List.of(
+                ViewStats.builder().app("app").uri("/b").hits(7L).build(),
+                ViewStats.builder().app("app").uri("/a").hits(4L).build()), result);
+        verify(repository, times(2)).countInRange(any(), any(), any());
+    }
+
+    @Test
+    void getStats_WithUniqueFlag_ShouldUnionIpsAcrossSlices() {
+        LocalDateTime end = start.plusDays(20);
+        when(repository.findDistinctIps(any(), any(), isNull()))
+                .thenReturn(List.<Object[]>of(new Object[]{"app", "/a", "10.0.0.1"}, new Object[]{"app", "/a", "10.0.0.2"}));
+        when(repository.findDistinctIpsBetween(any(), eq(end), isNull()))
+                .thenReturn(List.<Object[]>of(new Object[]{"app", "/a", "10.0.0.2"}, new Object[]{"app", "/a", "10.0.0.3"}));
+
+        List<ViewStats> result = createQuery(4).getStats(start, end, null, true);
+
+        assertEquals(List.of(ViewStats.builder().app("app").uri("/a").hits(3L).build()), result);
+    }
+
+    @Test
+    void getStats_WhenUnionExceedsMaxUniqueIps_ShouldCountInOneQuery() {
+        LocalDateTime end = start.plusDays(20);
+        lenient().when(repository.findDistinctIps(any(), any(), isNull()))
+                .thenReturn(List.<Object[]>of(new Object[]{"app", "/a", "10.0.0.1"}, new Object[]{"app", "/a", "10.0.0.2"}));
+        lenient().when(repository.findDistinctIpsBetween(any(), eq(end), isNull()))
+                .thenReturn(List.<Object[]>of(new Object[]{"app", "/a", "10.0.0.3"}));
+        when(repository.getStatsUnique(start, end, null))
+                .thenReturn(List.<Object[]>of(new Object[]{"app", "/a", 3L}));
+
+        List<ViewStats> result = createQuery(4, 2).getStats(start, end, null, true);
+
+        assertEquals(List.of(ViewStats.builder().app("app").uri("/a").hits(3L).build()), result);
+    }
+
+    @Test
+    void getStats_WhenHelpersGetNoConnection_ShouldQueryAllSlicesOnCallingThread() {
+        CountDownLatch refused = new CountDownLatch(1);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> {
+            refused.countDown();
+            throw new CannotCreateTransactionException("Connection is not available");
+        });
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        when(repository.countInRange(any(), any(), any())).thenAnswer(invocation -> {
+            refused.await(1, TimeUnit.SECONDS);
+            threads.add(Thread.currentThread());
+            return List.<Object[]>of(new Object[]{"app", "/a", 1L});
+        });
+        when(repository.getStats(any(), any(), any())).thenReturn(List.of());
+
+        List<ViewStats> result = createQuery(4).getStats(start, start.plusDays(30), null, false);
+
+        assertEquals(List.of(ViewStats.builder().app("app").uri("/a").hits(4L).build()), result);
+        assertEquals(Set.of(Thread.currentThread()), threads);
+    }
+
+    @Test
+    void getStats_ShouldNotRunMoreHelpersAtOnceThanAllowed() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(3);
+        when(repository.countInRange(any(), any(), any())).thenAnswer(invocation -> {
+            peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+            started.countDown();
+            started.await(1, TimeUnit.SECONDS);
+            Thread.sleep(20);
+            running.decrementAndGet();
+            return List.of();
+        });
+        when(repository.getStats(any(), any(), any())).thenReturn(List.of());
+
+        createQuery(2).getStats(start, start.plusDays(70), null, false);
+
+        assertEquals(3, peak.get());
+    }
+
+    @Test
+    void getStats_WhenSliceFails_ShouldRethrowItsException() {
+        when(repository.countInRange(any(), any(), any())).thenThrow(new IllegalStateException("connection lost"));
+        lenient().when(repository.getStats(any(), any(), any())).thenReturn(List.of());
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class,
+                () -> createQuery(4).getStats(start, start.plusDays(30), null, false));
+
+        assertEquals("connection lost", exception.getMessage());
+    }
+}
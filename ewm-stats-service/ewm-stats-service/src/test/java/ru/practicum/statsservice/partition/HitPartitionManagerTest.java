@@ -0,0 +1,132 @@
+package ru.practicum.statsservice.partition;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HitPartitionManagerTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private final Clock clock = Clock.fixed(LocalDate.of(2024, 3, 10).atStartOfDay().toInstant(ZoneOffset.UTC),
+            ZoneOffset.UTC);
+
+    private HitPartitionManager createManager(String interval, int retentionDays) {
+        return new HitPartitionManager(true, interval, 2, retentionDays, jdbcTemplate, clock);
+    }
+
+    private void givenDatabase(String product, boolean partitioned) {
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn(product);
+        lenient().when(jdbcTemplate.queryForObject(anyString(), eq(Integer.class), eq("endpoint_hits")))
+                .thenReturn(partitioned ? 1 : 0);
+    }
+
+    @Test
+    void maintain_OnPostgres_ShouldCreateDefaultAndUpcomingPartitions() {
+        givenDatabase("PostgreSQL", true);
+
+        createManager("day", 0).maintain();
+
+        verify(jdbcTemplate).execute("CREATE TABLE IF NOT EXISTS endpoint_hits_default PARTITION OF endpoint_hits DEFAULT");
+        verify(jdbcTemplate).execute("CREATE TABLE IF NOT EXISTS endpoint_hits_p20240310 PARTITION OF endpoint_hits " +
+                "FOR VALUES FROM ('2024-03-10') TO ('2024-03-11')");
+        verify(jdbcTemplate).execute("CREATE TABLE IF NOT EXISTS endpoint_hits_p20240312 PARTITION OF endpoint_hits " +
+                "FOR VALUES FROM ('2024-03-12') TO ('2024-03-13')");
+        verify(jdbcTemplate, never()).queryForList(anyString(), eq(String.class), any());
+    }
+
+    @Test
+    void maintain_WhenDefaultPartitionHoldsRowsOfPeriod_ShouldMoveThemIntoNewPartition() {
+        givenDatabase("PostgreSQL", true);
+        Timestamp from = Timestamp.valueOf(LocalDate.of(2024, 3, 11).atStartOfDay());
+        when(jdbcTemplate.queryForObject(startsWith("SELECT EXISTS"), eq(Boolean.class), any(), any()))
+                .thenAnswer(invocation -> from.equals(invocation.getArgument(2)));
+
+        createManager("day", 0).maintain();
+
+        verify(jdbcTemplate).execute("DO $$ BEGIN " +
+                "CREATE TABLE endpoint_hits_p20240311 (LIKE endpoint_hits INCLUDING DEFAULTS); " +
+                "WITH moved AS (DELETE FROM endpoint_hits_default WHERE timestamp >= '2024-03-11' " +
+                "AND timestamp < '2024-03-12' RETURNING *) INSERT INTO endpoint_hits_p20240311 SELECT * FROM moved; " +
+                "ALTER TABLE endpoint_hits ATTACH PARTITION endpoint_hits_p20240311 " +
+                "FOR VALUES FROM ('2024-03-11') TO ('2024-03-12'); END $$");
+        verify(jdbcTemplate, never()).execute("CREATE TABLE IF NOT EXISTS endpoint_hits_p20240311 PARTITION OF " +
+                "endpoint_hits FOR VALUES FROM ('2024-03-11') TO ('2024-03-12')");
+        verify(jdbcTemplate).execute("CREATE TABLE IF NOT EXISTS endpoint_hits_p20240310 PARTITION OF endpoint_hits " +
+                "FOR VALUES FROM ('2024-03-10') TO ('2024-03-11')");
+    }
+
+    @Test
+    void maintain_WithMonthlyInterval_ShouldCreateMonthPartitions() {
+        givenDatabase("PostgreSQL", true);
+
+        createManager("month", 0).maintain();
+
+        verify(jdbcTemplate).execute("CREATE TABLE IF NOT EXISTS endpoint_hits_p202403 PARTITION OF endpoint_hits " +
+                "FOR VALUES FROM ('2024-03-01') TO ('2024-04-01')");
+    }
+
+    @Test
+    void maintain_WithRetention_ShouldDropOnlyExpiredPartitions() {
+        givenDatabase("PostgreSQL", true);
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), eq("endpoint_hits")))
+                .thenReturn(List.of("endpoint_hits_default", "endpoint_hits_p20240301", "endpoint_hits_p20240302",
+                        "endpoint_hits_p202402"));
+
+        createManager("day", 8).maintain();
+
+        verify(jdbcTemplate).execute("DROP TABLE IF EXISTS endpoint_hits_p20240301");
+        verify(jdbcTemplate).execute("DROP TABLE IF EXISTS endpoint_hits_p202402");
+        verify(jdbcTemplate, never()).execute("DROP TABLE IF EXISTS endpoint_hits_p20240302");
+        verify(jdbcTemplate, never()).execute("DROP TABLE IF EXISTS endpoint_hits_default");
+    }
+
+    @Test
+    void maintain_WithRetention_ShouldDeleteExpiredDefaultRowsAndAggregates() {
+        givenDatabase("PostgreSQL", true);
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), eq("endpoint_hits"))).thenReturn(List.of());
+        Timestamp cutoff = Timestamp.valueOf(LocalDate.of(2024, 3, 1).atStartOfDay());
+
+        createManager("month", 9).maintain();
+
+        verify(jdbcTemplate).update("DELETE FROM endpoint_hits_default WHERE timestamp < ?", cutoff);
+        verify(jdbcTemplate).update("DELETE FROM hit_rollups WHERE bucket_start < ?", cutoff);
+        verify(jdbcTemplate).update("DELETE FROM hit_sketches WHERE bucket_start < ?", cutoff);
+        verify(jdbcTemplate).update("DELETE FROM hit_top_sketches WHERE bucket_start < ?", cutoff);
+    }
+
+    @Test
+    void maintain_OnH2_ShouldDoNothing() {
+        givenDatabase("H2", false);
+
+        createManager("day", 30).maintain();
+
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+
+    @Test
+    void maintain_WhenTableIsNotPartitioned_ShouldDoNothing() {
+        givenDatabase("PostgreSQL", false);
+
+        HitPartitionManager manager = createManager("day", 30);
+        manager.maintain();
+
+        assertFalse(manager.isActive());
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+}
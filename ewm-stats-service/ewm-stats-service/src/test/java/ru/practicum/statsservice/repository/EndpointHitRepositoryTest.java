@@ -4,22 +4,31 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
 import ru.practicum.statsservice.model.EndpointHitEntity;
 
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 @DataJpaTest
 @ActiveProfiles("test")
+@Import(HitDictionary.class)
 class EndpointHitRepositoryTest {
 
     @Autowired
     private EndpointHitRepository repository;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     private EndpointHitEntity hit1;
     private EndpointHitEntity hit2;
     private EndpointHitEntity hit3;
@@ -72,6 +81,29 @@ class EndpointHitRepositoryTest {
         assertEquals("192.168.1.3", saved.getIp());
     }
 
+    @Test
+    void insertAll_ShouldPersistAllHits() {
+        List<EndpointHitEntity> batch = Arrays.asList(
+                EndpointHitEntity.builder()
+                        .app("test-app")
+                        .uri("/test3")
+                        .ip("192.168.1.1")
+                        .timestamp(LocalDateTime.of(2023, 1, 1, 15, 0, 0))
+                        .build(),
+                EndpointHitEntity.builder()
+                        .app("test-app")
+                        .uri("/test3")
+                        .ip("192.168.1.2")
+                        .timestamp(LocalDateTime.of(2023, 1, 1, 16, 0, 0))
+                        .build());
+
+        repository.insertAll(batch);
+
+        List<Object[]> results = repository.getStats(startDate, endDate, Arrays.asList("/test3"));
+        assertEquals(1, results.size());
+        assertEquals(2L, results.get(0)[2]);
+    }
+
     @Test
     void getStats_ShouldReturnCorrectStats() {
         List<String> uris = Arrays.asList("/test1", "/test2");
@@ -138,4 +170,55 @@ class EndpointHitRepositoryTest {
 
         assertTrue(results.isEmpty());
     }
-}
\ No newline at end of file
+
+    @Test
+    void save_ShouldStoreDictionaryIdsAndBinaryIp() {
+        Integer uriId = jdbcTemplate.queryForObject(
+                "SELECT id FROM hit_dictionary WHERE kind = 'URI' AND name = '/test1'", Integer.class);
+        byte[] ip = jdbcTemplate.queryForObject(
+                "SELECT ip FROM endpoint_hits WHERE id = ?", byte[].class, hit1.getId());
+
+        assertEquals(2, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM endpoint_hits WHERE uri_id = ?", Integer.class, uriId));
+        assertArrayEquals(new byte[]{(byte) 192, (byte) 168, 1, 1}, ip);
+    }
+
+    @Test
+    void getStats_WithUnknownUri_ShouldNotAddItToDictionary() {
+        repository.getStats(startDate, endDate, Arrays.asList("/never-hit"));
+
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM hit_dictionary WHERE name = '/never-hit'", Integer.class));
+    }
+
+    @Test
+    void insertAll_WithHitIds_ShouldFindThemAndRejectResends() {
+        UUID hitId = UUID.randomUUID();
+        EndpointHitEntity hit = EndpointHitEntity.builder()
+                .app("test-app")
+                .uri("/test4")
+                .ip("192.168.1.1")
+                .timestamp(LocalDateTime.of(2023, 1, 1, 15, 0, 0))
+                .hitId(hitId)
+                .build();
+        repository.insertAll(List.of(hit));
+
+        assertEquals(List.of(hitId), repository.findExistingHitIds(List.of(hitId, UUID.randomUUID()),
+                hit.getTimestamp(), hit.getTimestamp()));
+        assertThrows(DataIntegrityViolationException.class, () -> repository.insertAll(List.of(hit)));
+    }
+
+    @Test
+    void streamStats_ShouldReturnSameRowsAsGetStats() {
+        List<Object[]> expected = repository.getStats(startDate, endDate, null);
+
+        try (Stream<Object[]> rows = repository.streamStats(startDate, endDate, null)) {
+            List<Object[]> streamed = rows.toList();
+
+            assertEquals(expected.size(), streamed.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertArrayEquals(expected.get(i), streamed.get(i));
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package ru.practicum.statsservice.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.practicum.statsservice.model.IpAddressConverter;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs {@code schema-postgresql.sql} the way Spring Boot does at startup, against an empty database
+ * and against the {@code endpoint_hits} table Hibernate created for the original entity.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class SchemaMigrationTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private final IpAddressConverter converter = new IpAddressConverter();
+    private JdbcTemplate jdbcTemplate;
+    private DriverManagerDataSource dataSource;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("DROP TABLE IF EXISTS endpoint_hits, endpoint_hits_legacy, hit_dictionary CASCADE");
+    }
+
+    private void runSchema() {
+        new ResourceDatabasePopulator(new ClassPathResource("schema-postgresql.sql")).execute(dataSource);
+    }
+
+    @Test
+    void schema_OnEmptyDatabase_ShouldCreateTablesAndRerun() {
+        runSchema();
+        runSchema();
+
+        assertEquals(List.of("app_id", "hit_id", "id", "ip", "timestamp", "uri_id"), columns());
+        assertNull(jdbcTemplate.queryForObject("SELECT to_regclass('endpoint_hits_legacy')::TEXT", String.class));
+        jdbcTemplate.update("INSERT INTO endpoint_hits (app_id, uri_id, ip, timestamp) VALUES (1, 2, '\\x7f000001', now())");
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM endpoint_hits_default", Integer.class));
+    }
+
+    @Test
+    void schema_OnBaselineTable_ShouldMigrateHits() {
+        String longIp = "x".repeat(255);
+        jdbcTemplate.execute("CREATE TABLE endpoint_hits (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, " +
+                "app VARCHAR(255) NOT NULL, uri VARCHAR(255) NOT NULL, ip VARCHAR(255) NOT NULL, " +
+                "timestamp TIMESTAMP(6) NOT NULL)");
+        List<String> ips = List.of("192.168.0.1", "2001:db8::1", "localhost", "abc", "256.1.1.1", "[::1]", longIp);
+        for (String ip : ips) {
+            jdbcTemplate.update("INSERT INTO endpoint_hits (app, uri, ip, timestamp) VALUES (?, ?, ?, " +
+                    "TIMESTAMP '2024-03-10 12:00:00')", "ewm-main-service", "/events/" + ip.length(), ip);
+        }
+
+        runSchema();
+        runSchema();
+
+        assertEquals(List.of("app_id", "hit_id", "id", "ip", "timestamp", "uri_id"), columns());
+        assertNull(jdbcTemplate.queryForObject("SELECT to_regclass('endpoint_hits_legacy')::TEXT", String.class));
+        for (int i = 0; i < ips.size(); i++) {
+            Map<String, Object> row = jdbcTemplate.queryForMap("SELECT a.name AS app, u.name AS uri, h.ip " +
+                    "FROM endpoint_hits h JOIN hit_dictionary a ON a.id = h.app_id JOIN hit_dictionary u ON u.id = h.uri_id " +
+                    "WHERE h.id = ?", i + 1L);
+            assertEquals("ewm-main-service", row.get("app"));
+            assertEquals("/events/" + ips.get(i).length(), row.get("uri"));
+            assertArrayEquals(converter.convertToDatabaseColumn(ips.get(i)), (byte[]) row.get("ip"));
+        }
+        Long nextId = jdbcTemplate.queryForObject("INSERT INTO endpoint_hits (app_id, uri_id, ip, timestamp) " +
+                "VALUES (1, 2, '\\x7f000001', now()) RETURNING id", Long.class);
+        assertEquals(ips.size() + 1L, nextId);
+    }
+
+    private List<String> columns() {
+        return jdbcTemplate.queryForList("SELECT column_name FROM information_schema.columns " +
+                "WHERE table_schema = current_schema() AND table_name = 'endpoint_hits' ORDER BY column_name",
+                String.class);
+    }
+}
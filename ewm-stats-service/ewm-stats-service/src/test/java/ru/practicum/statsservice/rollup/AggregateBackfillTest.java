@@ -0,0 +1,82 @@
+package ru.practicum.statsservice.rollup;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import ru.practicum.statsservice.model.AggregateBackfillEntity;
+import ru.practicum.statsservice.model.EndpointHitEntity;
+import ru.practicum.statsservice.repository.AggregateBackfillRepository;
+import ru.practicum.statsservice.repository.EndpointHitRepository;
+import ru.practicum.statsservice.repository.HitDictionary;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({AggregateBackfill.class, HitDictionary.class})
+class AggregateBackfillTest {
+
+    @Autowired
+    private AggregateBackfill backfill;
+
+    @Autowired
+    private AggregateBackfillRepository backfillRepository;
+
+    @Autowired
+    private EndpointHitRepository hitRepository;
+
+    private final List<EndpointHitEntity> recorded = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        List<EndpointHitEntity> hits = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            hits.add(EndpointHitEntity.builder()
+                    .app("test-app")
+                    .uri("/events/" + i)
+                    .ip("192.168.1.1")
+                    .timestamp(LocalDateTime.of(2023, 1, 1, 12, i))
+                    .build());
+        }
+        hitRepository.insertAll(hits);
+    }
+
+    @Test
+    void run_ShouldRecordExistingHitsAndMarkComplete() {
+        backfill.run("test", false, recorded::addAll);
+        backfill.run("test", false, recorded::addAll);
+
+        assertEquals(5, recorded.size());
+        assertTrue(backfillRepository.findById("test").orElseThrow().isCompleted());
+    }
+
+    @Test
+    void run_AfterInterruptedBackfill_ShouldResumeAfterLastRecordedHit() {
+        long maxId = hitRepository.findMaxId();
+        backfillRepository.save(AggregateBackfillEntity.builder()
+                .name("test")
+                .lastHitId(maxId - 2)
+                .targetHitId(maxId - 1)
+                .build());
+
+        backfill.run("test", true, recorded::addAll);
+
+        assertEquals(1, recorded.size());
+        assertEquals(maxId - 1, recorded.getFirst().getId());
+    }
+
+    @Test
+    void run_WithUntrackedAggregates_ShouldTreatThemAsComplete() {
+        backfill.run("test", true, recorded::addAll);
+
+        assertTrue(recorded.isEmpty());
+        assertTrue(backfillRepository.findById("test").orElseThrow().isCompleted());
+    }
+}
@@ -0,0 +1,109 @@
+package ru.practicum.statsservice.rollup;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import ru.practicum.statsdto.ViewStats;
+import ru.practicum.statsservice.model.EndpointHitEntity;
+import ru.practicum.statsservice.model.RollupGranularity;
+import ru.practicum.statsservice.repository.EndpointHitRepository;
+import ru.practicum.statsservice.repository.HitDictionary;
+import ru.practicum.statsservice.repository.HitRollupRepository;
+import ru.practicum.statsservice.service.HitCounts;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({RollupService.class, AggregateBackfill.class, HitDictionary.class})
+class RollupServiceTest {
+
+    @Autowired
+    private RollupService rollupService;
+
+    @Autowired
+    private EndpointHitRepository hitRepository;
+
+    @Autowired
+    private HitRollupRepository rollupRepository;
+
+    private final LocalDateTime base = LocalDateTime.of(2023, 1, 1, 0, 0, 0);
+
+    @BeforeEach
+    void setUp() {
+        List<EndpointHitEntity> hits = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            hits.add(EndpointHitEntity.builder()
+                    .app("test-app")
+                    .uri(i % 3 == 0 ? "/events/1" : "/events/2")
+                    .ip("192.168.1." + (i % 7))
+                    .timestamp(base.plusSeconds(i * 997L))
+                    .build());
+        }
+        hitRepository.insertAll(hits);
+        rollupService.record(hits);
+    }
+
+    private List<ViewStats> raw(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        HitCounts counts = new HitCounts();
+        counts.addRows(hitRepository.getStats(start, end, uris));
+        return counts.toViewStats();
+    }
+
+    @Test
+    void record_ShouldMaintainBucketsForEveryGranularity() {
+        List<Object[]> days = rollupRepository.sumHits(RollupGranularity.DAY, base, base.plusDays(30), null);
+        List<Object[]> minutes = rollupRepository.sumHits(RollupGranularity.MINUTE, base, base.plusDays(30), null);
+
+        assertEquals(400L, days.stream().mapToLong(row -> ((Number) row[2]).longValue()).sum());
+        assertEquals(400L, minutes.stream().mapToLong(row -> ((Number) row[2]).longValue()).sum());
+    }
+
+    @Test
+    void record_CalledTwice_ShouldIncrementExistingBuckets() {
+        EndpointHitEntity hit = EndpointHitEntity.builder()
+                .app("test-app")
+                .uri("/events/3")
+                .ip("10.0.0.1")
+                .timestamp(base.plusHours(1))
+                .build();
+
+        rollupService.record(List.of(hit));
+        rollupService.record(List.of(hit));
+
+        List<Object[]> hours = rollupRepository.sumHits(RollupGranularity.HOUR, base, base.plusDays(1), List.of("/events/3"));
+        assertEquals(2L, ((Number) hours.get(0)[2]).longValue());
+    }
+
+    @Test
+    void getStats_ShouldMatchRawCountsForUnalignedRanges() {
+        List<LocalDateTime[]> ranges = List.of(
+                new LocalDateTime[]{base, base.plusDays(5)},
+                new LocalDateTime[]{base.plusSeconds(17), base.plusDays(3).plusHours(5).plusSeconds(41)},
+                new LocalDateTime[]{base.plusMinutes(59).plusSeconds(1), base.plusHours(2).plusMinutes(3)},
+                new LocalDateTime[]{base.plusSeconds(5), base.plusSeconds(50)},
+                new LocalDateTime[]{base.plusHours(23).plusMinutes(1), base.plusDays(2).plusHours(1)});
+
+        for (LocalDateTime[] range : ranges) {
+            assertEquals(raw(range[0], range[1], null), rollupService.getStats(range[0], range[1], null));
+            assertEquals(raw(range[0], range[1], List.of("/events/1")),
+                    rollupService.getStats(range[0], range[1], List.of("/events/1")));
+        }
+    }
+
+    @Test
+    void getStats_WithHitOnEndBoundary_ShouldIncludeIt() {
+        LocalDateTime end = base.plusSeconds(997L * 10);
+
+        List<ViewStats> stats = rollupService.getStats(base, end, null);
+
+        assertEquals(11L, stats.stream().mapToLong(ViewStats::getHits).sum());
+    }
+}
@@ -1,22 +1,51 @@
 package ru.practicum.statsservice.service;
 
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
 import ru.practicum.statsdto.EndpointHit;
+import ru.practicum.statsdto.HitBatchResult;
+import ru.practicum.statsdto.StatsQuery;
+import ru.practicum.statsdto.StatsWireFormat;
+import ru.practicum.statsdto.TimeSeriesPoint;
 import ru.practicum.statsdto.ViewStats;
+import ru.practicum.statsservice.cache.StatsResultCache;
+import ru.practicum.statsservice.compaction.HitCompactor;
 import ru.practicum.statsservice.exception.BadRequestException;
 import ru.practicum.statsservice.exception.StatsServiceException;
+import ru.practicum.statsservice.exception.TooManyRequestsException;
+import ru.practicum.statsservice.hotwindow.HotWindow;
+import ru.practicum.statsservice.ingest.HitDeduplicator;
+import ru.practicum.statsservice.ingest.HitWriteBuffer;
+import ru.practicum.statsservice.ingest.UdpHitReceiver;
 import ru.practicum.statsservice.model.EndpointHitEntity;
+import ru.practicum.statsservice.model.RollupGranularity;
+import ru.practicum.statsservice.parallel.ParallelRangeQuery;
 import ru.practicum.statsservice.repository.EndpointHitRepository;
-
+import ru.practicum.statsservice.rollup.RollupService;
+import ru.practicum.statsservice.sketch.SketchService;
+import ru.practicum.statsservice.sketch.TopHitsService;
+import ru.practicum.statsservice.store.JpaHitStore;
+import ru.practicum.statsservice.timeseries.TimeSeriesService;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -28,6 +57,42 @@ class StatsServiceTest {
     @Mock
     private EndpointHitRepository repository;
 
+    @Mock
+    private HitWriteBuffer writeBuffer;
+
+    @Mock
+    private RollupService rollupService;
+
+    @Mock
+    private SketchService sketchService;
+
+    @Mock
+    private HotWindow hotWindow;
+
+    @Mock
+    private StatsResultCache resultCache;
+
+    @Mock
+    private TopHitsService topHitsService;
+
+    @Mock
+    private HitCompactor compactor;
+
+    @Mock
+    private ParallelRangeQuery parallelQuery;
+
+    @Mock
+    private TimeSeriesService timeSeriesService;
+
+    @Mock
+    private HitDeduplicator deduplicator;
+
+    @Mock
+    private UdpHitReceiver udpReceiver;
+
+    @Spy
+    private Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
     @InjectMocks
     private StatsServiceImpl statsService;
 
@@ -37,6 +102,7 @@ class StatsServiceTest {
 
     @BeforeEach
     void setUp() {
+        ReflectionTestUtils.setField(statsService, "hitStore", new JpaHitStore(repository, parallelQuery));
         validHit = EndpointHit.builder()
                 .app("test-app")
                 .uri("/test")
@@ -77,6 +143,456 @@ class StatsServiceTest {
         verify(repository, never()).save(any(EndpointHitEntity.class));
     }
 
+    @Test
+    void saveHits_WithValidAndInvalidHits_ShouldInsertValidAndReportInvalid() {
+        EndpointHit blankApp = EndpointHit.builder()
+                .app("")
+                .uri("/test")
+                .ip("192.168.1.1")
+                .timestamp("2023-01-01 12:00:00")
+                .build();
+        EndpointHit invalidTimestamp = EndpointHit.builder()
+                .app("test-app")
+                .uri("/test")
+                .ip("192.168.1.1")
+                .timestamp("invalid-timestamp")
+                .build();
+
+        HitBatchResult result = statsService.saveHits(Arrays.asList(validHit, blankApp, invalidTimestamp, validHit));
+
+        assertEquals(2, result.getAccepted());
+        assertEquals(2, result.getRejected().size());
+        assertEquals(1, result.getRejected().get(0).getIndex());
+        assertTrue(result.getRejected().get(0).getMessage().startsWith("app:"));
+        assertEquals(2, result.getRejected().get(1).getIndex());
+        verify(repository, times(1)).insertAll(argThat(entities -> entities.size() == 2));
+        verify(repository, never()).save(any(EndpointHitEntity.class));
+    }
+
+    @Test
+    void handleHits_WithNullBatch_ShouldThrowBadRequestException() {
+        assertThrows(BadRequestException.class, () -> statsService.handleHits(null));
+        verify(repository, never()).insertAll(any());
+    }
+
+    @Test
+    void handleWireHits_ShouldStoreParsedTimestampsAndReportInvalidHits() {
+        EndpointHit blankIp = EndpointHit.builder()
+                .app("test-app")
+                .uri("/test")
+                .ip(" ")
+                .timestamp("2023-01-01 12:00:00")
+                .build();
+        EndpointHit invalidTimestamp = EndpointHit.builder()
+                .app("test-app")
+                .uri("/test")
+                .ip("192.168.1.1")
+                .timestamp("invalid-timestamp")
+                .build();
+        byte[] body = StatsWireFormat.encodeHits(List.of(validHit, blankIp, invalidTimestamp));
+
+        HitBatchResult result = statsService.handleWireHits(body);
+
+        assertEquals(1, result.getAccepted());
+        assertEquals(2, result.getRejected().size());
+        assertEquals("ip: must not be blank", result.getRejected().get(0).getMessage());
+        assertEquals(2, result.getRejected().get(1).getIndex());
+        verify(repository).insertAll(argThat(entities -> entities.size() == 1
+                && entities.getFirst().getTimestamp().equals(LocalDateTime.of(2023, 1, 1, 12, 0, 0))));
+        verify(validator, never()).validate(any());
+    }
+
+    @Test
+    void handleWireHits_WithTruncatedBody_ShouldThrowBadRequestException() {
+        byte[] body = StatsWireFormat.encodeHits(List.of(validHit));
+
+        assertThrows(BadRequestException.class,
+                () -> statsService.handleWireHits(Arrays.copyOf(body, body.length - 3)));
+        verify(repository, never()).insertAll(any());
+    }
+
+    @Test
+    void saveHits_WithOnlyInvalidHits_ShouldNotTouchRepository() {
+        EndpointHit invalidHit = EndpointHit.builder()
+                .app("test-app")
+                .build();
+
+        HitBatchResult result = statsService.saveHits(Arrays.asList(invalidHit, null));
+
+        assertEquals(0, result.getAccepted());
+        assertEquals(2, result.getRejected().size());
+        verify(repository, never()).insertAll(any());
+    }
+
+    @Test
+    void handleHits_WithRepositoryException_ShouldThrowStatsServiceException() {
+        doThrow(new RuntimeException("DB Error")).when(repository).insertAll(any());
+
+        assertThrows(StatsServiceException.class, () -> statsService.handleHits(List.of(validHit)));
+    }
+
+    @Test
+    void saveHit_WithWriteBehindEnabled_ShouldEnqueueInsteadOfSaving() {
+        when(writeBuffer.isEnabled()).thenReturn(true);
+
+        statsService.saveHit(validHit);
+
+        verify(writeBuffer, times(1)).enqueue(any(EndpointHitEntity.class));
+        verify(repository, never()).save(any(EndpointHitEntity.class));
+    }
+
+    @Test
+    void handleHit_WhenWriteBufferIsFull_ShouldPropagateTooManyRequests() {
+        when(writeBuffer.isEnabled()).thenReturn(true);
+        doThrow(new TooManyRequestsException("full")).when(writeBuffer).enqueue(any(EndpointHitEntity.class));
+
+        assertThrows(TooManyRequestsException.class, () -> statsService.handleHit(validHit));
+    }
+
+    @Test
+    void saveHits_WithWriteBehindEnabled_ShouldReportOverflowPerItem() {
+        when(writeBuffer.isEnabled()).thenReturn(true);
+        doNothing().doThrow(new TooManyRequestsException("full")).when(writeBuffer).enqueue(any(EndpointHitEntity.class));
+
+        HitBatchResult result = statsService.saveHits(Arrays.asList(validHit, validHit));
+
+        assertEquals(1, result.getAccepted());
+        assertEquals(1, result.getRejected().get(0).getIndex());
+        verify(repository, never()).insertAll(any());
+    }
+
+    @Test
+    void getStats_WithPendingHitsIncluded_ShouldWaitForBufferFirst() {
+        when(writeBuffer.isIncludePending()).thenReturn(true);
+        when(repository.getStats(any(LocalDateTime.class), any(LocalDateTime.class), isNull()))
+                .thenReturn(new ArrayList<>());
+
+        statsService.getStats(startDate, endDate, null, false);
+
+        verify(writeBuffer, times(1)).awaitFlush();
+    }
+
+    @Test
+    void saveHits_WithDedupEnabled_ShouldStoreAndCountOnlyFreshHits() {
+        EndpointHit resent = EndpointHit.builder()
+                .app("test-app")
+                .uri("/test")
+                .ip("192.168.1.1")
+                .timestamp("2023-01-01 12:00:00")
+                .hitId(UUID.randomUUID())
+                .build();
+        when(deduplicator.isEnabled()).thenReturn(true);
+        when(rollupService.isEnabled()).thenReturn(true);
+        when(deduplicator.filter(anyList())).thenAnswer(invocation -> {
+            List<EndpointHitEntity> hits = invocation.getArgument(0);
+            return hits.stream().filter(hit -> hit.getHitId() == null).toList();
+        });
+
+        HitBatchResult result = statsService.saveHits(List.of(validHit, resent));
+
+        assertEquals(2, result.getAccepted());
+        verify(repository).insertAll(argThat(entities -> entities.size() == 1));
+        verify(rollupService).record(argThat(entities -> entities.size() == 1));
+    }
+
+    @Test
+    void saveHit_WhenHitWasAlreadyStored_ShouldSkipIt() {
+        when(deduplicator.isEnabled()).thenReturn(true);
+        when(deduplicator.filter(anyList())).thenReturn(List.of());
+
+        statsService.saveHit(validHit);
+
+        verify(repository, never()).save(any(EndpointHitEntity.class));
+    }
+
+    @Test
+    void saveHit_WithRollupsEnabled_ShouldRecordRollups() {
+        when(rollupService.isEnabled()).thenReturn(true);
+
+        statsService.saveHit(validHit);
+
+        verify(repository, times(1)).save(any(EndpointHitEntity.class));
+        verify(rollupService, times(1)).record(argThat(hits -> hits.size() == 1));
+    }
+
+    @Test
+    void getStats_WithRollupsEnabled_ShouldAnswerNonUniqueFromRollups() {
+        List<ViewStats> rolledUp = List.of(ViewStats.builder().app("test-app").uri("/test").hits(3L).build());
+        when(rollupService.isEnabled()).thenReturn(true);
+        when(rollupService.getStats(startDate, endDate, List.of("/test"))).thenReturn(rolledUp);
+
+        List<ViewStats> result = statsService.getStats(startDate, endDate, List.of("/test"), false);
+
+        assertEquals(rolledUp, result);
+        verify(repository, never()).getStats(any(), any(), any());
+    }
+
+    @Test
+    void getStats_WithRollupsEnabledAndUniqueFlag_ShouldQueryRawHits() {
+        lenient().when(rollupService.isEnabled()).thenReturn(true);
+        when(repository.getStatsUnique(any(LocalDateTime.class), any(LocalDateTime.class), any()))
+                .thenReturn(new ArrayList<>());
+
+        statsService.getStats(startDate, endDate, List.of("/test"), true);
+
+        verify(rollupService, never()).getStats(any(), any(), any());
+    }
+
+    @Test
+    void getStats_WithSketchesEnabledAndUniqueFlag_ShouldMergeSketches() {
+        List<ViewStats> estimated = List.of(ViewStats.builder().app("test-app").uri("/test").hits(2L).build());
+        when(sketchService.isEnabled()).thenReturn(true);
+        when(sketchService.getUniqueStats(startDate, endDate, List.of("/test"))).thenReturn(estimated);
+
+        List<ViewStats> result = statsService.getStats(startDate, endDate, List.of("/test"), true);
+
+        assertEquals(estimated, result);
+        verify(repository, never()).getStatsUnique(any(), any(), any());
+    }
+
+    @Test
+    void getStats_WithExactFlag_ShouldCountDistinctIpsInDatabase() {
+        lenient().when(sketchService.isEnabled()).thenReturn(true);
+        when(repository.getStatsUnique(any(LocalDateTime.class), any(LocalDateTime.class), any()))
+                .thenReturn(new ArrayList<>());
+
+        statsService.getStats(startDate, endDate, List.of("/test"), true, true);
+
+        verify(sketchService, never()).getUniqueStats(any(), any(), any());
+        verify(repository, times(1)).getStatsUnique(startDate, endDate, List.of("/test"));
+    }
+
+    @Test
+    void getStats_WhenRangeStartsInCompactedDays_ShouldWidenEdgesToRollupMinutes() {
+        LocalDateTime start = LocalDateTime.of(2023, 1, 1, 0, 0, 30);
+        LocalDateTime end = LocalDateTime.of(2023, 1, 1, 10, 5, 10);
+        List<ViewStats> rolledUp = List.of(ViewStats.builder().app("test-app").uri("/test").hits(7L).build());
+        when(compactor.isEnabled()).thenReturn(true);
+        when(compactor.isCompacted(any())).thenReturn(true);
+        when(rollupService.getStats(LocalDateTime.of(2023, 1, 1, 0, 0), LocalDateTime.of(2023, 1, 1, 10, 6),
+                List.of("/test"))).thenReturn(rolledUp);
+
+        List<ViewStats> result = statsService.getStats(start, end, List.of("/test"), false);
+
+        assertEquals(rolledUp, result);
+        verify(repository, never()).getStats(any(), any(), any());
+    }
+
+    @Test
+    void getStats_WhenExactUniqueRangeStartsInCompactedDays_ShouldMergeHourlySketches() {
+        LocalDateTime start = LocalDateTime.of(2023, 1, 1, 0, 20);
+        List<ViewStats> estimated = List.of(ViewStats.builder().app("test-app").uri("/test").hits(2L).build());
+        when(compactor.isEnabled()).thenReturn(true);
+        when(compactor.isCompacted(start)).thenReturn(true);
+        when(compactor.isCompacted(endDate)).thenReturn(false);
+        when(sketchService.getUniqueStats(startDate, endDate, List.of("/test"))).thenReturn(estimated);
+
+        List<ViewStats> result = statsService.getStats(start, endDate, List.of("/test"), true, true);
+
+        assertEquals(estimated, result);
+        verify(repository, never()).getStatsUnique(any(), any(), any());
+    }
+
+    @Test
+    void getStats_WithLongRawRange_ShouldSplitItIntoParallelSlices() {
+        LocalDateTime end = startDate.plusYears(1);
+        List<ViewStats> merged = List.of(ViewStats.builder().app("test-app").uri("/test").hits(12L).build());
+        when(parallelQuery.shouldSplit(startDate, end)).thenReturn(true);
+        when(parallelQuery.getStats(startDate, end, List.of("/test"), true)).thenReturn(merged);
+
+        List<ViewStats> result = statsService.getStats(startDate, end, List.of("/test"), true, true);
+
+        assertEquals(merged, result);
+        verify(repository, never()).getStatsUnique(any(), any(), any());
+    }
+
+    @Test
+    void getStats_WhenHotWindowCoversRange_ShouldAnswerFromMemory() {
+        List<ViewStats> recent = List.of(ViewStats.builder().app("test-app").uri("/test").hits(4L).build());
+        when(hotWindow.isEnabled()).thenReturn(true);
+        when(hotWindow.covers(startDate)).thenReturn(true);
+        when(hotWindow.getStats(startDate, endDate, List.of("/test"), true)).thenReturn(recent);
+
+        List<ViewStats> result = statsService.getStats(startDate, endDate, List.of("/test"), true);
+
+        assertEquals(recent, result);
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    void getStats_WhenRangeStartsBeforeHotWindow_ShouldQueryDatabase() {
+        when(hotWindow.isEnabled()).thenReturn(true);
+        when(hotWindow.covers(startDate)).thenReturn(false);
+        when(repository.getStats(any(LocalDateTime.class), any(LocalDateTime.class), any()))
+                .thenReturn(new ArrayList<>());
+
+        statsService.getStats(startDate, endDate, List.of("/test"), false);
+
+        verify(hotWindow, never()).getStats(any(), any(), any(), anyBoolean());
+        verify(repository, times(1)).getStats(startDate, endDate, List.of("/test"));
+    }
+
+    @Test
+    void getStats_WithResultCacheEnabled_ShouldServeFromCache() {
+        List<String> uris = List.of("/test");
+        List<ViewStats> cached = List.of(ViewStats.builder().app("test-app").uri("/test").hits(9L).build());
+        when(resultCache.isEnabled()).thenReturn(true);
+        when(resultCache.get(eq(startDate), eq(endDate), eq(uris), eq(true), eq(false), any())).thenReturn(cached);
+
+        List<ViewStats> result = statsService.getStats(startDate, endDate, uris, true);
+
+        assertSame(cached, result);
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    void saveHit_WithResultCacheEnabled_ShouldInvalidateUri() {
+        when(resultCache.isEnabled()).thenReturn(true);
+
+        statsService.saveHit(validHit);
+
+        verify(resultCache).invalidate(argThat(hits -> hits.size() == 1 && "/test".equals(hits.getFirst().getUri())));
+    }
+
+    @Test
+    void saveHit_InsideTransaction_ShouldRecordHotWindowOnlyAfterCommit() {
+        when(hotWindow.isEnabled()).thenReturn(true);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            statsService.saveHit(validHit);
+
+            verify(hotWindow, never()).record(anyList());
+            TransactionSynchronizationUtils.invokeAfterCommit(TransactionSynchronizationManager.getSynchronizations());
+            verify(hotWindow).record(argThat(hits -> hits.size() == 1));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void saveHit_WhenTransactionRollsBack_ShouldNotRecordHotWindow() {
+        when(hotWindow.isEnabled()).thenReturn(true);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            statsService.saveHit(validHit);
+
+            TransactionSynchronizationUtils.invokeAfterCompletion(TransactionSynchronizationManager.getSynchronizations(),
+                    TransactionSynchronization.STATUS_ROLLED_BACK);
+            verify(hotWindow, never()).record(anyList());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void saveHit_InsideTransaction_ShouldInvalidateResultCacheAfterCommit() {
+        when(resultCache.isEnabled()).thenReturn(true);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            statsService.saveHit(validHit);
+
+            verify(resultCache, never()).invalidate(anyList());
+            TransactionSynchronizationUtils.invokeAfterCommit(TransactionSynchronizationManager.getSynchronizations());
+            verify(resultCache).invalidate(argThat(hits -> hits.size() == 1));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void getTimeSeries_ShouldParseIntervalAndDecodeUri() {
+        List<TimeSeriesPoint> points = List.of(TimeSeriesPoint.builder().start("2023-01-01 00:00:00").hits(3L).build());
+        when(timeSeriesService.getTimeSeries("/events/1", startDate, endDate, RollupGranularity.HOUR, true))
+                .thenReturn(points);
+
+        assertEquals(points, statsService.getTimeSeries("%2Fevents%2F1", startDate, endDate, "Hour", true));
+    }
+
+    @Test
+    void getTimeSeries_WithUnknownInterval_ShouldThrowBadRequest() {
+        assertThrows(BadRequestException.class,
+                () -> statsService.getTimeSeries("/events/1", startDate, endDate, "week", false));
+        verifyNoInteractions(timeSeriesService);
+    }
+
+    @Test
+    void getTopStats_WithTopSketchesEnabled_ShouldAnswerFromSummaries() {
+        List<ViewStats> top = List.of(ViewStats.builder().app("test-app").uri("/test").hits(9L).build());
+        when(topHitsService.isEnabled()).thenReturn(true);
+        when(topHitsService.getTop(startDate, endDate, 5)).thenReturn(top);
+
+        assertEquals(top, statsService.getTopStats(startDate, endDate, 5, false));
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    void getTopStats_WithUniqueFlag_ShouldRerankCandidatesByUniqueVisitors() {
+        when(topHitsService.isEnabled()).thenReturn(true);
+        when(topHitsService.getCapacity()).thenReturn(100);
+        when(topHitsService.getTop(startDate, endDate, 100)).thenReturn(List.of(
+                ViewStats.builder().app("test-app").uri("/a").hits(50L).build(),
+                ViewStats.builder().app("test-app").uri("/b").hits(40L).build()));
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{"test-app", "/a", 2L});
+        rows.add(new Object[]{"test-app", "/b", 30L});
+        when(repository.getStatsUnique(startDate, endDate, List.of("/a", "/b"))).thenReturn(rows);
+
+        List<ViewStats> result = statsService.getTopStats(startDate, endDate, 1, true);
+
+        assertEquals(1, result.size());
+        assertEquals("/b", result.getFirst().getUri());
+    }
+
+    @Test
+    void getTopStats_WithTopSketchesDisabled_ShouldLimitFullAggregation() {
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{"test-app", "/a", 5L});
+        rows.add(new Object[]{"test-app", "/b", 3L});
+        when(repository.getStats(startDate, endDate, null)).thenReturn(rows);
+
+        List<ViewStats> result = statsService.getTopStats(startDate, endDate, 1, false);
+
+        assertEquals(1, result.size());
+        assertEquals("/a", result.getFirst().getUri());
+    }
+
+    @Test
+    void getTopStats_WithInvalidK_ShouldThrowBadRequestException() {
+        assertThrows(BadRequestException.class, () -> statsService.getTopStats(startDate, endDate, 0, false));
+    }
+
+    @Test
+    void streamStats_ShouldPassDatabaseRowsToSink() {
+        when(repository.streamStatsUnique(startDate, endDate, null))
+                .thenReturn(Stream.of(new Object[]{"test-app", "/test", 3L}, new Object[]{"test-app", "/test2", 1L}));
+        List<ViewStats> received = new ArrayList<>();
+
+        statsService.streamStats(startDate, endDate, null, true, false, received::add);
+
+        assertEquals(2, received.size());
+        assertEquals("/test", received.get(0).getUri());
+        assertEquals(1L, received.get(1).getHits());
+    }
+
+    @Test
+    void handleStreamStats_WithRepositoryException_ShouldThrowStatsServiceException() {
+        when(repository.streamStatsUnique(startDate, endDate, null)).thenThrow(new RuntimeException("DB Error"));
+
+        assertThrows(StatsServiceException.class,
+                () -> statsService.handleStreamStats(startDate, endDate, true, false, stats -> { }));
+    }
+
+    @Test
+    void handleStreamStats_WhenSinkFails_ShouldPassIoErrorThrough() {
+        when(repository.streamStatsUnique(startDate, endDate, null))
+                .thenReturn(Stream.<Object[]>of(new Object[]{"test-app", "/test", 3L}));
+
+        assertThrows(UncheckedIOException.class, () -> statsService.handleStreamStats(startDate, endDate, true, false,
+                stats -> {
+                    throw new UncheckedIOException(new IOException("Broken pipe"));
+                }));
+    }
+
     @Test
     void getStats_WithValidData_ShouldReturnStats() {
         List<String> uris = Arrays.asList("/test", "/test2");
@@ -102,6 +618,40 @@ class StatsServiceTest {
         verify(repository, never()).getStatsUnique(any(), any(), any());
     }
 
+    @Test
+    void getStats_WithQuery_ShouldMergeUrisAndEventIdsWithoutDecoding() {
+        StatsQuery query = StatsQuery.builder()
+                .start("2023-01-01 00:00:00")
+                .end("2023-01-02 00:00:00")
+                .uris(List.of("/events/1", "/search?q=a%20b"))
+                .eventIds(List.of(1L, 2L))
+                .unique(true)
+                .exact(true)
+                .build();
+        List<String> expectedUris = List.of("/events/1", "/search?q=a%20b", "/events/2");
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{"test-app", "/events/2", 3L});
+        when(repository.getStatsUnique(startDate, endDate, expectedUris)).thenReturn(rows);
+
+        List<ViewStats> result = statsService.handleQuery(query);
+
+        assertEquals(1, result.size());
+        assertEquals(3L, result.getFirst().getHits());
+    }
+
+    @Test
+    void getStats_WithQueryOverUriLimit_ShouldThrowBadRequestException() {
+        ReflectionTestUtils.setField(statsService, "maxQueryUris", 2);
+        StatsQuery query = StatsQuery.builder()
+                .start("2023-01-01 00:00:00")
+                .end("2023-01-02 00:00:00")
+                .eventIds(List.of(1L, 2L, 3L))
+                .build();
+
+        assertThrows(BadRequestException.class, () -> statsService.handleQuery(query));
+        verifyNoInteractions(repository);
+    }
+
     @Test
     void getStats_WithUniqueFlag_ShouldCallUniqueMethod() {
         List<String> uris = Arrays.asList("/test");
@@ -0,0 +1,56 @@
+package ru.practicum.statsservice.sketch;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HyperLogLogTest {
+
+    private HyperLogLog sketchOf(int from, int to) {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int i = from; i < to; i++) {
+            sketch.add("10." + (i >> 16 & 0xFF) + "." + (i >> 8 & 0xFF) + "." + (i & 0xFF));
+        }
+        return sketch;
+    }
+
+    @Test
+    void estimate_WithFewValues_ShouldBeExact() {
+        HyperLogLog sketch = sketchOf(0, 50);
+        sketch.add("10.0.0.1");
+
+        assertEquals(50, sketch.estimate());
+        assertEquals(0, new HyperLogLog().estimate());
+    }
+
+    @Test
+    void estimate_WithManyValues_ShouldStayWithinErrorBound() {
+        long estimate = sketchOf(0, 200_000).estimate();
+
+        assertEquals(200_000, estimate, 200_000 * HyperLogLog.STANDARD_ERROR * 3);
+    }
+
+    @Test
+    void merge_ShouldCountOverlappingValuesOnce() {
+        HyperLogLog first = sketchOf(0, 30_000);
+        HyperLogLog second = sketchOf(20_000, 50_000);
+
+        first.merge(second);
+
+        assertEquals(50_000, first.estimate(), 50_000 * HyperLogLog.STANDARD_ERROR * 3);
+    }
+
+    @Test
+    void toBytes_ShouldRoundTripSparseAndDenseSketches() {
+        HyperLogLog sparse = sketchOf(0, 10);
+        HyperLogLog dense = sketchOf(0, 100_000);
+
+        byte[] sparseBytes = sparse.toBytes();
+        byte[] denseBytes = dense.toBytes();
+
+        assertTrue(sparseBytes.length < 100);
+        assertEquals(HyperLogLog.REGISTERS + 1, denseBytes.length);
+        assertEquals(sparse.estimate(), HyperLogLog.fromBytes(sparseBytes).estimate());
+        assertEquals(dense.estimate(), HyperLogLog.fromBytes(denseBytes).estimate());
+    }
+}
@@ -0,0 +1,90 @@
+package ru.practicum.statsservice.sketch;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import ru.practicum.statsdto.ViewStats;
+import ru.practicum.statsservice.model.EndpointHitEntity;
+import ru.practicum.statsservice.repository.EndpointHitRepository;
+import ru.practicum.statsservice.repository.HitDictionary;
+import ru.practicum.statsservice.repository.HitSketchRepository;
+import ru.practicum.statsservice.rollup.AggregateBackfill;
+import ru.practicum.statsservice.service.HitCounts;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({SketchService.class, AggregateBackfill.class, HitDictionary.class})
+class SketchServiceTest {
+
+    @Autowired
+    private SketchService sketchService;
+
+    @Autowired
+    private EndpointHitRepository hitRepository;
+
+    @Autowired
+    private HitSketchRepository sketchRepository;
+
+    private final LocalDateTime base = LocalDateTime.of(2023, 1, 1, 0, 0, 0);
+
+    @BeforeEach
+    void setUp() {
+        List<EndpointHitEntity> hits = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            hits.add(EndpointHitEntity.builder()
+                    .app("test-app")
+                    .uri(i % 3 == 0 ? "/events/1" : "/events/2")
+                    .ip("192.168.1." + (i % 37))
+                    .timestamp(base.plusSeconds(i * 997L))
+                    .build());
+        }
+        hitRepository.insertAll(hits);
+        sketchService.record(hits.subList(0, 200));
+        sketchService.record(hits.subList(200, 400));
+    }
+
+    private List<ViewStats> exact(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        HitCounts counts = new HitCounts();
+        counts.addRows(hitRepository.getStatsUnique(start, end, uris));
+        return counts.toViewStats();
+    }
+
+    @Test
+    void record_ShouldMergeIntoExistingSketches() {
+        long buckets = sketchRepository.count();
+
+        sketchService.record(List.of(EndpointHitEntity.builder()
+                .app("test-app")
+                .uri("/events/1")
+                .ip("10.0.0.1")
+                .timestamp(base)
+                .build()));
+
+        assertEquals(buckets, sketchRepository.count());
+    }
+
+    @Test
+    void getUniqueStats_ShouldMatchExactCountsForUnalignedRanges() {
+        List<LocalDateTime[]> ranges = List.of(
+                new LocalDateTime[]{base, base.plusDays(5)},
+                new LocalDateTime[]{base.plusSeconds(17), base.plusDays(3).plusHours(5).plusSeconds(41)},
+                new LocalDateTime[]{base.plusMinutes(59).plusSeconds(1), base.plusHours(2).plusMinutes(3)},
+                new LocalDateTime[]{base.plusSeconds(5), base.plusSeconds(5000)},
+                new LocalDateTime[]{base.plusHours(23).plusMinutes(1), base.plusDays(2).plusHours(1)});
+
+        for (LocalDateTime[] range : ranges) {
+            assertEquals(exact(range[0], range[1], null), sketchService.getUniqueStats(range[0], range[1], null));
+            assertEquals(exact(range[0], range[1], List.of("/events/1")),
+                    sketchService.getUniqueStats(range[0], range[1], List.of("/events/1")));
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package ru.practicum.statsservice.sketch;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpaceSavingTest {
+
+    @Test
+    void top_UnderCapacity_ShouldBeExact() {
+        SpaceSaving summary = new SpaceSaving(10);
+        summary.offer("a", 5);
+        summary.offer("b", 2);
+        summary.offer("a", 1);
+        summary.offer("c", 4);
+
+        List<SpaceSaving.Entry> top = summary.top(2);
+
+        assertEquals(List.of(new SpaceSaving.Entry("a", 6, 0), new SpaceSaving.Entry("c", 4, 0)), top);
+        assertEquals(12, summary.getTotal());
+    }
+
+    @Test
+    void offer_OverCapacity_ShouldStayWithinErrorBound() {
+        int capacity = 50;
+        SpaceSaving summary = new SpaceSaving(capacity);
+        Map<String, Long> exact = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 20_000; i++) {
+            String item = "/events/" + (int) Math.floor(Math.pow(random.nextDouble(), 3) * 1000);
+            summary.offer(item, 1);
+            exact.merge(item, 1L, Long::sum);
+        }
+
+        assertBounded(summary, exact, capacity);
+    }
+
+    @Test
+    void merge_ShouldKeepErrorBoundOverCombinedTotal() {
+        int capacity = 40;
+        SpaceSaving left = new SpaceSaving(capacity);
+        SpaceSaving right = new SpaceSaving(capacity);
+        Map<String, Long> exact = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 30_000; i++) {
+            String item = "/events/" + (int) Math.floor(Math.pow(random.nextDouble(), 4) * 500);
+            (i % 3 == 0 ? left : right).offer(item, 1);
+            exact.merge(item, 1L, Long::sum);
+        }
+
+        left.merge(right);
+
+        assertEquals(30_000, left.getTotal());
+        assertBounded(left, exact, capacity);
+    }
+
+    @Test
+    void toBytes_ShouldRoundTrip() {
+        SpaceSaving summary = new SpaceSaving(3);
+        for (int i = 0; i < 10; i++) {
+            summary.offer("/events/" + (i % 5), i);
+        }
+
+        SpaceSaving restored = SpaceSaving.fromBytes(summary.toBytes());
+
+        assertEquals(summary.getTotal(), restored.getTotal());
+        assertEquals(summary.top(3), restored.top(3));
+    }
+
+    private void assertBounded(SpaceSaving summary, Map<String, Long> exact, int capacity) {
+        long bound = summary.getTotal() / capacity;
+        for (SpaceSaving.Entry entry : summary.top(capacity)) {
+            long trueCount = exact.get(entry.item());
+            assertTrue(entry.count() >= trueCount, entry.item());
+            assertTrue(entry.count() - entry.error() <= trueCount, entry.item());
+            assertTrue(entry.error() <= bound, entry.item());
+        }
+        List<String> tracked = summary.top(capacity).stream().map(SpaceSaving.Entry::item).toList();
+        exact.forEach((item, count) -> {
+            if (count > bound) {
+                assertTrue(tracked.contains(item), item);
+            }
+        });
+    }
+}
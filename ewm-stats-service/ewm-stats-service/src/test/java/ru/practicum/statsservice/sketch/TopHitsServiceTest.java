@@ -0,0 +1,89 @@
+package ru.practicum.statsservice.sketch;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import ru.practicum.statsdto.ViewStats;
+import ru.practicum.statsservice.model.EndpointHitEntity;
+import ru.practicum.statsservice.repository.EndpointHitRepository;
+import ru.practicum.statsservice.repository.HitDictionary;
+import ru.practicum.statsservice.repository.HitTopSketchRepository;
+import ru.practicum.statsservice.rollup.AggregateBackfill;
+import ru.practicum.statsservice.service.HitCounts;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = "stats.top.enabled=true")
+@Import({TopHitsService.class, AggregateBackfill.class, HitDictionary.class})
+class TopHitsServiceTest {
+
+    @Autowired
+    private TopHitsService topHitsService;
+
+    @Autowired
+    private EndpointHitRepository hitRepository;
+
+    @Autowired
+    private HitTopSketchRepository sketchRepository;
+
+    private List<EndpointHitEntity> insertHits(LocalDateTime base) {
+        List<EndpointHitEntity> hits = new ArrayList<>();
+        for (int i = 0; i < 600; i++) {
+            hits.add(EndpointHitEntity.builder()
+                    .app("test-app")
+                    .uri("/events/" + (i % 3 == 0 ? 1 : i % 5 == 0 ? 2 : 3 + i % 11))
+                    .ip("192.168.1." + (i % 37))
+                    .timestamp(base.plusSeconds(i * 601L))
+                    .build());
+        }
+        hitRepository.insertAll(hits);
+        topHitsService.record(hits.subList(0, 300));
+        topHitsService.record(hits.subList(300, 600));
+        return hits;
+    }
+
+    private List<Long> exactCounts(LocalDateTime start, LocalDateTime end, int k) {
+        HitCounts counts = new HitCounts();
+        counts.addRows(hitRepository.getStats(start, end, null));
+        return counts.toViewStats().stream().limit(k).map(ViewStats::getHits).toList();
+    }
+
+    @Test
+    void getTop_ShouldMatchExactCountsForUnalignedRanges() {
+        LocalDateTime base = LocalDateTime.of(2023, 1, 1, 0, 0, 0);
+        insertHits(base);
+
+        List<LocalDateTime[]> ranges = List.of(
+                new LocalDateTime[]{base, base.plusDays(5)},
+                new LocalDateTime[]{base.plusSeconds(17), base.plusDays(3).plusHours(5).plusSeconds(41)},
+                new LocalDateTime[]{base.plusMinutes(59), base.plusHours(2).plusMinutes(3)},
+                new LocalDateTime[]{base.plusSeconds(5), base.plusSeconds(2000)});
+        for (LocalDateTime[] range : ranges) {
+            List<ViewStats> top = topHitsService.getTop(range[0], range[1], 3);
+
+            assertEquals(exactCounts(range[0], range[1], 3), top.stream().map(ViewStats::getHits).toList());
+        }
+        assertEquals("/events/1", topHitsService.getTop(base, base.plusDays(5), 1).getFirst().getUri());
+    }
+
+    @Test
+    void flush_ShouldStoreSummariesAndKeepAnswers() {
+        LocalDateTime base = LocalDateTime.of(2021, 6, 1, 0, 0, 0);
+        insertHits(base);
+        List<ViewStats> before = topHitsService.getTop(base, base.plusDays(5), 5);
+
+        topHitsService.flush();
+
+        assertTrue(sketchRepository.count() > 0);
+        assertEquals(before, topHitsService.getTop(base, base.plusDays(5), 5));
+    }
+}
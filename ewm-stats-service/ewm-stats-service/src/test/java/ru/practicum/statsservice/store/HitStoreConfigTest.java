@@ -0,0 +1,59 @@
+package ru.practicum.statsservice.store;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.practicum.statsservice.parallel.ParallelRangeQuery;
+import ru.practicum.statsservice.repository.EndpointHitRepository;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class HitStoreConfigTest {
+    private final HitStoreConfig config = new HitStoreConfig();
+    private final EndpointHitRepository repository = mock(EndpointHitRepository.class);
+    private final ParallelRangeQuery parallelQuery = mock(ParallelRangeQuery.class);
+
+    @TempDir
+    private Path directory;
+
+    private HitStore create(String type, boolean aggregates) {
+        return create(type, false, aggregates);
+    }
+
+    private HitStore create(String type, boolean hotWindow, boolean aggregates) {
+        return config.hitStore(type, directory.toString(), 1000, 60_000, 0, false, hotWindow, false, false,
+                aggregates, aggregates, aggregates, repository, parallelQuery, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void hitStore_ShouldCreateStoreOfConfiguredType() {
+        assertInstanceOf(JpaHitStore.class, create("jpa", true));
+
+        HitStore segment = create("segment", false);
+        assertInstanceOf(SegmentHitStore.class, segment);
+        ((SegmentHitStore) segment).close();
+    }
+
+    @Test
+    void hitStore_WithUnknownType_ShouldFail() {
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () -> create("jap", false));
+
+        assertTrue(exception.getMessage().contains("jap"));
+    }
+
+    @Test
+    void hitStore_WithSegmentStoreAndAggregates_ShouldFail() {
+        assertThrows(IllegalStateException.class, () -> create("segment", true));
+    }
+
+    @Test
+    void hitStore_WithSegmentStoreAndHotWindow_ShouldFail() {
+        IllegalStateException exception = assertThrows(IllegalStateException.class,
+                () -> create("segment", true, false));
+
+        assertTrue(exception.getMessage().contains("stats.hot-window.enabled"));
+    }
+}
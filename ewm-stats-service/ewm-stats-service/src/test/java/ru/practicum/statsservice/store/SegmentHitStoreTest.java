@@ -0,0 +1,214 @@
+package ru.practicum.statsservice.store;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.practicum.statsdto.ViewStats;
+import ru.practicum.statsservice.model.EndpointHitEntity;
+import ru.practicum.statsservice.model.RollupGranularity;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentHitStoreTest {
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final LocalDateTime base = LocalDateTime.of(2024, 3, 10, 12, 0);
+    private final List<SegmentHitStore> stores = new ArrayList<>();
+
+    @TempDir
+    private Path directory;
+
+    private SegmentHitStore createStore(int maxSegmentHits) {
+        SegmentHitStore store = new SegmentHitStore(directory, maxSegmentHits, 60_000, 1, false, registry,
+                Clock.fixed(base.plusDays(1).toInstant(ZoneOffset.UTC), ZoneOffset.UTC));
+        stores.add(store);
+        return store;
+    }
+
+    private EndpointHitEntity hit(String uri, String ip, LocalDateTime timestamp) {
+        return EndpointHitEntity.builder()
+                .app("test-app")
+                .uri(uri)
+                .ip(ip)
+                .timestamp(timestamp)
+                .build();
+    }
+
+    private List<EndpointHitEntity> hits(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> hit("/events/" + (i % 3), "10.0.0." + (i % 4), base.plusMinutes(count - i)))
+                .toList();
+    }
+
+    @AfterEach
+    void tearDown() {
+        stores.forEach(SegmentHitStore::close);
+    }
+
+    @Test
+    void getStats_ShouldCountBufferedAndSealedHits() {
+        SegmentHitStore store = createStore(10);
+        store.insertAll(hits(12));
+        store.save(hit("/events/0", "10.0.0.0", base.plusMinutes(30)));
+
+        List<ViewStats> stats = store.getStats(base, base.plusHours(1), null, false);
+        List<ViewStats> unique = store.getStats(base, base.plusHours(1), List.of("/events/0"), true);
+
+        assertEquals(1, store.getSegmentCount());
+        assertEquals(3, stats.size());
+        assertEquals("/events/0", stats.getFirst().getUri());
+        assertEquals(5, stats.getFirst().getHits());
+        assertEquals(13, stats.stream().mapToLong(ViewStats::getHits).sum());
+        assertEquals(1, unique.size());
+        assertEquals(4, unique.getFirst().getHits());
+    }
+
+    @Test
+    void getStats_ShouldOnlyCountHitsInsideRange() {
+        SegmentHitStore store = createStore(100);
+        store.insertAll(hits(30));
+        store.seal();
+        store.insertAll(List.of(hit("/events/1", "10.0.0.9", base.plusDays(2))));
+
+        List<ViewStats> stats = store.getStats(base.plusMinutes(11), base.plusMinutes(20), List.of("/events/1"),
+                false);
+
+        assertEquals(1, stats.size());
+        assertEquals(4, stats.getFirst().getHits());
+        assertTrue(store.getStats(base.minusDays(1), base, null, false).isEmpty());
+    }
+
+    @Test
+    void reopen_ShouldRecoverSegmentsAndReplayActiveLog() throws IOException {
+        SegmentHitStore crashed = createStore(5);
+        crashed.insertAll(hits(7));
+        crashed.insertAll(hits(2));
+        stores.remove(crashed);
+        Files.write(directory.resolve("segment-9.seg.tmp"), new byte[]{1, 2, 3});
+
+        SegmentHitStore reopened = createStore(5);
+
+        assertEquals(1, reopened.getSegmentCount());
+        assertFalse(Files.exists(directory.resolve("segment-9.seg.tmp")));
+        assertEquals(9, reopened.getStats(base, base.plusHours(1), null, false).stream()
+                .mapToLong(ViewStats::getHits).sum());
+    }
+
+    @Test
+    void reopen_WithTornActiveLog_ShouldKeepCompleteRecords() throws IOException {
+        SegmentHitStore crashed = createStore(100);
+        crashed.insertAll(hits(4));
+        stores.remove(crashed);
+        try (FileChannel log = FileChannel.open(directory.resolve("active.log"), StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            log.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 60, 1, 2}));
+        }
+
+        SegmentHitStore reopened = createStore(100);
+        reopened.save(hit("/events/1", "10.0.0.1", base));
+
+        assertEquals(5, reopened.getStats(base, base.plusHours(1), null, false).stream()
+                .mapToLong(ViewStats::getHits).sum());
+    }
+
+    @Test
+    void insertAll_WhenAppendFails_ShouldTruncatePartialRecords() throws IOException {
+        boolean[] failNext = {false};
+        SegmentHitStore store = new SegmentHitStore(directory, 100, 60_000, 1, false, registry,
+                Clock.fixed(base.plusDays(1).toInstant(ZoneOffset.UTC), ZoneOffset.UTC)) {
+            @Override
+            void write(FileChannel channel, ByteBuffer records) throws IOException {
+                if (failNext[0]) {
+                    failNext[0] = false;
+                    records.limit(records.position() + records.remaining() / 2);
+                    channel.write(records);
+                    throw new IOException("No space left on device");
+                }
+                super.write(channel, records);
+            }
+        };
+        store.insertAll(hits(2));
+        long size = Files.size(directory.resolve("active.log"));
+
+        failNext[0] = true;
+        assertThrows(UncheckedIOException.class, () -> store.insertAll(hits(3)));
+        assertEquals(size, Files.size(directory.resolve("active.log")));
+        store.insertAll(hits(1));
+
+        SegmentHitStore reopened = createStore(100);
+
+        assertEquals(3, reopened.getStats(base, base.plusHours(1), null, false).stream()
+                .mapToLong(ViewStats::getHits).sum());
+    }
+
+    @Test
+    void findExistingHitIds_ShouldFindBufferedAndSealedIds() {
+        SegmentHitStore store = createStore(100);
+        UUID sealed = UUID.randomUUID();
+        UUID buffered = UUID.randomUUID();
+        EndpointHitEntity first = hit("/events/1", "10.0.0.1", base);
+        first.setHitId(sealed);
+        store.save(first);
+        store.seal();
+        EndpointHitEntity second = hit("/events/1", "10.0.0.1", base.plusSeconds(1));
+        second.setHitId(buffered);
+        store.save(second);
+
+        List<UUID> found = store.findExistingHitIds(List.of(sealed, buffered, UUID.randomUUID()), base,
+                base.plusSeconds(1));
+
+        assertEquals(2, found.size());
+        assertTrue(found.containsAll(List.of(sealed, buffered)));
+    }
+
+    @Test
+    void countByBucket_ShouldGroupHitsOfUriByBucket() {
+        SegmentHitStore store = createStore(100);
+        store.insertAll(List.of(
+                hit("/events/1", "10.0.0.1", base),
+                hit("/events/1", "10.0.0.1", base.plusSeconds(30)),
+                hit("/events/1", "10.0.0.2", base.plusMinutes(1)),
+                hit("/events/2", "10.0.0.2", base.plusMinutes(1)),
+                hit("/events/1", "10.0.0.3", base.plusMinutes(2))));
+        store.seal();
+
+        Map<LocalDateTime, Long> counts = store.countByBucket("/events/1", RollupGranularity.MINUTE, base,
+                base.plusMinutes(2), false, false);
+        Map<LocalDateTime, Long> unique = store.countByBucket("/events/1", RollupGranularity.MINUTE, base,
+                base.plusMinutes(2), true, true);
+
+        assertEquals(Map.of(base, 2L, base.plusMinutes(1), 1L), counts);
+        assertEquals(Map.of(base, 1L, base.plusMinutes(1), 1L, base.plusMinutes(2), 1L), unique);
+    }
+
+    @Test
+    void maintain_ShouldDropSegmentsPastRetention() {
+        SegmentHitStore store = createStore(100);
+        store.insertAll(List.of(hit("/events/1", "10.0.0.1", base.minusDays(1))));
+        store.seal();
+        store.insertAll(List.of(hit("/events/1", "10.0.0.1", base.plusHours(1))));
+        store.seal();
+
+        store.maintain();
+
+        assertEquals(1, store.getSegmentCount());
+        assertTrue(store.getStats(base.minusDays(2), base, null, false).isEmpty());
+    }
+}
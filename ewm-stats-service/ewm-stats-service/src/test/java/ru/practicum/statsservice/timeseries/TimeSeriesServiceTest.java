@@ -0,0 +1,150 @@
+package ru.practicum.statsservice.timeseries;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.practicum.statsdto.TimeSeriesPoint;
+import ru.practicum.statsservice.exception.BadRequestException;
+import ru.practicum.statsservice.model.EndpointHitEntity;
+import ru.practicum.statsservice.model.RollupGranularity;
+import ru.practicum.statsservice.parallel.ParallelRangeQuery;
+import ru.practicum.statsservice.repository.EndpointHitRepository;
+import ru.practicum.statsservice.repository.HitDictionary;
+import ru.practicum.statsservice.rollup.AggregateBackfill;
+import ru.practicum.statsservice.rollup.RollupService;
+import ru.practicum.statsservice.sketch.SketchService;
+import ru.practicum.statsservice.store.HitStore;
+import ru.practicum.statsservice.store.JpaHitStore;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = {"stats.rollup.enabled=true", "stats.sketch.enabled=true",
+        "stats.timeseries.max-buckets=100"})
+@Import({TimeSeriesService.class, RollupService.class, SketchService.class, AggregateBackfill.class,
+        HitDictionary.class, TimeSeriesServiceTest.StoreConfig.class})
+class TimeSeriesServiceTest {
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    @Autowired
+    private TimeSeriesService timeSeriesService;
+
+    @Autowired
+    private RollupService rollupService;
+
+    @Autowired
+    private SketchService sketchService;
+
+    @Autowired
+    private EndpointHitRepository hitRepository;
+
+    private final LocalDateTime base = LocalDateTime.of(2019, 3, 1, 0, 0, 0);
+    private final List<EndpointHitEntity> hits = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < 500; i++) {
+            hits.add(EndpointHitEntity.builder()
+                    .app(i % 4 == 0 ? "other-app" : "test-app")
+                    .uri(i % 5 == 0 ? "/series/2" : "/series/1")
+                    .ip("10.0.0." + (i % 9))
+                    .timestamp(base.plusSeconds(i * 1217L))
+                    .build());
+        }
+        hitRepository.insertAll(hits);
+        rollupService.record(hits);
+        sketchService.record(hits);
+    }
+
+    private List<Long> expected(LocalDateTime start, LocalDateTime end, RollupGranularity interval, boolean unique) {
+        Map<LocalDateTime, Set<String>> ips = new HashMap<>();
+        Map<LocalDateTime, Long> counts = new HashMap<>();
+        for (EndpointHitEntity hit : hits) {
+            if (hit.getUri().equals("/series/1") && !hit.getTimestamp().isBefore(start)
+                    && !hit.getTimestamp().isAfter(end)) {
+                LocalDateTime bucket = interval.floor(hit.getTimestamp());
+                counts.merge(bucket, 1L, Long::sum);
+                ips.computeIfAbsent(bucket, k -> new HashSet<>()).add(hit.getIp());
+            }
+        }
+        List<Long> result = new ArrayList<>();
+        for (LocalDateTime bucket = interval.floor(start); !bucket.isAfter(end); bucket = interval.next(bucket)) {
+            result.add(unique ? ips.getOrDefault(bucket, Set.of()).size() : counts.getOrDefault(bucket, 0L));
+        }
+        return result;
+    }
+
+    private List<Long> hits(List<TimeSeriesPoint> points) {
+        return points.stream().map(TimeSeriesPoint::getHits).toList();
+    }
+
+    @Test
+    void getTimeSeries_ShouldMatchRawCountsForUnalignedRanges() {
+        LocalDateTime start = base.plusMinutes(37).plusSeconds(11);
+        LocalDateTime end = base.plusDays(3).plusHours(4).plusSeconds(5);
+
+        List<TimeSeriesPoint> hourly = timeSeriesService.getTimeSeries("/series/1", start, end,
+                RollupGranularity.HOUR, false);
+        List<TimeSeriesPoint> daily = timeSeriesService.getTimeSeries("/series/1", start, end,
+                RollupGranularity.DAY, false);
+
+        assertEquals(expected(start, end, RollupGranularity.HOUR, false), hits(hourly));
+        assertEquals(expected(start, end, RollupGranularity.DAY, false), hits(daily));
+        assertEquals(base.format(FORMATTER), hourly.getFirst().getStart());
+        assertEquals(base.plusDays(3).plusHours(4).format(FORMATTER), hourly.getLast().getStart());
+    }
+
+    @Test
+    void getTimeSeries_WithUniqueFlag_ShouldCountDistinctIpsPerBucket() {
+        LocalDateTime start = base.plusHours(2).plusMinutes(3);
+        LocalDateTime end = base.plusDays(4).plusMinutes(1);
+
+        assertEquals(expected(start, end, RollupGranularity.DAY, true),
+                hits(timeSeriesService.getTimeSeries("/series/1", start, end, RollupGranularity.DAY, true)));
+        assertEquals(expected(start, start.plusMinutes(90), RollupGranularity.MINUTE, true),
+                hits(timeSeriesService.getTimeSeries("/series/1", start, start.plusMinutes(90),
+                        RollupGranularity.MINUTE, true)));
+    }
+
+    @Test
+    void getTimeSeries_ForUnknownUri_ShouldReturnZeroBuckets() {
+        List<TimeSeriesPoint> points = timeSeriesService.getTimeSeries("/series/404", base, base.plusHours(5),
+                RollupGranularity.HOUR, false);
+
+        assertEquals(6, points.size());
+        assertTrue(points.stream().allMatch(point -> point.getHits() == 0L));
+    }
+
+    @Test
+    void getTimeSeries_WithTooManyBuckets_ShouldThrowBadRequest() {
+        assertThrows(BadRequestException.class, () -> timeSeriesService.getTimeSeries("/series/1", base,
+                base.plusHours(3), RollupGranularity.MINUTE, false));
+    }
+
+    @TestConfiguration
+    static class StoreConfig {
+        @Bean
+        HitStore hitStore(EndpointHitRepository repository, PlatformTransactionManager transactionManager) {
+            return new JpaHitStore(repository, new ParallelRangeQuery(false, 7, 14, 1, 1_000_000, repository,
+                    transactionManager, new SimpleMeterRegistry()));
+        }
+    }
+}